@@ -0,0 +1,65 @@
+package benchmark;
+
+import component.BasicComponent;
+import component.Product;
+import component.factory.ComponentFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import system.InventoryManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costing and stock checks of products nested to different depths
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BomBenchmarks {
+    @Param({"1", "2", "4", "8", "16"})
+    public int depth;
+    
+    private InventoryManager inventory;
+    private Product product;
+    private BasicComponent extraLeaf;
+    private double extraQuantity;
+    
+    @Setup
+    public void setUp() {
+        inventory = new InventoryManager();
+        product = ProductTrees.build(depth, inventory);
+        extraLeaf = (BasicComponent) ComponentFactory.createComponent(10_000, "Extra", 1.0, 1.0, "Hardware");
+    }
+    
+    @Benchmark
+    public double cost() {
+        return product.getCost();
+    }
+    
+    /**
+     * Changes a quantity, which invalidates the cached bill of materials, and costs the product again
+     */
+    @Benchmark
+    public double rebuildAfterChange() {
+        extraQuantity = extraQuantity == 1.0 ? 2.0 : 1.0;
+        product.addComponent(extraLeaf, extraQuantity);
+        return product.getWeight();
+    }
+    
+    @Benchmark
+    public boolean checkStock() {
+        return product.checkStockAvailability(inventory, 1);
+    }
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import system.DataLoader;
+import system.InventoryManager;
+import system.ManufacturingOrder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading generated catalogs of increasing size. Larger files can be added with
+ * {@code -p rows=1000000,10000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvIngestionBenchmarks {
+    private static final int COMPONENT_COLUMNS = 32;
+    
+    @Param({"10", "1000", "100000"})
+    public long rows;
+    
+    private GeneratedCatalog catalog;
+    
+    @Setup
+    public void setUp() throws IOException {
+        catalog = new GeneratedCatalog(COMPONENT_COLUMNS, rows);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        catalog.close();
+    }
+    
+    @Benchmark
+    public List<ManufacturingOrder> load() throws IOException {
+        return new DataLoader().loadDataAndInitialize(catalog.getComponentsPath(), catalog.getProductsPath(),
+            new InventoryManager());
+    }
+}
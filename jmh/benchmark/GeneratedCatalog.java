@@ -0,0 +1,40 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A pair of generated CSV files in a temporary directory, deleted on close
+ */
+final class GeneratedCatalog implements AutoCloseable {
+    private static final long SEED = 42;
+    
+    private final Path directory;
+    
+    GeneratedCatalog(int componentColumns, long productRows) throws IOException {
+        this.directory = Files.createTempDirectory("manufacturing-bench");
+        CatalogGenerator generator = new CatalogGenerator(SEED);
+        generator.writeComponents(directory.resolve("components.csv"), componentColumns);
+        generator.writeProducts(directory.resolve("products.csv"), componentColumns, productRows);
+    }
+    
+    String getComponentsPath() {
+        return directory.resolve("components.csv").toString();
+    }
+    
+    String getProductsPath() {
+        return directory.resolve("products.csv").toString();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package benchmark;
+
+import component.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import system.InventoryManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reserve and release cycles of one shared bill of materials. The contended
+ * variant runs on four threads; pass {@code -t <threads>} to try other counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InventoryBenchmarks {
+    private InventoryManager inventory;
+    private Product product;
+    
+    @Setup
+    public void setUp() {
+        inventory = new InventoryManager();
+        product = ProductTrees.build(1, inventory);
+    }
+    
+    @Benchmark
+    public boolean reserveRelease() {
+        return cycle();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public boolean reserveReleaseContended() {
+        return cycle();
+    }
+    
+    private boolean cycle() {
+        if (product.deductStock(inventory, 1)) {
+            inventory.release(product.getBillOfMaterials(), 1);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import system.ExecutionMode;
+import system.ManufacturingController;
+import system.WorkerThreadType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full runs of a generated order book in the untimed execution modes. The
+ * report the controller prints is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderRunBenchmarks {
+    private static final int COMPONENT_COLUMNS = 32;
+    private static final int PRODUCTS = 1_000;
+    
+    @Param({"SEQUENTIAL", "PARALLEL_ORDERED", "PARALLEL_THROUGHPUT", "BATCH"})
+    public ExecutionMode mode;
+    
+    private GeneratedCatalog catalog;
+    private PrintStream console;
+    
+    @Setup
+    public void setUp() throws IOException {
+        catalog = new GeneratedCatalog(COMPONENT_COLUMNS, PRODUCTS);
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(console);
+        catalog.close();
+    }
+    
+    @Benchmark
+    public ManufacturingController run() {
+        ManufacturingController controller = new ManufacturingController(mode,
+            Runtime.getRuntime().availableProcessors(), WorkerThreadType.PLATFORM);
+        controller.processManufacturingOrders(catalog.getComponentsPath(), catalog.getProductsPath());
+        return controller;
+    }
+}
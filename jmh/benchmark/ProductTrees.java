@@ -0,0 +1,40 @@
+package benchmark;
+
+import component.Component;
+import component.Product;
+import component.factory.ComponentFactory;
+import system.InventoryManager;
+
+/**
+ * Synthetic product trees for the benchmarks
+ */
+final class ProductTrees {
+    // Leaves per level of the synthetic product trees
+    static final int LEAVES_PER_LEVEL = 4;
+    
+    private ProductTrees() {
+    }
+    
+    /**
+     * Builds a chain of products where each level holds the level below twice plus a few leaves.
+     * Leaf stock is large enough that stock checks always succeed.
+     */
+    static Product build(int depth, InventoryManager inventory) {
+        int nextId = 0;
+        Product below = null;
+        for (int level = 0; level < depth; level++) {
+            Product product = ComponentFactory.createProduct(nextId++, "Level " + level);
+            for (int leaf = 0; leaf < LEAVES_PER_LEVEL; leaf++) {
+                Component component = ComponentFactory.createComponent(
+                    nextId++, "Part " + level + "." + leaf, 1.5 + leaf, 0.5 + leaf, "Hardware");
+                inventory.setInitialStock(component, Integer.MAX_VALUE / 2);
+                product.addComponent(component, 1 + leaf * 0.5);
+            }
+            if (below != null) {
+                product.addComponent(below, 2);
+            }
+            below = product;
+        }
+        return below;
+    }
+}
@@ -1,13 +1,311 @@
+import metrics.ManufacturingMetrics;
+import observer.AsyncEventBus;
+import observer.BackpressurePolicy;
+import observer.ConsoleLogger;
+import process.OutcomeModel;
+import system.Breakdown;
+import system.BreakdownReport;
+import system.CatalogCompiler;
+import system.CommandLineOptions;
+import system.DataLoader;
+import system.DiscreteEventSimulator;
+import system.ExecutionMode;
+import system.InventoryManager;
+import system.InventoryStore;
+import system.ManufacturingController;
+import system.ManufacturingOrder;
 import system.ManufacturingSystem;
+import system.OrderScheduler;
+import system.OrderService;
+import system.SchedulingPolicy;
+import system.SimulationResult;
+import system.SimulationScenario;
+import system.Station;
+import system.WorkerThreadType;
+import system.YieldForecast;
+import system.YieldForecaster;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     public static void main(String[] args) {
         String componentsFilePath = "components.csv";
         String productsFilePath = "products.csv";
-        
+
+        CommandLineOptions options;
+        try {
+            options = CommandLineOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            CommandLineOptions.printUsage(System.err);
+            System.exit(2);
+            return;
+        }
+        if (options.isHelp()) {
+            CommandLineOptions.printUsage(System.out);
+            return;
+        }
+        ExecutionMode mode = options.getMode();
+        int workers = options.getWorkers();
+        WorkerThreadType threadType = options.getThreadType();
+        BackpressurePolicy logPolicy = options.getLogPolicy();
+        Long seed = options.getSeed();
+        SchedulingPolicy schedulingPolicy = options.getSchedulingPolicy();
+        boolean collectMetrics = options.isCollectMetrics();
+        long metricsDumpSeconds = options.getMetricsDumpSeconds();
+        String storeDirectory = options.getStoreDirectory();
+        String catalogPath = options.getCatalogPath();
+        long liveReportSeconds = options.getLiveReportSeconds();
+        String breakdownDirectory = options.getBreakdownDirectory();
+        int shardCount = options.getShardCount();
+        List<Station> stations = options.getStations();
+        Integer servePort = options.getServePort();
+        long batchWindowMillis = options.getBatchWindowMillis();
+        int replications = options.getReplications();
+        int forecastReplications = options.getForecastReplications();
+        SimulationScenario scenario = options.getScenario();
+        OutcomeModel outcomeModel = options.getOutcomeModel();
+
+        if (servePort != null) {
+            OrderService service = new OrderService(batchWindowMillis, TimeUnit.MILLISECONDS);
+            service.setSchedulingPolicy(schedulingPolicy);
+            service.setOutcomeModel(outcomeModel);
+            if (seed != null) {
+                service.setSeed(seed);
+            }
+            serve(service, servePort, threadType, workers, componentsFilePath, productsFilePath, catalogPath,
+                storeDirectory);
+            return;
+        }
+
+        if (forecastReplications > 0) {
+            forecast(forecastReplications, seed != null ? seed : System.nanoTime(), schedulingPolicy, outcomeModel,
+                componentsFilePath, productsFilePath, catalogPath);
+            return;
+        }
+        if (replications > 0) {
+            simulate(scenario, replications, seed != null ? seed : System.nanoTime(), schedulingPolicy,
+                componentsFilePath, productsFilePath, catalogPath);
+            return;
+        }
+
+        ManufacturingController controller;
+        try {
+            controller = new ManufacturingController(mode, workers, threadType);
+        } catch (IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        controller.setSchedulingPolicy(schedulingPolicy);
+        controller.setOutcomeModel(outcomeModel);
+        controller.setLiveReportPeriod(liveReportSeconds, TimeUnit.SECONDS);
+        controller.setShardCount(shardCount);
+        if (!stations.isEmpty()) {
+            controller.setStations(stations);
+        }
+        if (seed != null) {
+            controller.setSeed(seed);
+        }
+        AsyncEventBus eventBus = null;
+        if (logPolicy != null) {
+            eventBus = new AsyncEventBus(logPolicy, new ConsoleLogger(true));
+            controller.addObserver(eventBus);
+        }
+        ManufacturingMetrics metrics = null;
+        if (collectMetrics) {
+            metrics = new ManufacturingMetrics();
+            metrics.registerMBean();
+            if (metricsDumpSeconds > 0) {
+                metrics.startPeriodicDump(metricsDumpSeconds, TimeUnit.SECONDS, System.err);
+            }
+            controller.setMetrics(metrics);
+        }
+        BreakdownReport breakdownReport = null;
+        if (breakdownDirectory != null) {
+            breakdownReport = new BreakdownReport();
+            controller.setBreakdownReport(breakdownReport);
+        }
+        if (catalogPath != null) {
+            try {
+                if (!CatalogCompiler.isUpToDate(Paths.get(catalogPath), componentsFilePath, productsFilePath)) {
+                    CatalogCompiler.compile(componentsFilePath, productsFilePath, Paths.get(catalogPath));
+                    System.out.println("Compiled catalog " + catalogPath);
+                }
+            } catch (IOException e) {
+                System.err.println("Error compiling catalog: " + e.getMessage());
+                return;
+            }
+            controller.setCatalog(catalogPath);
+        }
+        if (storeDirectory != null) {
+            try {
+                InventoryStore store = controller.openInventoryStore(Paths.get(storeDirectory));
+                if (store.getRestoredComponents() > 0) {
+                    System.out.println("Restored stock of " + store.getRestoredComponents()
+                        + " components from " + storeDirectory);
+                }
+            } catch (IOException e) {
+                System.err.println("Error opening inventory store: " + e.getMessage());
+                return;
+            }
+        }
+
         ManufacturingSystem manufacturingSystem = new ManufacturingSystem(
-            componentsFilePath, productsFilePath);
-        
+            componentsFilePath, productsFilePath, controller);
+
         manufacturingSystem.run();
+
+        try {
+            controller.closeInventoryStore();
+        } catch (IOException e) {
+            System.err.println("Error closing inventory store: " + e.getMessage());
+        }
+
+        if (eventBus != null) {
+            eventBus.close();
+            if (eventBus.getDroppedEventCount() > 0) {
+                System.err.println("Warning: " + eventBus.getDroppedEventCount() + " log events were dropped");
+            }
+        }
+        if (metrics != null) {
+            metrics.close();
+            metrics.printSnapshot(System.out);
+        }
+        if (breakdownReport != null) {
+            try {
+                Path directory = Paths.get(breakdownDirectory);
+                Files.createDirectories(directory);
+                Breakdown breakdown = breakdownReport.getBreakdown();
+                breakdown.writeProductsCsv(directory.resolve("breakdown-products.csv"));
+                breakdown.writeComponentsCsv(directory.resolve("breakdown-components.csv"));
+                breakdown.writeJson(directory.resolve("breakdown.json"));
+                System.out.println("Breakdown of " + breakdown.getProducts().size() + " products and "
+                    + breakdown.getComponents().size() + " components written to " + breakdownDirectory);
+            } catch (IOException e) {
+                System.err.println("Error writing breakdown: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Loads the catalog into the order service and serves orders until the JVM is stopped
+     */
+    private static void serve(OrderService service, int port, WorkerThreadType threadType, int workers,
+                              String componentsFilePath, String productsFilePath, String catalogPath,
+                              String storeDirectory) {
+        InventoryStore store = null;
+        try {
+            if (storeDirectory != null) {
+                store = InventoryStore.open(Paths.get(storeDirectory), service.getInventoryManager());
+            }
+            if (catalogPath != null) {
+                if (!CatalogCompiler.isUpToDate(Paths.get(catalogPath), componentsFilePath, productsFilePath)) {
+                    CatalogCompiler.compile(componentsFilePath, productsFilePath, Paths.get(catalogPath));
+                }
+                service.loadCompiledCatalog(catalogPath);
+            } else {
+                service.loadCatalog(componentsFilePath, productsFilePath);
+            }
+            service.start(port, threadType, workers);
+        } catch (IOException e) {
+            System.err.println("Error starting order service: " + e.getMessage());
+            service.close();
+            return;
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        InventoryStore openStore = store;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.close();
+            try {
+                if (openStore != null) {
+                    openStore.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing inventory store: " + e.getMessage());
+            }
+            System.out.println(service.getReportGenerator().getLiveSnapshot());
+            stopped.countDown();
+        }));
+        System.out.println("Order service with " + service.getProductNames().size()
+            + " products listening on http://localhost:" + service.getPort() + "/orders");
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loads the order book and runs the replications of the scenario on the simulated clock
+     */
+    private static void simulate(SimulationScenario scenario, int replications, long seed,
+                                 SchedulingPolicy schedulingPolicy, String componentsFilePath,
+                                 String productsFilePath, String catalogPath) {
+        InventoryManager inventory = new InventoryManager();
+        List<ManufacturingOrder> orders = loadOrderBook(inventory, schedulingPolicy, componentsFilePath,
+            productsFilePath, catalogPath);
+        if (orders == null) {
+            return;
+        }
+
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(orders, inventory);
+        long start = System.nanoTime();
+        SimulationResult result = simulator.replicate(scenario, replications, seed);
+        result.printReport(System.out, System.nanoTime() - start);
+    }
+
+    /**
+     * Loads the order book and forecasts its yield from the given number of replications
+     */
+    private static void forecast(int replications, long seed, SchedulingPolicy schedulingPolicy,
+                                 OutcomeModel outcomeModel, String componentsFilePath, String productsFilePath, String catalogPath) {
+        InventoryManager inventory = new InventoryManager();
+        List<ManufacturingOrder> orders = loadOrderBook(inventory, schedulingPolicy, componentsFilePath,
+            productsFilePath, catalogPath);
+        if (orders == null) {
+            return;
+        }
+
+        YieldForecaster forecaster = new YieldForecaster(orders, inventory);
+        forecaster.setOutcomeModel(outcomeModel);
+        long start = System.nanoTime();
+        YieldForecast forecast = forecaster.forecast(replications, seed);
+        forecast.printReport(System.out, System.nanoTime() - start);
+    }
+
+    /**
+     * Loads the stock into the inventory and returns the orders in the sequence the
+     * scheduling policy runs them, or null after reporting an error
+     */
+    private static List<ManufacturingOrder> loadOrderBook(InventoryManager inventory, SchedulingPolicy schedulingPolicy,
+                                                          String componentsFilePath, String productsFilePath,
+                                                          String catalogPath) {
+        List<ManufacturingOrder> orders;
+        try {
+            DataLoader dataLoader = new DataLoader();
+            if (catalogPath != null) {
+                if (!CatalogCompiler.isUpToDate(Paths.get(catalogPath), componentsFilePath, productsFilePath)) {
+                    CatalogCompiler.compile(componentsFilePath, productsFilePath, Paths.get(catalogPath));
+                }
+                orders = dataLoader.loadCatalogAndInitialize(catalogPath, inventory);
+            } else {
+                orders = dataLoader.loadDataAndInitialize(componentsFilePath, productsFilePath, inventory);
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading order book: " + e.getMessage());
+            return null;
+        }
+        if (schedulingPolicy != SchedulingPolicy.CSV_ORDER) {
+            orders = new OrderScheduler(schedulingPolicy).schedule(orders, inventory);
+        }
+        return orders;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic components.csv / products.csv files in the same format as the
+ * bundled ones, for benchmarking the loader and the order pipeline at any size.
+ * 
+ * Usage: CatalogGenerator <output directory> <component rows> <product rows> [seed]
+ */
+public class CatalogGenerator {
+    private static final String[] TYPES = {"Raw Material", "Hardware", "Paint"};
+    
+    /**
+     * Share of BOM cells that are non-zero, similar to the bundled products.csv
+     */
+    private static final double BOM_DENSITY = 0.3;
+    
+    private static final int QUANTITY_STEPS = 40;
+    
+    private final SplittableRandom random;
+    
+    // Preformatted BOM quantities, so writing millions of rows does not format each cell
+    private final String[] bomQuantities = new String[QUANTITY_STEPS];
+    
+    public CatalogGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+        for (int i = 0; i < QUANTITY_STEPS; i++) {
+            bomQuantities[i] = decimal(0.1 + i / 2.0);
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: CatalogGenerator <output directory> <component rows> <product rows> [seed]");
+            System.exit(1);
+        }
+        Path directory = Paths.get(args[0]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        
+        Files.createDirectories(directory);
+        CatalogGenerator generator = new CatalogGenerator(seed);
+        generator.writeComponents(directory.resolve("components.csv"), Integer.parseInt(args[1]));
+        generator.writeProducts(directory.resolve("products.csv"), Integer.parseInt(args[1]), Long.parseLong(args[2]));
+    }
+    
+    /**
+     * Writes the given number of components, with stock large enough that most orders can be built
+     */
+    public void writeComponents(Path path, int rows) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("Component;Unit Cost (TL);Unit Weight (kg);Type;Stock Quantity\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write(componentName(i));
+                writer.write(';');
+                writer.write(decimal(0.1 + random.nextDouble() * 50));
+                writer.write(';');
+                writer.write(decimal(0.01 + random.nextDouble() * 20));
+                writer.write(';');
+                writer.write(TYPES[random.nextInt(TYPES.length)]);
+                writer.write(';');
+                writer.write(Integer.toString(1000 + random.nextInt(1_000_000)));
+                writer.write(" pieces\n");
+            }
+        }
+    }
+    
+    /**
+     * Writes the given number of products, each using a random subset of the
+     * component columns and ordering between 1 and 50 units
+     */
+    public void writeProducts(Path path, int componentColumns, long rows) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            StringBuilder header = new StringBuilder("Product Name");
+            for (int i = 0; i < componentColumns; i++) {
+                header.append(';').append(componentName(i));
+            }
+            writer.write(header.append(";Quantity\n").toString());
+            
+            StringBuilder line = new StringBuilder();
+            for (long row = 0; row < rows; row++) {
+                line.setLength(0);
+                line.append("Product ").append(row);
+                boolean hasComponent = false;
+                for (int i = 0; i < componentColumns; i++) {
+                    line.append(';');
+                    boolean lastChance = i == componentColumns - 1 && !hasComponent;
+                    if (lastChance || random.nextDouble() < BOM_DENSITY) {
+                        line.append(bomQuantities[random.nextInt(QUANTITY_STEPS)]);
+                        hasComponent = true;
+                    } else {
+                        line.append('0');
+                    }
+                }
+                line.append(';').append(1 + random.nextInt(50)).append('\n');
+                writer.write(line.toString());
+            }
+        }
+    }
+    
+    private static String componentName(int index) {
+        return "Component " + index;
+    }
+    
+    /**
+     * Formats with a comma decimal separator, like the bundled files
+     */
+    private static String decimal(double value) {
+        return String.format("%.2f", value).replace('.', ',');
+    }
+}
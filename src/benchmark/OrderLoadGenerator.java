@@ -0,0 +1,145 @@
+package benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sends orders to a running order service from several clients at once and
+ * prints the request throughput, the latency percentiles and the unit outcomes
+ * the service returned.
+ *
+ * Usage: OrderLoadGenerator <service URL> <clients> <requests per client> [orders per request] [seed]
+ */
+public class OrderLoadGenerator {
+    private static final int MAX_QUANTITY = 5;
+    
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final URI ordersUri;
+    private final List<String> productNames;
+    
+    public OrderLoadGenerator(String serviceUrl) throws IOException, InterruptedException {
+        String base = serviceUrl.endsWith("/") ? serviceUrl.substring(0, serviceUrl.length() - 1) : serviceUrl;
+        this.ordersUri = URI.create(base + "/orders");
+        
+        HttpResponse<String> products = client.send(HttpRequest.newBuilder(URI.create(base + "/products")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        this.productNames = new ArrayList<>();
+        for (String name : products.body().split("\n")) {
+            if (!name.isBlank()) {
+                productNames.add(name);
+            }
+        }
+        if (productNames.isEmpty()) {
+            throw new IllegalStateException("The service has no products to order");
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: OrderLoadGenerator <service URL> <clients> <requests per client> "
+                + "[orders per request] [seed]");
+            System.exit(1);
+        }
+        int clients = Integer.parseInt(args[1]);
+        int requestsPerClient = Integer.parseInt(args[2]);
+        int ordersPerRequest = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        
+        new OrderLoadGenerator(args[0]).run(clients, requestsPerClient, ordersPerRequest, seed);
+    }
+    
+    /**
+     * Runs every client to completion and prints the results
+     */
+    public void run(int clients, int requestsPerClient, int ordersPerRequest, long seed) throws Exception {
+        SplittableRandom root = new SplittableRandom(seed);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<long[]>> latencies = new ArrayList<>();
+            long[] outcomes = new long[4];
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                SplittableRandom random = root.split();
+                latencies.add(executor.submit(() -> runClient(requestsPerClient, ordersPerRequest, random, outcomes)));
+            }
+            
+            long[] all = new long[clients * requestsPerClient];
+            int count = 0;
+            for (Future<long[]> clientLatencies : latencies) {
+                long[] values = clientLatencies.get();
+                System.arraycopy(values, 0, all, count, values.length);
+                count += values.length;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(all);
+            
+            System.out.printf("%d requests (%d orders each) from %d clients in %.2f s: %.0f requests/s%n",
+                all.length, ordersPerRequest, clients, seconds, all.length / seconds);
+            System.out.printf("Latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+            synchronized (outcomes) {
+                System.out.printf("Units: %d completed, %d stock shortage, %d system error, %d damaged component%n",
+                    outcomes[0], outcomes[1], outcomes[2], outcomes[3]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Sends the requests of one client one after another
+     *
+     * @return The latency of every request in nanoseconds
+     */
+    private long[] runClient(int requests, int ordersPerRequest, SplittableRandom random, long[] outcomes)
+            throws IOException, InterruptedException {
+        long[] latencies = new long[requests];
+        long[] clientOutcomes = new long[outcomes.length];
+        StringBuilder body = new StringBuilder();
+        for (int r = 0; r < requests; r++) {
+            body.setLength(0);
+            for (int o = 0; o < ordersPerRequest; o++) {
+                body.append(productNames.get(random.nextInt(productNames.size()))).append(';')
+                    .append(1 + random.nextInt(MAX_QUANTITY)).append('\n');
+            }
+            
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(ordersUri)
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(),
+                HttpResponse.BodyHandlers.ofString());
+            latencies[r] = System.nanoTime() - start;
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Order request failed with " + response.statusCode() + ": "
+                    + response.body());
+            }
+            
+            // Each line ends with the completed, stock shortage, system error and damaged component counts
+            for (String line : response.body().split("\n")) {
+                String[] fields = line.split(";");
+                for (int i = 0; i < outcomes.length; i++) {
+                    clientOutcomes[i] += Long.parseLong(fields[fields.length - outcomes.length + i]);
+                }
+            }
+        }
+        synchronized (outcomes) {
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] += clientOutcomes[i];
+            }
+        }
+        return latencies;
+    }
+    
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
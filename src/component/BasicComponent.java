@@ -5,16 +5,23 @@ import java.util.Collections;
 import java.util.Map;
 
 public abstract class BasicComponent implements Component {
+    protected final int id;
     protected final String name;
     protected final double unitCost;
     protected final double unitWeight;
     
-    public BasicComponent(String name, double unitCost, double unitWeight) {
+    public BasicComponent(int id, String name, double unitCost, double unitWeight) {
+        this.id = id;
         this.name = name;
         this.unitCost = unitCost;
         this.unitWeight = unitWeight;
     }
     
+    @Override
+    public int getId() {
+        return id;
+    }
+    
     @Override
     public double getCost() {
         return unitCost;
@@ -41,8 +48,8 @@ public abstract class BasicComponent implements Component {
     }
     
     @Override
-    public void deductStock(InventoryManager inventory, int quantity) {
-        inventory.deductStock(this, quantity);
+    public boolean deductStock(InventoryManager inventory, int quantity) {
+        return inventory.deductStock(this, quantity);
     }
     
     @Override
@@ -0,0 +1,249 @@
+package component;
+
+import system.InventoryManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Frozen, flattened bill of materials of a product.
+ * Nested products are expanded down to their basic components, so the
+ * quantities are the total amount of each leaf needed for one unit.
+ * Cost and weight are computed once when the bill is built.
+ *
+ * The leaves are also kept as parallel arrays of component IDs and exact
+ * per-unit requirements in inventory milli-units, which the inventory walks
+ * without hashing, boxing or rounding.
+ *
+ * For multi-level planning the bill also records the product structure: the
+ * product and every nested sub-assembly in topological order (each assembly
+ * before the ones it contains) with their direct children, see
+ * {@link MaterialRequirements}. Nested bills are built from the cached bills
+ * of the sub-assemblies, so shared sub-assemblies are expanded only once.
+ */
+public final class BillOfMaterials {
+    private final BasicComponent[] components;
+    private final double[] quantities;
+    private final int[] componentIds;
+    private final long[] milliQuantities;
+    private final Map<BasicComponent, Double> leafQuantities;
+    private final double cost;
+    private final double weight;
+    
+    // Product structure: assemblies[0] is the product itself
+    private final Product[] assemblies;
+    private final int[][] assemblyChildren;
+    private final double[][] assemblyChildQuantities;
+    private final int[][] leafChildren;
+    private final double[][] leafChildQuantities;
+    
+    private BillOfMaterials(Map<BasicComponent, Double> leafQuantities, List<Product> assemblyOrder) {
+        int size = leafQuantities.size();
+        this.components = new BasicComponent[size];
+        this.quantities = new double[size];
+        this.componentIds = new int[size];
+        this.milliQuantities = new long[size];
+        
+        double totalCost = 0;
+        double totalWeight = 0;
+        int i = 0;
+        for (Map.Entry<BasicComponent, Double> entry : leafQuantities.entrySet()) {
+            BasicComponent component = entry.getKey();
+            double quantity = entry.getValue();
+            components[i] = component;
+            quantities[i] = quantity;
+            componentIds[i] = component.getId();
+            milliQuantities[i] = InventoryManager.toMilliUnits(quantity);
+            totalCost += component.getCost() * quantity;
+            totalWeight += component.getWeight() * quantity;
+            i++;
+        }
+        
+        this.leafQuantities = Collections.unmodifiableMap(leafQuantities);
+        this.cost = totalCost;
+        this.weight = totalWeight;
+        
+        int assemblyCount = assemblyOrder.size();
+        this.assemblies = assemblyOrder.toArray(new Product[0]);
+        this.assemblyChildren = new int[assemblyCount][];
+        this.assemblyChildQuantities = new double[assemblyCount][];
+        this.leafChildren = new int[assemblyCount][];
+        this.leafChildQuantities = new double[assemblyCount][];
+        
+        Map<Product, Integer> assemblyIndex = new IdentityHashMap<>();
+        for (int a = 0; a < assemblyCount; a++) {
+            assemblyIndex.put(assemblies[a], a);
+        }
+        Map<Component, Integer> leafIndex = new HashMap<>();
+        for (int l = 0; l < size; l++) {
+            leafIndex.put(components[l], l);
+        }
+        for (int a = 0; a < assemblyCount; a++) {
+            List<Integer> subAssemblies = new ArrayList<>();
+            List<Double> subAssemblyQuantities = new ArrayList<>();
+            List<Integer> leaves = new ArrayList<>();
+            List<Double> leafQuantitiesOfAssembly = new ArrayList<>();
+            Product assembly = assemblies[a];
+            for (int c = 0; c < assembly.getComponentCount(); c++) {
+                Component child = assembly.getComponent(c);
+                if (child instanceof Product) {
+                    subAssemblies.add(assemblyIndex.get(child));
+                    subAssemblyQuantities.add(assembly.getComponentQuantity(c));
+                } else {
+                    leaves.add(leafIndex.get(child));
+                    leafQuantitiesOfAssembly.add(assembly.getComponentQuantity(c));
+                }
+            }
+            assemblyChildren[a] = toIntArray(subAssemblies);
+            assemblyChildQuantities[a] = toDoubleArray(subAssemblyQuantities);
+            leafChildren[a] = toIntArray(leaves);
+            leafChildQuantities[a] = toDoubleArray(leafQuantitiesOfAssembly);
+        }
+    }
+    
+    /**
+     * Builds the flattened bill of materials for the given product
+     */
+    static BillOfMaterials of(Product product) {
+        Map<BasicComponent, Double> leaves = new LinkedHashMap<>();
+        for (int c = 0; c < product.getComponentCount(); c++) {
+            Component component = product.getComponent(c);
+            double quantity = product.getComponentQuantity(c);
+            if (component instanceof Product) {
+                // The sub-assembly's own cached bill, so it is never expanded twice
+                BillOfMaterials nested = ((Product) component).getBillOfMaterials();
+                for (Map.Entry<BasicComponent, Double> leaf : nested.leafQuantities.entrySet()) {
+                    leaves.merge(leaf.getKey(), leaf.getValue() * quantity, Double::sum);
+                }
+            } else {
+                leaves.merge((BasicComponent) component, quantity, Double::sum);
+            }
+        }
+        
+        List<Product> assemblyOrder = new ArrayList<>();
+        addInPostOrder(product, Collections.newSetFromMap(new IdentityHashMap<>()), assemblyOrder);
+        Collections.reverse(assemblyOrder);
+        return new BillOfMaterials(leaves, assemblyOrder);
+    }
+    
+    /**
+     * Depth-first walk over the sub-assemblies visiting each one once; the reversed
+     * result lists every assembly before everything it contains
+     */
+    private static void addInPostOrder(Product product, Set<Product> visited, List<Product> order) {
+        if (!visited.add(product)) {
+            return;
+        }
+        for (int c = 0; c < product.getComponentCount(); c++) {
+            Component component = product.getComponent(c);
+            if (component instanceof Product) {
+                addInPostOrder((Product) component, visited, order);
+            }
+        }
+        order.add(product);
+    }
+    
+    private static int[] toIntArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+    
+    private static double[] toDoubleArray(List<Double> values) {
+        double[] array = new double[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+    
+    /**
+     * Returns leaf component to total quantity per unit
+     */
+    public Map<BasicComponent, Double> getLeafQuantities() {
+        return leafQuantities;
+    }
+    
+    public int size() {
+        return components.length;
+    }
+    
+    public BasicComponent getComponent(int index) {
+        return components[index];
+    }
+    
+    public double getQuantity(int index) {
+        return quantities[index];
+    }
+    
+    public int getComponentId(int index) {
+        return componentIds[index];
+    }
+    
+    /**
+     * Returns the amount of the leaf at the given index taken by one unit, in inventory milli-units
+     */
+    public long getMilliQuantity(int index) {
+        return milliQuantities[index];
+    }
+    
+    public double getCost() {
+        return cost;
+    }
+    
+    public double getWeight() {
+        return weight;
+    }
+    
+    /**
+     * Returns true if the product contains other products
+     */
+    public boolean hasSubAssemblies() {
+        return assemblies.length > 1;
+    }
+    
+    /**
+     * Returns the number of assemblies, the product itself included
+     */
+    int assemblyCount() {
+        return assemblies.length;
+    }
+    
+    /**
+     * Returns the assembly at the given index; index 0 is the product, every
+     * assembly comes before the sub-assemblies it contains
+     */
+    Product getAssembly(int index) {
+        return assemblies[index];
+    }
+    
+    /**
+     * Returns the assembly indices of the direct sub-assemblies of an assembly
+     */
+    int[] getAssemblyChildren(int assembly) {
+        return assemblyChildren[assembly];
+    }
+    
+    double[] getAssemblyChildQuantities(int assembly) {
+        return assemblyChildQuantities[assembly];
+    }
+    
+    /**
+     * Returns the leaf indices of the direct basic components of an assembly
+     */
+    int[] getLeafChildren(int assembly) {
+        return leafChildren[assembly];
+    }
+    
+    double[] getLeafChildQuantities(int assembly) {
+        return leafChildQuantities[assembly];
+    }
+}
@@ -4,11 +4,22 @@ import system.InventoryManager;
 import java.util.Map;
 
 public interface Component {
+    /**
+     * Returns the dense ID that indexes this component in the inventory
+     */
+    int getId();
+    
     double getCost();
     double getWeight();
     String getName();
     boolean checkStockAvailability(InventoryManager inventory, int quantity);
-    void deductStock(InventoryManager inventory, int quantity);
+
+    /**
+     * Deducts the stock needed for the given quantity.
+     *
+     * @return true if the stock was deducted, false if there was not enough
+     */
+    boolean deductStock(InventoryManager inventory, int quantity);
     void addStock(InventoryManager inventory, int quantity);
     Map<Component, Double> getRequiredComponents();
 } 
\ No newline at end of file
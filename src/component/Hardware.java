@@ -1,7 +1,7 @@
 package component;
 
 public class Hardware extends BasicComponent {
-    public Hardware(String name, double unitCost, double unitWeight) {
-        super(name, unitCost, unitWeight);
+    public Hardware(int id, String name, double unitCost, double unitWeight) {
+        super(id, name, unitCost, unitWeight);
     }
 } 
\ No newline at end of file
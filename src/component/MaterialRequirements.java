@@ -0,0 +1,205 @@
+package component;
+
+import system.InventoryManager;
+import java.util.function.ToLongFunction;
+
+/**
+ * Multi-level material requirements planning for products with sub-assemblies.
+ *
+ * The requirements are exploded one assembly at a time in the topological
+ * order of the bill of materials, so every sub-assembly is netted exactly once
+ * however many parents share it: its gross requirement is covered from finished
+ * stock first, and only the shortfall is built on demand from its own children.
+ * What is left is one reservation of finished sub-assemblies plus basic
+ * components, taken all or nothing.
+ *
+ * All quantities are inventory milli-units, so half a sub-assembly takes half a
+ * unit of finished stock, exactly like the flattened bill. Products without
+ * sub-assemblies, or whose sub-assemblies have no finished stock, use the
+ * flattened bill of materials unchanged.
+ */
+final class MaterialRequirements {
+    // A reservation only fails for a short leaf once the sub-assembly stock it planned with is unchanged
+    private static final int MAX_PLANNING_ATTEMPTS = 8;
+    private static final double ROUNDING_TOLERANCE = 1e-6;
+    
+    private final BillOfMaterials bom;
+    private final int units;
+    private final long[] assemblyStock;
+    
+    // The reservation in milli-units: finished sub-assemblies first, then basic components
+    private final Component[] components;
+    private final int[] componentIds;
+    private final long[] quantities;
+    private int count;
+    
+    private MaterialRequirements(BillOfMaterials bom, int units) {
+        this.bom = bom;
+        this.units = units;
+        this.assemblyStock = new long[bom.assemblyCount()];
+        this.components = new Component[bom.assemblyCount() + bom.size()];
+        this.componentIds = new int[components.length];
+        this.quantities = new long[componentIds.length];
+    }
+    
+    static boolean isCovered(Product product, InventoryManager inventory, int units) {
+        BillOfMaterials bom = product.getBillOfMaterials();
+        if (!bom.hasSubAssemblies()) {
+            return inventory.checkStock(bom, units);
+        }
+        MaterialRequirements requirements = new MaterialRequirements(bom, units);
+        if (!requirements.plan(inventory::getStockMilliUnits)) {
+            return inventory.checkStock(bom, units);
+        }
+        return inventory.checkStock(requirements.componentIds, requirements.quantities, requirements.count);
+    }
+    
+    static boolean reserve(Product product, InventoryManager inventory, int units) {
+        BillOfMaterials bom = product.getBillOfMaterials();
+        if (!bom.hasSubAssemblies()) {
+            return inventory.reserve(bom, units);
+        }
+        return reserveNetted(product, inventory, units) != null;
+    }
+    
+    /**
+     * Reserves like {@link #reserve} and returns what the reservation took, or null if it failed
+     */
+    static Reservation reserveNetted(Product product, InventoryManager inventory, int units) {
+        BillOfMaterials bom = product.getBillOfMaterials();
+        if (!bom.hasSubAssemblies()) {
+            return inventory.reserve(bom, units) ? Reservation.of(bom, units) : null;
+        }
+        MaterialRequirements requirements = new MaterialRequirements(bom, units);
+        for (int attempt = 0; attempt < MAX_PLANNING_ATTEMPTS; attempt++) {
+            if (!requirements.plan(inventory::getStockMilliUnits)) {
+                return inventory.reserve(bom, units) ? Reservation.of(bom, units) : null;
+            }
+            if (inventory.reserve(requirements.componentIds, requirements.quantities, requirements.count)) {
+                return Reservation.of(requirements.components, requirements.quantities, requirements.count);
+            }
+            if (!requirements.assemblyStockChanged(inventory)) {
+                return null;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Plans the given units against any stock source without taking anything
+     *
+     * @param stock The stock of a component in milli-units
+     * @return what a reservation would take, or null if no finished sub-assembly
+     *         in stock can be used, so the flattened bill of materials applies
+     */
+    static Reservation plan(Product product, ToLongFunction<Component> stock, int units) {
+        BillOfMaterials bom = product.getBillOfMaterials();
+        if (!bom.hasSubAssemblies()) {
+            return null;
+        }
+        MaterialRequirements requirements = new MaterialRequirements(bom, units);
+        if (!requirements.plan(stock)) {
+            return null;
+        }
+        return Reservation.of(requirements.components, requirements.quantities, requirements.count);
+    }
+    
+    /**
+     * Returns the first component, finished sub-assembly or basic, whose stock does
+     * not cover its share of the given units, or null if the stock covers them all
+     */
+    static Component findShortage(Product product, InventoryManager inventory, int units) {
+        BillOfMaterials bom = product.getBillOfMaterials();
+        if (bom.hasSubAssemblies()) {
+            MaterialRequirements requirements = new MaterialRequirements(bom, units);
+            if (requirements.plan(inventory::getStockMilliUnits)) {
+                for (int i = 0; i < requirements.count; i++) {
+                    if (inventory.getStockMilliUnits(requirements.components[i]) < requirements.quantities[i]) {
+                        return requirements.components[i];
+                    }
+                }
+                return null;
+            }
+        }
+        for (int i = 0; i < bom.size(); i++) {
+            if (inventory.getStockMilliUnits(bom.getComponent(i)) < bom.getMilliQuantity(i) * units) {
+                return bom.getComponent(i);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Nets the requirements against the current sub-assembly stock
+     *
+     * @return false if no finished sub-assembly can be used, so the flattened bill applies
+     */
+    private boolean plan(ToLongFunction<Component> stock) {
+        int assemblyCount = bom.assemblyCount();
+        // Requirements in milli-units, rounded up to whole milli-units once netted
+        double[] grossAssemblies = new double[assemblyCount];
+        double[] leafRequirements = new double[bom.size()];
+        grossAssemblies[0] = (double) units * InventoryManager.MILLI_UNITS_PER_UNIT;
+        count = 0;
+        
+        for (int a = 0; a < assemblyCount; a++) {
+            long gross = roundUp(grossAssemblies[a]);
+            long fromStock = 0;
+            if (a > 0) {
+                assemblyStock[a] = Math.max(0, stock.applyAsLong(bom.getAssembly(a)));
+                fromStock = Math.min(gross, assemblyStock[a]);
+            }
+            if (fromStock > 0) {
+                components[count] = bom.getAssembly(a);
+                componentIds[count] = bom.getAssembly(a).getId();
+                quantities[count] = fromStock;
+                count++;
+            }
+            
+            long toBuild = gross - fromStock;
+            if (toBuild == 0) {
+                continue;
+            }
+            int[] children = bom.getAssemblyChildren(a);
+            double[] childQuantities = bom.getAssemblyChildQuantities(a);
+            for (int c = 0; c < children.length; c++) {
+                grossAssemblies[children[c]] += toBuild * childQuantities[c];
+            }
+            int[] leaves = bom.getLeafChildren(a);
+            double[] leafQuantities = bom.getLeafChildQuantities(a);
+            for (int l = 0; l < leaves.length; l++) {
+                leafRequirements[leaves[l]] += toBuild * leafQuantities[l];
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        
+        for (int l = 0; l < leafRequirements.length; l++) {
+            long quantity = roundUp(leafRequirements[l]);
+            if (quantity > 0) {
+                components[count] = bom.getComponent(l);
+                componentIds[count] = bom.getComponentId(l);
+                quantities[count] = quantity;
+                count++;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Rounds up to a whole milli-unit, ignoring the rounding noise of summed fractional quantities
+     */
+    private static long roundUp(double quantity) {
+        return (long) Math.ceil(quantity - ROUNDING_TOLERANCE);
+    }
+    
+    private boolean assemblyStockChanged(InventoryManager inventory) {
+        for (int a = 1; a < bom.assemblyCount(); a++) {
+            if (Math.max(0, inventory.getStockMilliUnits(bom.getAssembly(a))) != assemblyStock[a]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
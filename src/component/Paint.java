@@ -1,7 +1,7 @@
 package component;
 
 public class Paint extends BasicComponent {
-    public Paint(String name, double unitCost, double unitWeight) {
-        super(name, unitCost, unitWeight);
+    public Paint(int id, String name, double unitCost, double unitWeight) {
+        super(id, name, unitCost, unitWeight);
     }
 } 
\ No newline at end of file
@@ -1,23 +1,82 @@
 package component;
 
 import system.InventoryManager;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToLongFunction;
 
+/**
+ * Composite component built from basic components and other products.
+ *
+ * The direct components are stored sparsely as parallel arrays of components,
+ * their IDs and quantities, in the order they were added, so a product takes
+ * memory for the components it uses and not for every column of the products
+ * file. Use the indexed accessors to walk them without boxing.
+ */
 public class Product implements Component {
+    private final int id;
     private final String name;
-    private final Map<Component, Double> requiredComponents;
     
-    public Product(String name) {
+    // Replaced as a whole on every change, so readers never see a half-updated list
+    private volatile DirectComponents directComponents = DirectComponents.EMPTY;
+    
+    // Products that contain this one and whose cached bill must be dropped when it changes
+    private final CopyOnWriteArrayList<Product> parents;
+    private volatile BillOfMaterials billOfMaterials;
+    
+    public Product(int id, String name) {
+        this.id = id;
         this.name = name;
-        this.requiredComponents = new HashMap<>();
+        this.parents = new CopyOnWriteArrayList<>();
     }
     
     /**
      * Adds a component (can be a basic component or another product) with the specified quantity.
-     * This allows for recursive composition of products.
+     * This allows for recursive composition of products. Adding a component again replaces its quantity.
      */
     public void addComponent(Component component, double quantity) {
+        addComponents(new Component[] {component}, new double[] {quantity}, 1);
+    }
+    
+    /**
+     * Adds the first count components of the arrays with their quantities in one
+     * change, so a product built from a whole row is copied and invalidated once
+     */
+    public synchronized void addComponents(Component[] newComponents, double[] newQuantities, int count) {
+        if (count == 0) {
+            return;
+        }
+        DirectComponents current = directComponents;
+        int size = current.components.length;
+        Component[] components = Arrays.copyOf(current.components, size + count);
+        int[] ids = Arrays.copyOf(current.ids, size + count);
+        double[] quantities = Arrays.copyOf(current.quantities, size + count);
+        
+        for (int i = 0; i < count; i++) {
+            Component component = newComponents[i];
+            checkCanContain(component);
+            int index = indexOf(ids, size, component.getId());
+            if (index < 0) {
+                index = size++;
+                components[index] = component;
+                ids[index] = component.getId();
+            }
+            quantities[index] = newQuantities[i];
+        }
+        
+        if (size < components.length) {
+            components = Arrays.copyOf(components, size);
+            ids = Arrays.copyOf(ids, size);
+            quantities = Arrays.copyOf(quantities, size);
+        }
+        directComponents = new DirectComponents(components, ids, quantities);
+        invalidateBillOfMaterials();
+    }
+    
+    private void checkCanContain(Component component) {
         if (component == this) {
             throw new IllegalArgumentException("A product cannot contain itself as a component");
         }
@@ -28,9 +87,17 @@ public class Product implements Component {
             if (hasCircularDependency(productComponent)) {
                 throw new IllegalArgumentException("Circular dependency detected between products");
             }
+            productComponent.parents.addIfAbsent(this);
         }
-        
-        requiredComponents.put(component, quantity);
+    }
+    
+    private static int indexOf(int[] ids, int size, int componentId) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == componentId) {
+                return i;
+            }
+        }
+        return -1;
     }
     
     /**
@@ -38,7 +105,7 @@ public class Product implements Component {
      */
     private boolean hasCircularDependency(Product product) {
         // Check if any of the product's direct components references this product
-        for (Component component : product.getRequiredComponents().keySet()) {
+        for (Component component : product.directComponents.components) {
             if (component == this) {
                 return true;
             }
@@ -54,22 +121,46 @@ public class Product implements Component {
         return false;
     }
     
+    /**
+     * Drops the cached bill of this product and of every product that contains it
+     */
+    private void invalidateBillOfMaterials() {
+        billOfMaterials = null;
+        for (Product parent : parents) {
+            parent.invalidateBillOfMaterials();
+        }
+    }
+    
+    /**
+     * Returns the flattened bill of materials, building it on first use after a change
+     */
+    public BillOfMaterials getBillOfMaterials() {
+        BillOfMaterials bom = billOfMaterials;
+        if (bom == null) {
+            synchronized (this) {
+                bom = billOfMaterials;
+                if (bom == null) {
+                    bom = BillOfMaterials.of(this);
+                    billOfMaterials = bom;
+                }
+            }
+        }
+        return bom;
+    }
+    
+    @Override
+    public int getId() {
+        return id;
+    }
+    
     @Override
     public double getCost() {
-        double totalCost = 0;
-        for (Map.Entry<Component, Double> entry : requiredComponents.entrySet()) {
-            totalCost += entry.getKey().getCost() * entry.getValue();
-        }
-        return totalCost;
+        return getBillOfMaterials().getCost();
     }
     
     @Override
     public double getWeight() {
-        double totalWeight = 0;
-        for (Map.Entry<Component, Double> entry : requiredComponents.entrySet()) {
-            totalWeight += entry.getKey().getWeight() * entry.getValue();
-        }
-        return totalWeight;
+        return getBillOfMaterials().getWeight();
     }
     
     @Override
@@ -77,30 +168,85 @@ public class Product implements Component {
         return name;
     }
     
+    /**
+     * Returns the number of direct components of this product
+     */
+    public int getComponentCount() {
+        return directComponents.components.length;
+    }
+    
+    public Component getComponent(int index) {
+        return directComponents.components[index];
+    }
+    
+    public int getComponentId(int index) {
+        return directComponents.ids[index];
+    }
+    
+    public double getComponentQuantity(int index) {
+        return directComponents.quantities[index];
+    }
+    
+    /**
+     * Returns the direct components of this product as a read-only map, built on
+     * each call; the indexed accessors avoid the copy
+     */
     @Override
     public Map<Component, Double> getRequiredComponents() {
-        return new HashMap<>(requiredComponents);
+        DirectComponents direct = directComponents;
+        Map<Component, Double> requiredComponents = new LinkedHashMap<>();
+        for (int i = 0; i < direct.components.length; i++) {
+            requiredComponents.put(direct.components[i], direct.quantities[i]);
+        }
+        return Collections.unmodifiableMap(requiredComponents);
     }
     
+    /**
+     * Checks the stock for the given quantity, counting finished sub-assemblies
+     * before the basic components they would be built from
+     */
     @Override
     public boolean checkStockAvailability(InventoryManager inventory, int quantity) {
-        for (Map.Entry<Component, Double> entry : requiredComponents.entrySet()) {
-            Component component = entry.getKey();
-            double requiredQuantity = entry.getValue() * quantity;
-            if (!component.checkStockAvailability(inventory, (int) Math.ceil(requiredQuantity))) {
-                return false;
-            }
-        }
-        return true;
+        return MaterialRequirements.isCovered(this, inventory, quantity);
     }
     
+    /**
+     * Deducts the stock needed for the given quantity in a single atomic
+     * reservation, so concurrent processes can never take half a bill of materials.
+     * Finished sub-assemblies in stock are used first; missing ones are built
+     * from their own components.
+     */
     @Override
-    public void deductStock(InventoryManager inventory, int quantity) {
-        for (Map.Entry<Component, Double> entry : requiredComponents.entrySet()) {
-            Component component = entry.getKey();
-            double requiredQuantity = entry.getValue() * quantity;
-            component.deductStock(inventory, (int) Math.ceil(requiredQuantity));
-        }
+    public boolean deductStock(InventoryManager inventory, int quantity) {
+        return MaterialRequirements.reserve(this, inventory, quantity);
+    }
+    
+    /**
+     * Deducts the stock like {@link #deductStock} and returns what the reservation
+     * took, or null if the stock does not cover the quantity
+     */
+    public Reservation reserveNetted(InventoryManager inventory, int quantity) {
+        return MaterialRequirements.reserveNetted(this, inventory, quantity);
+    }
+    
+    /**
+     * Plans the given quantity like {@link #reserveNetted} against another stock,
+     * such as a snapshot, without taking anything
+     *
+     * @param stock The stock of a component in milli-units
+     * @return what a reservation would take, or null if no finished sub-assembly
+     *         in stock can be used and the flattened bill of materials applies
+     */
+    public Reservation planNetted(ToLongFunction<Component> stock, int quantity) {
+        return MaterialRequirements.plan(this, stock, quantity);
+    }
+    
+    /**
+     * Returns the component whose stock does not cover the given quantity, the
+     * first one found, or null if the stock covers it
+     */
+    public Component findShortComponent(InventoryManager inventory, int quantity) {
+        return MaterialRequirements.findShortage(this, inventory, quantity);
     }
     
     @Override
@@ -125,4 +271,21 @@ public class Product implements Component {
     public int hashCode() {
         return name.hashCode();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * The direct components as parallel arrays of components, IDs and quantities
+     */
+    private static final class DirectComponents {
+        static final DirectComponents EMPTY = new DirectComponents(new Component[0], new int[0], new double[0]);
+        
+        final Component[] components;
+        final int[] ids;
+        final double[] quantities;
+        
+        DirectComponents(Component[] components, int[] ids, double[] quantities) {
+            this.components = components;
+            this.ids = ids;
+            this.quantities = quantities;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package component;
 
 public class RawMaterial extends BasicComponent {
-    public RawMaterial(String name, double unitCost, double unitWeight) {
-        super(name, unitCost, unitWeight);
+    public RawMaterial(int id, String name, double unitCost, double unitWeight) {
+        super(id, name, unitCost, unitWeight);
     }
 } 
\ No newline at end of file
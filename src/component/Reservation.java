@@ -0,0 +1,82 @@
+package component;
+
+/**
+ * The stock a reservation took, in inventory milli-units: the finished
+ * sub-assemblies it used and the basic components of everything it built.
+ * Without sub-assemblies in stock this is the flattened bill of materials
+ * times the units.
+ */
+public final class Reservation {
+    private final Component[] components;
+    private final long[] milliQuantities;
+    
+    private Reservation(Component[] components, long[] milliQuantities) {
+        this.components = components;
+        this.milliQuantities = milliQuantities;
+    }
+    
+    static Reservation of(Component[] components, long[] milliQuantities, int count) {
+        Component[] taken = new Component[count];
+        long[] quantities = new long[count];
+        System.arraycopy(components, 0, taken, 0, count);
+        System.arraycopy(milliQuantities, 0, quantities, 0, count);
+        return new Reservation(taken, quantities);
+    }
+    
+    /**
+     * Returns the leaves of the given units of a flattened bill of materials
+     */
+    public static Reservation of(BillOfMaterials bom, int units) {
+        Component[] taken = new Component[bom.size()];
+        long[] quantities = new long[bom.size()];
+        for (int i = 0; i < taken.length; i++) {
+            taken[i] = bom.getComponent(i);
+            quantities[i] = bom.getMilliQuantity(i) * units;
+        }
+        return new Reservation(taken, quantities);
+    }
+    
+    /**
+     * Returns the stock of both reservations together
+     */
+    public Reservation plus(Reservation other) {
+        Component[] taken = new Component[components.length + other.components.length];
+        long[] quantities = new long[taken.length];
+        System.arraycopy(components, 0, taken, 0, components.length);
+        System.arraycopy(milliQuantities, 0, quantities, 0, components.length);
+        int count = components.length;
+        for (int i = 0; i < other.components.length; i++) {
+            int index = indexOf(taken, count, other.components[i]);
+            if (index < 0) {
+                taken[count] = other.components[i];
+                index = count++;
+            }
+            quantities[index] += other.milliQuantities[i];
+        }
+        return of(taken, quantities, count);
+    }
+    
+    private static int indexOf(Component[] components, int count, Component component) {
+        for (int i = 0; i < count; i++) {
+            if (components[i] == component) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    public int size() {
+        return components.length;
+    }
+    
+    public Component getComponent(int index) {
+        return components[index];
+    }
+    
+    /**
+     * Returns the amount of the component at the given index taken, in inventory milli-units
+     */
+    public long getMilliQuantity(int index) {
+        return milliQuantities[index];
+    }
+}
@@ -11,6 +11,7 @@ public class ComponentFactory {
     /**
      * Creates a new component based on the specified type
      * 
+     * @param id The dense inventory ID of the component
      * @param name The name of the component
      * @param unitCost The cost per unit
      * @param unitWeight The weight per unit
@@ -18,14 +19,14 @@ public class ComponentFactory {
      * @return A new component of the specified type
      * @throws IllegalArgumentException if the type is unknown
      */
-    public static Component createComponent(String name, double unitCost, double unitWeight, String type) {
+    public static Component createComponent(int id, String name, double unitCost, double unitWeight, String type) {
         switch (type) {
             case "Raw Material":
-                return new RawMaterial(name, unitCost, unitWeight);
+                return new RawMaterial(id, name, unitCost, unitWeight);
             case "Hardware":
-                return new Hardware(name, unitCost, unitWeight);
+                return new Hardware(id, name, unitCost, unitWeight);
             case "Paint":
-                return new Paint(name, unitCost, unitWeight);
+                return new Paint(id, name, unitCost, unitWeight);
             default:
                 throw new IllegalArgumentException("Unknown component type: " + type);
         }
@@ -34,10 +35,11 @@ public class ComponentFactory {
     /**
      * Creates a new product with the given name
      * 
+     * @param id The dense inventory ID of the product
      * @param name The name of the product
      * @return A new empty product (components need to be added separately)
      */
-    public static Product createProduct(String name) {
-        return new Product(name);
+    public static Product createProduct(int id, String name) {
+        return new Product(id, name);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,21 @@
+package metrics;
+
+/**
+ * Inventory operations timed by {@link ManufacturingMetrics}
+ */
+public enum InventoryOperation {
+    /**
+     * Checking whether the stock covers a requirement, without taking it
+     */
+    CHECK,
+    
+    /**
+     * Deducting stock, all or nothing
+     */
+    RESERVE,
+    
+    /**
+     * Returning reserved stock that was not used
+     */
+    RELEASE
+}
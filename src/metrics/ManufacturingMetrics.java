@@ -0,0 +1,335 @@
+package metrics;
+
+import process.BatchManufacturingProcess;
+import process.ManufacturingOutcome;
+import process.ProcessState;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for a manufacturing run.
+ *
+ * Processes feed it through a {@link MetricsObserver}, the inventory and the
+ * data loader through their {@code setMetrics} hooks. All recording methods are
+ * lock-free and allocation-free once a state has been seen, so the metrics can
+ * stay attached in parallel runs. The numbers can be read over JMX (see
+ * {@link #registerMBean()}) or printed as a text snapshot, optionally on a
+ * fixed period.
+ */
+public class ManufacturingMetrics implements ManufacturingMetricsMBean, AutoCloseable {
+    public static final String OBJECT_NAME = "manufacturing:type=ManufacturingMetrics";
+    
+    private static final ManufacturingOutcome[] OUTCOMES = ManufacturingOutcome.values();
+    private static final InventoryOperation[] INVENTORY_OPERATIONS = InventoryOperation.values();
+    
+    private final LongAdder[] outcomeCounts = new LongAdder[OUTCOMES.length];
+    private final LongAdder stateTransitions = new LongAdder();
+    private final LongAdder stockWaitFailures = new LongAdder();
+    private final LatencyHistogram processDurations = new LatencyHistogram();
+    private final Map<ProcessState, LatencyHistogram> stateDurations = new ConcurrentHashMap<>();
+    
+    private final LatencyHistogram[] inventoryDurations = new LatencyHistogram[INVENTORY_OPERATIONS.length];
+    private final LongAdder[] inventoryFailures = new LongAdder[INVENTORY_OPERATIONS.length];
+    
+    private final AtomicLong componentsLoadNanos = new AtomicLong();
+    private final AtomicLong componentsLoaded = new AtomicLong();
+    private final AtomicLong productsLoadNanos = new AtomicLong();
+    private final AtomicLong ordersLoaded = new AtomicLong();
+    
+    private volatile long startNanos = System.nanoTime();
+    private ScheduledExecutorService dumpScheduler;
+    private ObjectName registeredName;
+    
+    public ManufacturingMetrics() {
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            outcomeCounts[i] = new LongAdder();
+        }
+        for (int i = 0; i < INVENTORY_OPERATIONS.length; i++) {
+            inventoryDurations[i] = new LatencyHistogram();
+            inventoryFailures[i] = new LongAdder();
+        }
+    }
+    
+    /**
+     * Records the time a process spent in the state it just left
+     */
+    public void recordStateDuration(ProcessState state, long nanos) {
+        stateTransitions.increment();
+        LatencyHistogram histogram = stateDurations.get(state);
+        if (histogram == null) {
+            histogram = stateDurations.computeIfAbsent(state, key -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+    
+    /**
+     * Records a unit whose stock check failed before manufacturing started
+     */
+    public void recordStockWaitFailure() {
+        stockWaitFailures.increment();
+    }
+    
+    /**
+     * Records a finished unit and its time from creation to the terminal state
+     */
+    public void recordProcessCompleted(ManufacturingOutcome outcome, long nanos) {
+        if (outcome != null) {
+            outcomeCounts[outcome.ordinal()].increment();
+        }
+        processDurations.record(nanos);
+    }
+    
+    /**
+     * Records the outcome counts of a batch; batches have no per-unit timing
+     */
+    public void recordBatch(BatchManufacturingProcess batch) {
+        for (ManufacturingOutcome outcome : OUTCOMES) {
+            outcomeCounts[outcome.ordinal()].add(batch.getOutcomeCount(outcome));
+        }
+        stockWaitFailures.add(batch.getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE));
+    }
+    
+    /**
+     * @param succeeded false if the operation found the stock short
+     */
+    public void recordInventoryOperation(InventoryOperation operation, long nanos, boolean succeeded) {
+        inventoryDurations[operation.ordinal()].record(nanos);
+        if (!succeeded) {
+            inventoryFailures[operation.ordinal()].increment();
+        }
+    }
+    
+    public void recordComponentsLoad(long nanos, int components) {
+        componentsLoadNanos.addAndGet(nanos);
+        componentsLoaded.addAndGet(components);
+    }
+    
+    /**
+     * @param nanos Time spent reading the products file, excluding the time spent processing its orders
+     */
+    public void recordProductsLoad(long nanos, int orders) {
+        productsLoadNanos.addAndGet(nanos);
+        ordersLoaded.addAndGet(orders);
+    }
+    
+    public long getOutcomeCount(ManufacturingOutcome outcome) {
+        return outcomeCounts[outcome.ordinal()].sum();
+    }
+    
+    public LatencyHistogram getInventoryDurations(InventoryOperation operation) {
+        return inventoryDurations[operation.ordinal()];
+    }
+    
+    @Override
+    public long getUnitsCompleted() {
+        long total = 0;
+        for (LongAdder count : outcomeCounts) {
+            total += count.sum();
+        }
+        return total;
+    }
+    
+    @Override
+    public long getUnitsSucceeded() {
+        return getOutcomeCount(ManufacturingOutcome.COMPLETED);
+    }
+    
+    @Override
+    public long getUnitsFailedStockShortage() {
+        return getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE);
+    }
+    
+    @Override
+    public long getUnitsFailedSystemError() {
+        return getOutcomeCount(ManufacturingOutcome.FAILED_SYSTEM_ERROR);
+    }
+    
+    @Override
+    public long getUnitsFailedDamagedComponent() {
+        return getOutcomeCount(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT);
+    }
+    
+    @Override
+    public double getUnitsPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? getUnitsCompleted() / seconds : 0;
+    }
+    
+    @Override
+    public long getStateTransitions() {
+        return stateTransitions.sum();
+    }
+    
+    @Override
+    public long getStockWaitFailures() {
+        return stockWaitFailures.sum();
+    }
+    
+    @Override
+    public double getMeanProcessMicros() {
+        return processDurations.getMeanNanos() / 1e3;
+    }
+    
+    @Override
+    public double getP99ProcessMicros() {
+        return processDurations.getValueAtPercentile(99) / 1e3;
+    }
+    
+    @Override
+    public long getInventoryReserveCount() {
+        return inventoryDurations[InventoryOperation.RESERVE.ordinal()].getCount();
+    }
+    
+    @Override
+    public long getInventoryReserveFailures() {
+        return inventoryFailures[InventoryOperation.RESERVE.ordinal()].sum();
+    }
+    
+    @Override
+    public double getP99InventoryReserveMicros() {
+        return inventoryDurations[InventoryOperation.RESERVE.ordinal()].getValueAtPercentile(99) / 1e3;
+    }
+    
+    @Override
+    public double getComponentsLoadMillis() {
+        return componentsLoadNanos.get() / 1e6;
+    }
+    
+    @Override
+    public double getProductsLoadMillis() {
+        return productsLoadNanos.get() / 1e6;
+    }
+    
+    @Override
+    public String getSnapshot() {
+        StringBuilder snapshot = new StringBuilder();
+        snapshot.append(String.format("=== Manufacturing metrics after %.2f s ===%n",
+                (System.nanoTime() - startNanos) / 1e9));
+        snapshot.append(String.format("Units: %d completed (%.1f/s), %d succeeded, %d stock shortage, "
+                + "%d system error, %d damaged component%n",
+                getUnitsCompleted(), getUnitsPerSecond(), getUnitsSucceeded(), getUnitsFailedStockShortage(),
+                getUnitsFailedSystemError(), getUnitsFailedDamagedComponent()));
+        snapshot.append(String.format("State transitions: %d, stock wait failures: %d%n",
+                getStateTransitions(), getStockWaitFailures()));
+        
+        snapshot.append(String.format("%-28s %10s %10s %10s %10s %10s%n",
+                "Latency (us)", "count", "mean", "p50", "p99", "max"));
+        appendHistogram(snapshot, "process", processDurations);
+        for (Map.Entry<ProcessState, LatencyHistogram> entry : stateDurations.entrySet()) {
+            appendHistogram(snapshot, "state " + entry.getKey().getName(), entry.getValue());
+        }
+        for (InventoryOperation operation : INVENTORY_OPERATIONS) {
+            LatencyHistogram histogram = inventoryDurations[operation.ordinal()];
+            if (histogram.getCount() > 0) {
+                appendHistogram(snapshot, "inventory " + operation.name().toLowerCase()
+                        + " (" + inventoryFailures[operation.ordinal()].sum() + " short)", histogram);
+            }
+        }
+        
+        snapshot.append(String.format("Load: %d components in %.2f ms, %d orders in %.2f ms%n",
+                componentsLoaded.get(), getComponentsLoadMillis(), ordersLoaded.get(), getProductsLoadMillis()));
+        return snapshot.toString();
+    }
+    
+    public void printSnapshot(PrintStream out) {
+        out.print(getSnapshot());
+        out.flush();
+    }
+    
+    /**
+     * Clears every counter and histogram and restarts the throughput clock
+     */
+    @Override
+    public void reset() {
+        for (LongAdder count : outcomeCounts) {
+            count.reset();
+        }
+        stateTransitions.reset();
+        stockWaitFailures.reset();
+        processDurations.reset();
+        stateDurations.clear();
+        for (int i = 0; i < INVENTORY_OPERATIONS.length; i++) {
+            inventoryDurations[i].reset();
+            inventoryFailures[i].reset();
+        }
+        componentsLoadNanos.set(0);
+        componentsLoaded.set(0);
+        productsLoadNanos.set(0);
+        ordersLoaded.set(0);
+        startNanos = System.nanoTime();
+    }
+    
+    /**
+     * Registers these metrics with the platform MBean server under {@link #OBJECT_NAME}
+     */
+    public synchronized void registerMBean() {
+        if (registeredName != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            registeredName = name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics MBean", e);
+        }
+    }
+    
+    /**
+     * Prints a snapshot to the given stream every period until {@link #close()} is called
+     */
+    public synchronized void startPeriodicDump(long period, TimeUnit unit, PrintStream out) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Dump period must be positive: " + period);
+        }
+        if (dumpScheduler != null) {
+            dumpScheduler.shutdownNow();
+        }
+        dumpScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpScheduler.scheduleAtFixedRate(() -> printSnapshot(out), period, period, unit);
+    }
+    
+    /**
+     * Stops the periodic dump and unregisters the MBean
+     */
+    @Override
+    public synchronized void close() {
+        if (dumpScheduler != null) {
+            dumpScheduler.shutdownNow();
+            dumpScheduler = null;
+        }
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                System.err.println("Warning: Could not unregister metrics MBean: " + e.getMessage());
+            }
+            registeredName = null;
+        }
+    }
+    
+    private static void appendHistogram(StringBuilder snapshot, String label, LatencyHistogram histogram) {
+        snapshot.append(String.format("%-28s %10d %10.1f %10.1f %10.1f %10.1f%n", label, histogram.getCount(),
+                histogram.getMeanNanos() / 1e3, histogram.getValueAtPercentile(50) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3, histogram.getMaxNanos() / 1e3));
+    }
+}
@@ -0,0 +1,33 @@
+package metrics;
+
+/**
+ * JMX view of {@link ManufacturingMetrics}, registered by
+ * {@link ManufacturingMetrics#registerMBean()}
+ */
+public interface ManufacturingMetricsMBean {
+    long getUnitsCompleted();
+    long getUnitsSucceeded();
+    long getUnitsFailedStockShortage();
+    long getUnitsFailedSystemError();
+    long getUnitsFailedDamagedComponent();
+    double getUnitsPerSecond();
+    
+    long getStateTransitions();
+    long getStockWaitFailures();
+    double getMeanProcessMicros();
+    double getP99ProcessMicros();
+    
+    long getInventoryReserveCount();
+    long getInventoryReserveFailures();
+    double getP99InventoryReserveMicros();
+    
+    double getComponentsLoadMillis();
+    double getProductsLoadMillis();
+    
+    /**
+     * Returns the full text snapshot, including the per-state histograms
+     */
+    String getSnapshot();
+    
+    void reset();
+}
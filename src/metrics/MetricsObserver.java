@@ -0,0 +1,42 @@
+package metrics;
+
+import observer.ProcessObserver;
+import process.FailedState;
+import process.ManufacturingProcess;
+import process.ProcessState;
+import process.WaitingForStockState;
+
+/**
+ * Feeds state timings and outcomes of every process into {@link ManufacturingMetrics}.
+ *
+ * The timings are read from the process when the event arrives, so attach this
+ * observer to the processes directly rather than behind an {@link observer.AsyncEventBus}.
+ */
+public class MetricsObserver implements ProcessObserver {
+    private final ManufacturingMetrics metrics;
+    
+    public MetricsObserver(ManufacturingMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    @Override
+    public boolean needsTimings() {
+        return true;
+    }
+    
+    @Override
+    public void onStateChange(ManufacturingProcess process, ProcessState oldState, ProcessState newState) {
+        if (oldState == null) {
+            return;
+        }
+        metrics.recordStateDuration(oldState, process.getLastStateDurationNanos());
+        if (oldState instanceof WaitingForStockState && newState instanceof FailedState) {
+            metrics.recordStockWaitFailure();
+        }
+    }
+    
+    @Override
+    public void onProcessCompleted(ManufacturingProcess process) {
+        metrics.recordProcessCompleted(process.getFinalOutcome(), process.getElapsedNanos());
+    }
+}
@@ -0,0 +1,87 @@
+package metrics;
+
+/**
+ * Mean and variance of a stream of values in one pass (Welford's method), with
+ * a normal-approximation confidence interval for the mean.
+ *
+ * Statistics kept on separate threads are combined with {@link #add(RunningStatistics)}
+ * without revisiting the values, so parallel tasks can each keep their own.
+ * Not thread-safe.
+ */
+public class RunningStatistics {
+    /**
+     * The two-sided 95% quantile of the standard normal distribution
+     */
+    public static final double Z_95 = 1.959963984540054;
+    
+    private long count;
+    private double mean;
+    private double sumOfSquares;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        sumOfSquares += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+    
+    /**
+     * Adds every value the other statistics have seen
+     */
+    public void add(RunningStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            sumOfSquares = other.sumOfSquares;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        sumOfSquares += other.sumOfSquares + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public double getMean() {
+        return mean;
+    }
+    
+    /**
+     * Returns the sample standard deviation
+     */
+    public double getStandardDeviation() {
+        return count > 1 ? Math.sqrt(sumOfSquares / (count - 1)) : 0;
+    }
+    
+    public double getMin() {
+        return count > 0 ? min : 0;
+    }
+    
+    public double getMax() {
+        return count > 0 ? max : 0;
+    }
+    
+    /**
+     * Returns the half width of the confidence interval for the mean
+     *
+     * @param z The normal quantile of the confidence level, e.g. {@link #Z_95}
+     */
+    public double getConfidenceHalfWidth(double z) {
+        return count > 1 ? z * getStandardDeviation() / Math.sqrt(count) : 0;
+    }
+}
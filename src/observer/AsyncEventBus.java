@@ -0,0 +1,264 @@
+package observer;
+
+import process.ManufacturingProcess;
+import process.ProcessState;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Observer that decouples the manufacturing threads from slow observers.
+ *
+ * Events are copied into a preallocated ring buffer and handed to the
+ * delegate observers by a single background thread, which drains them in
+ * batches and flushes the delegates once per batch. When the buffer is full
+ * the {@link BackpressurePolicy} decides whether the producer waits or the
+ * event is dropped.
+ */
+public class AsyncEventBus implements ProcessObserver, AutoCloseable {
+    private static final byte STATE_CHANGE = 0;
+    private static final byte PROCESS_COMPLETED = 1;
+    
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int DEFAULT_SAMPLE_RATE = 16;
+    
+    private final BackpressurePolicy policy;
+    private final int sampleRate;
+    private final List<ProcessObserver> delegates;
+    
+    // Ring buffer slots, written by producers and cleared by the consumer
+    private final byte[] types;
+    private final ManufacturingProcess[] processes;
+    private final ProcessState[] oldStates;
+    private final ProcessState[] newStates;
+    private int head;
+    private int count;
+    
+    // Consumer-side copy of one batch, so delegates run outside the lock
+    private final byte[] batchTypes;
+    private final ManufacturingProcess[] batchProcesses;
+    private final ProcessState[] batchOldStates;
+    private final ProcessState[] batchNewStates;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private boolean dispatching;
+    private boolean closed;
+    
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private long eventsSeenWhileFull;
+    private final Thread dispatcher;
+    
+    public AsyncEventBus(BackpressurePolicy policy, ProcessObserver... delegates) {
+        this(policy, DEFAULT_CAPACITY, DEFAULT_SAMPLE_RATE, delegates);
+    }
+    
+    /**
+     * @param policy What to do with new events when the buffer is full
+     * @param capacity The number of events the buffer holds
+     * @param sampleRate For {@link BackpressurePolicy#SAMPLE}, keep one in this many events while full
+     * @param delegates The observers that receive the events on the dispatcher thread
+     */
+    public AsyncEventBus(BackpressurePolicy policy, int capacity, int sampleRate, ProcessObserver... delegates) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+        }
+        this.policy = policy;
+        this.sampleRate = sampleRate;
+        this.delegates = new CopyOnWriteArrayList<>(delegates);
+        
+        this.types = new byte[capacity];
+        this.processes = new ManufacturingProcess[capacity];
+        this.oldStates = new ProcessState[capacity];
+        this.newStates = new ProcessState[capacity];
+        this.batchTypes = new byte[capacity];
+        this.batchProcesses = new ManufacturingProcess[capacity];
+        this.batchOldStates = new ProcessState[capacity];
+        this.batchNewStates = new ProcessState[capacity];
+        
+        this.dispatcher = new Thread(this::dispatchLoop, "process-event-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+    
+    public void addDelegate(ProcessObserver observer) {
+        delegates.add(observer);
+    }
+    
+    @Override
+    public void onStateChange(ManufacturingProcess process, ProcessState oldState, ProcessState newState) {
+        publish(STATE_CHANGE, process, oldState, newState);
+    }
+    
+    @Override
+    public void onProcessCompleted(ManufacturingProcess process) {
+        publish(PROCESS_COMPLETED, process, null, null);
+    }
+    
+    /**
+     * Waits until every event published so far has been delivered and the delegates are flushed
+     */
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            while ((count > 0 || dispatching) && dispatcher.isAlive()) {
+                drained.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Delivers the remaining events and stops the dispatcher thread
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Returns the number of events dropped because the buffer was full
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+    
+    private void publish(byte type, ManufacturingProcess process, ProcessState oldState, ProcessState newState) {
+        lock.lock();
+        try {
+            if (closed) {
+                droppedEvents.incrementAndGet();
+                return;
+            }
+            if (count == types.length && !waitForSpace()) {
+                droppedEvents.incrementAndGet();
+                return;
+            }
+            
+            int slot = (head + count) % types.length;
+            types[slot] = type;
+            processes[slot] = process;
+            oldStates[slot] = oldState;
+            newStates[slot] = newState;
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Applies the backpressure policy to an event arriving at a full buffer
+     *
+     * @return true if there is now space for the event, false if it should be dropped
+     */
+    private boolean waitForSpace() {
+        switch (policy) {
+            case DROP:
+                return false;
+            case SAMPLE:
+                if (eventsSeenWhileFull++ % sampleRate != 0) {
+                    return false;
+                }
+                break;
+            case BLOCK:
+                break;
+        }
+        while (count == types.length && !closed) {
+            notFull.awaitUninterruptibly();
+        }
+        return !closed;
+    }
+    
+    private void dispatchLoop() {
+        while (true) {
+            int batchSize;
+            lock.lock();
+            try {
+                while (count == 0 && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (count == 0) {
+                    drained.signalAll();
+                    return;
+                }
+                
+                batchSize = count;
+                for (int i = 0; i < batchSize; i++) {
+                    int slot = (head + i) % types.length;
+                    batchTypes[i] = types[slot];
+                    batchProcesses[i] = processes[slot];
+                    batchOldStates[i] = oldStates[slot];
+                    batchNewStates[i] = newStates[slot];
+                    processes[slot] = null;
+                    oldStates[slot] = null;
+                    newStates[slot] = null;
+                }
+                head = (head + batchSize) % types.length;
+                count = 0;
+                eventsSeenWhileFull = 0;
+                dispatching = true;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            
+            deliver(batchSize);
+            
+            lock.lock();
+            try {
+                dispatching = false;
+                if (count == 0) {
+                    drained.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    private void deliver(int batchSize) {
+        for (int i = 0; i < batchSize; i++) {
+            for (ProcessObserver observer : delegates) {
+                try {
+                    if (batchTypes[i] == STATE_CHANGE) {
+                        observer.onStateChange(batchProcesses[i], batchOldStates[i], batchNewStates[i]);
+                    } else {
+                        observer.onProcessCompleted(batchProcesses[i]);
+                    }
+                } catch (RuntimeException e) {
+                    // A failing observer must not stop the other observers or the dispatcher
+                    System.err.println("Error in process observer: " + e.getMessage());
+                }
+            }
+            batchProcesses[i] = null;
+            batchOldStates[i] = null;
+            batchNewStates[i] = null;
+        }
+        for (ProcessObserver observer : delegates) {
+            observer.flush();
+        }
+    }
+}
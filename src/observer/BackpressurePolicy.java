@@ -0,0 +1,22 @@
+package observer;
+
+/**
+ * What an {@link AsyncEventBus} does with a new event when its buffer is full.
+ */
+public enum BackpressurePolicy {
+    /**
+     * The manufacturing thread waits until the observers have caught up
+     */
+    BLOCK,
+    
+    /**
+     * The event is dropped, so production never waits for the observers
+     */
+    DROP,
+    
+    /**
+     * One in every few events waits for space and the rest are dropped,
+     * keeping a thinned-out but continuous stream of events
+     */
+    SAMPLE
+}
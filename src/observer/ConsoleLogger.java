@@ -1,20 +1,38 @@
 package observer;
 
 import component.Component;
+import component.Product;
 import process.*;
 
-import java.util.Map;
+import java.util.Formatter;
 
+/**
+ * Logs process events to the console.
+ * Messages are formatted into a buffer and written with a single print, either
+ * after every event or, in batched mode, only when {@link #flush()} is called
+ * (the {@link AsyncEventBus} does that once per drained batch).
+ */
 public class ConsoleLogger implements ProcessObserver {
+    private final StringBuilder buffer = new StringBuilder();
+    private final Formatter formatter = new Formatter(buffer);
+    private final boolean batchedOutput;
+    
+    public ConsoleLogger() {
+        this(false);
+    }
+    
+    /**
+     * @param batchedOutput true to hold messages until {@link #flush()} is called
+     */
+    public ConsoleLogger(boolean batchedOutput) {
+        this.batchedOutput = batchedOutput;
+    }
+    
     @Override
-    public void onStateChange(ManufacturingProcess process, ProcessState oldState, ProcessState newState) {
+    public synchronized void onStateChange(ManufacturingProcess process, ProcessState oldState, ProcessState newState) {
         String productName = process.getProduct().getName();
-        String oldStateName = oldState != null ? oldState.getClass().getSimpleName() : "Initial";
-        String newStateName = newState.getClass().getSimpleName();
-        
-        // Remove "State" suffix for cleaner output
-        oldStateName = oldStateName.replace("State", "");
-        newStateName = newStateName.replace("State", "");
+        String oldStateName = oldState != null ? oldState.getName() : "Initial";
+        String newStateName = newState.getName();
         
         // For failed states, include the reason
         String additionalInfo = "";
@@ -29,33 +47,53 @@ public class ConsoleLogger implements ProcessObserver {
             }
         }
         
-        System.out.printf("Product '%s': State changed from %s to %s%s\n", 
+        formatter.format("Product '%s': State changed from %s to %s%s\n",
                 productName, oldStateName, newStateName, additionalInfo);
-        System.out.printf("  Context: %s\n", newState.getStateContext());
-                
+        formatter.format("  Context: %s\n", newState.getStateContext());
+        
         // If it's the first state transition, print product component details
         if (oldState == null) {
-            System.out.println("  Component details:");
-            Map<Component, Double> components = process.getProduct().getRequiredComponents();
-            for (Map.Entry<Component, Double> entry : components.entrySet()) {
-                Component component = entry.getKey();
-                Double quantity = entry.getValue();
-                System.out.printf("    - %s: %.2f (Cost: %.2f TL, Weight: %.2f kg)\n", 
+            buffer.append("  Component details:\n");
+            Product product = process.getProduct();
+            for (int i = 0; i < product.getComponentCount(); i++) {
+                Component component = product.getComponent(i);
+                double quantity = product.getComponentQuantity(i);
+                formatter.format("    - %s: %.2f (Cost: %.2f TL, Weight: %.2f kg)\n",
                         component.getName(), quantity, component.getCost(), component.getWeight());
             }
-            System.out.println();
+            buffer.append('\n');
+        }
+        
+        if (!batchedOutput) {
+            flush();
         }
     }
     
     @Override
-    public void onProcessCompleted(ManufacturingProcess process) {
+    public synchronized void onProcessCompleted(ManufacturingProcess process) {
         String productName = process.getProduct().getName();
         ManufacturingOutcome outcome = process.getFinalOutcome();
         
         // Check if outcome is null to avoid NullPointerException
         String outcomeStr = outcome != null ? outcome.toString() : "UNKNOWN";
         
-        System.out.printf("Process for '%s' completed with outcome: %s\n\n", 
+        formatter.format("Process for '%s' completed with outcome: %s\n\n",
                 productName, outcomeStr);
+        
+        if (!batchedOutput) {
+            flush();
+        }
+    }
+    
+    /**
+     * Writes the buffered messages to the console in one call
+     */
+    @Override
+    public synchronized void flush() {
+        if (buffer.length() > 0) {
+            System.out.print(buffer);
+            System.out.flush();
+            buffer.setLength(0);
+        }
     }
-} 
\ No newline at end of file
+}
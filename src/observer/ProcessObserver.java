@@ -6,4 +6,19 @@ import process.ProcessState;
 public interface ProcessObserver {
     void onStateChange(ManufacturingProcess process, ProcessState oldState, ProcessState newState);
     void onProcessCompleted(ManufacturingProcess process);
-} 
\ No newline at end of file
+    
+    /**
+     * Writes out anything the observer has buffered. Observers that act
+     * immediately do not need to override this.
+     */
+    default void flush() {
+    }
+    
+    /**
+     * Returns true if the observer reads the state timings of the processes it is
+     * notified about; processes only take timestamps while such an observer is attached
+     */
+    default boolean needsTimings() {
+        return false;
+    }
+}
@@ -0,0 +1,238 @@
+package process;
+
+import component.BillOfMaterials;
+import component.Component;
+import component.Product;
+import component.Reservation;
+import system.InventoryManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Manufactures all units of an order in one pass instead of running the state
+ * machine once per unit.
+ *
+ * The stock for every unit the inventory can cover is reserved in a single
+ * operation, the outcomes are drawn in bulk and the stock of units that did not
+ * succeed is returned. Running units one at a time, a unit only consumes stock
+ * when it succeeds and every unit after the stock runs out fails with a stock
+ * shortage, so the outcome counts follow the same distribution as the
+ * {@link WaitingForStockState} / {@link InManufacturingState} path.
+ *
+ * Products with sub-assemblies cannot be covered in one reservation, because a
+ * unit uses finished sub-assemblies in stock before building them from their
+ * components. Their units are checked and deducted one at a time through the
+ * same netting as the per-unit path, still without the state machine.
+ */
+public class BatchManufacturingProcess {
+    private final Product product;
+    private final int quantity;
+    private final InventoryManager inventoryManager;
+    private final OutcomeModel outcomeModel;
+    private final RandomGenerator random;
+    private final Map<ManufacturingOutcome, Integer> outcomeCounts;
+    private Component shortComponent;
+    private Reservation consumption;
+    private boolean completed;
+    
+    public BatchManufacturingProcess(Product product, int quantity, InventoryManager inventoryManager) {
+        this(product, quantity, inventoryManager, UniformOutcomeModel.INSTANCE, null);
+    }
+    
+    /**
+     * @param outcomeModel Decides the outcome of every unit
+     * @param random The source for the outcomes, or null to use the thread's {@link ThreadLocalRandom}
+     */
+    public BatchManufacturingProcess(Product product, int quantity, InventoryManager inventoryManager,
+                                     OutcomeModel outcomeModel, RandomGenerator random) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative: " + quantity);
+        }
+        this.product = product;
+        this.quantity = quantity;
+        this.inventoryManager = inventoryManager;
+        this.outcomeModel = outcomeModel;
+        this.random = random;
+        this.outcomeCounts = new EnumMap<>(ManufacturingOutcome.class);
+        for (ManufacturingOutcome outcome : ManufacturingOutcome.values()) {
+            outcomeCounts.put(outcome, 0);
+        }
+    }
+    
+    /**
+     * Runs the whole batch. Calling it again has no effect.
+     */
+    public void process() {
+        if (completed) {
+            return;
+        }
+        
+        RandomGenerator random = this.random != null ? this.random : ThreadLocalRandom.current();
+        BillOfMaterials bom = product.getBillOfMaterials();
+        if (bom.hasSubAssemblies()) {
+            processUnits(random);
+        } else {
+            processReserved(bom, random);
+        }
+        completed = true;
+    }
+    
+    /**
+     * Reserves the stock of every coverable unit at once and draws the outcomes
+     * until the reserved stock is used up
+     */
+    private void processReserved(BillOfMaterials bom, RandomGenerator random) {
+        int reserved = reserveCoverableUnits(bom);
+        
+        // Same outcome model as InManufacturingState, drawn until the reserved stock is used up
+        int successes = 0;
+        int systemErrors = 0;
+        int damagedComponents = 0;
+        int drawn = 0;
+        while (drawn < quantity && successes < reserved) {
+            switch (outcomeModel.draw(product, random)) {
+                case COMPLETED:
+                    successes++;
+                    break;
+                case FAILED_SYSTEM_ERROR:
+                    systemErrors++;
+                    break;
+                default:
+                    damagedComponents++;
+                    break;
+            }
+            drawn++;
+        }
+        if (drawn < quantity) {
+            // The reserved units are out of the stock, so the limiting leaf cannot cover one more
+            shortComponent = findShortComponent(bom, 1);
+        }
+        
+        // Give back the stock of reserved units that did not succeed
+        if (reserved > successes) {
+            inventoryManager.release(bom, reserved - successes);
+        }
+        if (successes > 0) {
+            product.addStock(inventoryManager, successes);
+            consumption = Reservation.of(bom, successes);
+        }
+        
+        outcomeCounts.put(ManufacturingOutcome.COMPLETED, successes);
+        outcomeCounts.put(ManufacturingOutcome.FAILED_SYSTEM_ERROR, systemErrors);
+        outcomeCounts.put(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT, damagedComponents);
+        outcomeCounts.put(ManufacturingOutcome.FAILED_STOCK_SHORTAGE, quantity - drawn);
+    }
+    
+    /**
+     * Takes the units one at a time like the state machine does: a unit the stock
+     * does not cover fails with a stock shortage, any other draws its outcome and
+     * takes its stock only when it succeeds
+     */
+    private void processUnits(RandomGenerator random) {
+        int successes = 0;
+        int systemErrors = 0;
+        int damagedComponents = 0;
+        int shortages = 0;
+        for (int unit = 0; unit < quantity; unit++) {
+            if (!product.checkStockAvailability(inventoryManager, 1)) {
+                shortages++;
+                recordShortComponent();
+                continue;
+            }
+            switch (outcomeModel.draw(product, random)) {
+                case COMPLETED:
+                    // Another process may have taken the stock since it was checked
+                    Reservation taken = product.reserveNetted(inventoryManager, 1);
+                    if (taken != null) {
+                        product.addStock(inventoryManager, 1);
+                        consumption = consumption == null ? taken : consumption.plus(taken);
+                        successes++;
+                    } else {
+                        shortages++;
+                        recordShortComponent();
+                    }
+                    break;
+                case FAILED_SYSTEM_ERROR:
+                    systemErrors++;
+                    break;
+                default:
+                    damagedComponents++;
+                    break;
+            }
+        }
+        
+        outcomeCounts.put(ManufacturingOutcome.COMPLETED, successes);
+        outcomeCounts.put(ManufacturingOutcome.FAILED_SYSTEM_ERROR, systemErrors);
+        outcomeCounts.put(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT, damagedComponents);
+        outcomeCounts.put(ManufacturingOutcome.FAILED_STOCK_SHORTAGE, shortages);
+    }
+    
+    private void recordShortComponent() {
+        if (shortComponent == null) {
+            shortComponent = product.findShortComponent(inventoryManager, 1);
+        }
+    }
+    
+    /**
+     * Reserves stock for as many units as the inventory covers, up to the batch size.
+     * Retries with a fresh count if another process took stock in the meantime.
+     */
+    private int reserveCoverableUnits(BillOfMaterials bom) {
+        while (true) {
+            int units = Math.min(quantity, inventoryManager.coverableUnits(bom));
+            if (units == 0 || inventoryManager.reserve(bom, units)) {
+                return units;
+            }
+        }
+    }
+    
+    /**
+     * Returns the first leaf whose stock does not cover the given units
+     */
+    private Component findShortComponent(BillOfMaterials bom, int units) {
+        for (int i = 0; i < bom.size(); i++) {
+            if (inventoryManager.getStockMilliUnits(bom.getComponent(i)) < bom.getMilliQuantity(i) * units) {
+                return bom.getComponent(i);
+            }
+        }
+        return null;
+    }
+    
+    public Product getProduct() {
+        return product;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    public InventoryManager getInventoryManager() {
+        return inventoryManager;
+    }
+    
+    public int getOutcomeCount(ManufacturingOutcome outcome) {
+        return outcomeCounts.get(outcome);
+    }
+    
+    /**
+     * Returns the component that limited the batch when some units failed with a
+     * stock shortage, or null
+     */
+    public Component getShortComponent() {
+        return shortComponent;
+    }
+    
+    /**
+     * Returns the stock the completed units took, or null if none completed
+     */
+    public Reservation getConsumption() {
+        return consumption;
+    }
+    
+    public boolean isCompleted() {
+        return completed;
+    }
+}
@@ -1,6 +1,10 @@
 package process;
 
 public class CompletedState implements ProcessState {
+    public static final CompletedState INSTANCE = new CompletedState();
+    
+    private CompletedState() {
+    }
     
     @Override
     public void handleProcess(ManufacturingProcess context) {
@@ -16,4 +20,9 @@ public class CompletedState implements ProcessState {
     public String getStateContext() {
         return "Product successfully manufactured and completed";
     }
+    
+    @Override
+    public String getName() {
+        return "Completed";
+    }
 } 
\ No newline at end of file
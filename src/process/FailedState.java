@@ -1,6 +1,10 @@
 package process;
 
 public class FailedState implements ProcessState {
+    public static final FailedState INSTANCE = new FailedState();
+    
+    private FailedState() {
+    }
     
     @Override
     public void handleProcess(ManufacturingProcess context) {
@@ -16,4 +20,9 @@ public class FailedState implements ProcessState {
     public String getStateContext() {
         return "Manufacturing process failed and cannot continue";
     }
+    
+    @Override
+    public String getName() {
+        return "Failed";
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,177 @@
+package process;
+
+import component.BillOfMaterials;
+import component.Product;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * Outcome model with configurable failure rates.
+ *
+ * A unit first fails with a system error at the product's system error rate.
+ * Otherwise it fails with a damaged component if the product itself is damaged
+ * (the base damage rate) or any of its components is: a component with damage
+ * rate r used q times per unit survives with probability (1 - r)^q.
+ * The system error rate and combined damage rate of a product are resolved once
+ * and cached by product ID, so a draw does not look the product up by name and
+ * the cache holds one entry per product; an entry is recomputed when the
+ * product's bill of materials changes. Rates should be set before a run starts.
+ */
+public class FailureRateOutcomeModel implements OutcomeModel {
+    private final double systemErrorRate;
+    private final double damageRate;
+    private final Map<String, Double> productSystemErrorRates = new ConcurrentHashMap<>();
+    private final Map<String, Double> componentDamageRates = new ConcurrentHashMap<>();
+    
+    // Indexed by product ID; an entry is stale once its product has a new bill of materials
+    private volatile ProductRates[] ratesCache = new ProductRates[0];
+    
+    /**
+     * Creates a model with the same distribution as {@link UniformOutcomeModel}:
+     * a system error for a third of the units and damage for half of the rest
+     */
+    public FailureRateOutcomeModel() {
+        this(1.0 / 3, 0.5);
+    }
+    
+    /**
+     * @param systemErrorRate Probability that a unit fails with a system error
+     * @param damageRate Probability that a unit fails with a damaged component, before per-component rates
+     */
+    public FailureRateOutcomeModel(double systemErrorRate, double damageRate) {
+        this.systemErrorRate = checkRate(systemErrorRate);
+        this.damageRate = checkRate(damageRate);
+    }
+    
+    /**
+     * Overrides the system error rate of the product with the given name
+     */
+    public FailureRateOutcomeModel setProductSystemErrorRate(String productName, double rate) {
+        productSystemErrorRates.put(productName, checkRate(rate));
+        clearCache();
+        return this;
+    }
+    
+    /**
+     * Sets the probability that one unit of the named component is damaged
+     */
+    public FailureRateOutcomeModel setComponentDamageRate(String componentName, double rate) {
+        componentDamageRates.put(componentName, checkRate(rate));
+        clearCache();
+        return this;
+    }
+    
+    private synchronized void clearCache() {
+        ratesCache = new ProductRates[0];
+    }
+    
+    /**
+     * Parses a per-product system error rate given as "product:rate"
+     */
+    public FailureRateOutcomeModel parseProductSystemErrorRate(String spec) {
+        int colon = rateSeparator(spec, "product");
+        return setProductSystemErrorRate(spec.substring(0, colon).trim(), parseRate(spec, colon, "product"));
+    }
+    
+    /**
+     * Parses a per-component damage rate given as "component:rate"
+     */
+    public FailureRateOutcomeModel parseComponentDamageRate(String spec) {
+        int colon = rateSeparator(spec, "component");
+        return setComponentDamageRate(spec.substring(0, colon).trim(), parseRate(spec, colon, "component"));
+    }
+    
+    @Override
+    public ManufacturingOutcome draw(Product product, RandomGenerator random) {
+        ProductRates rates = ratesOf(product);
+        double u = random.nextDouble();
+        if (u < rates.systemError) {
+            return ManufacturingOutcome.FAILED_SYSTEM_ERROR;
+        }
+        if (u < rates.systemError + (1 - rates.systemError) * rates.damage) {
+            return ManufacturingOutcome.FAILED_DAMAGED_COMPONENT;
+        }
+        return ManufacturingOutcome.COMPLETED;
+    }
+    
+    private ProductRates ratesOf(Product product) {
+        BillOfMaterials bom = product.getBillOfMaterials();
+        int id = product.getId();
+        ProductRates[] cache = ratesCache;
+        if (id >= 0 && id < cache.length) {
+            ProductRates cached = cache[id];
+            if (cached != null && cached.bom == bom) {
+                return cached;
+            }
+        }
+        
+        double systemError = productSystemErrorRates.getOrDefault(product.getName(), systemErrorRate);
+        
+        double survival = 1 - damageRate;
+        for (int i = 0; i < bom.size(); i++) {
+            Double rate = componentDamageRates.get(bom.getComponent(i).getName());
+            if (rate != null) {
+                survival *= Math.pow(1 - rate, bom.getQuantity(i));
+            }
+        }
+        ProductRates rates = new ProductRates(bom, systemError, 1 - survival);
+        if (id >= 0) {
+            cache(id, rates);
+        }
+        return rates;
+    }
+    
+    /**
+     * Stores an entry, growing the cache to the product ID. Readers that miss the
+     * entry only compute the rate again.
+     */
+    private synchronized void cache(int id, ProductRates entry) {
+        ProductRates[] cache = ratesCache;
+        if (id >= cache.length) {
+            cache = Arrays.copyOf(cache, Math.max(id + 1, cache.length * 2));
+        }
+        cache[id] = entry;
+        ratesCache = cache;
+    }
+    
+    private static int rateSeparator(String spec, String name) {
+        int colon = spec.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Expected '" + name + ":rate': " + spec);
+        }
+        return colon;
+    }
+    
+    private static double parseRate(String spec, int colon, String name) {
+        try {
+            return Double.parseDouble(spec.substring(colon + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected '" + name + ":rate': " + spec, e);
+        }
+    }
+    
+    private static double checkRate(double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Rate must be between 0 and 1: " + rate);
+        }
+        return rate;
+    }
+    
+    /**
+     * The rates of a product for the bill of materials they were computed from
+     */
+    private static final class ProductRates {
+        final BillOfMaterials bom;
+        final double systemError;
+        final double damage;
+        
+        ProductRates(BillOfMaterials bom, double systemError, double damage) {
+            this.bom = bom;
+            this.systemError = systemError;
+            this.damage = damage;
+        }
+    }
+}
@@ -1,43 +1,54 @@
 package process;
 
-import java.util.Random;
 import component.Product;
+import component.Reservation;
 import system.InventoryManager;
 
 public class InManufacturingState implements ProcessState {
-    private final Random random = new Random();
+    public static final InManufacturingState INSTANCE = new InManufacturingState();
+    
+    private InManufacturingState() {
+    }
     
     @Override
     public void handleProcess(ManufacturingProcess context) {
-        // Generate a random number between 1 and 3 to determine the outcome
-        int outcome = random.nextInt(3) + 1;
+        // The process's outcome model decides how manufacturing turns out
+        ManufacturingOutcome outcome = context.drawOutcome();
         
         Product product = context.getProduct();
         InventoryManager inventory = context.getInventoryManager();
         
         switch (outcome) {
-            case 1: // Successful manufacturing
-                // Deduct stock for all components only when manufacturing is successful
-                product.deductStock(inventory, 1);
+            case COMPLETED: // Successful manufacturing
+                // Deduct stock for all components only when manufacturing is successful.
+                // Another process may have taken the stock since it was checked.
+                Reservation consumption = product.reserveNetted(inventory, 1);
+                if (consumption == null) {
+                    context.recordStockShortage(product.findShortComponent(inventory, 1));
+                    context.setState(FailedState.INSTANCE);
+                    break;
+                }
+                context.recordConsumption(consumption);
                 
                 // Add the manufactured product to inventory
                 product.addStock(inventory, 1);
                 
                 // Transition to Completed state
-                context.setState(new CompletedState());
                 context.recordResult(ManufacturingOutcome.COMPLETED);
+                context.setState(CompletedState.INSTANCE);
                 break;
-                
-            case 2: // System error
+            
+            case FAILED_SYSTEM_ERROR: // System error
                 // Transition to Failed state
-                context.setState(new FailedState());
                 context.recordResult(ManufacturingOutcome.FAILED_SYSTEM_ERROR);
+                context.setState(FailedState.INSTANCE);
                 break;
-                
-            case 3: // Damaged component
+            
+            case FAILED_DAMAGED_COMPONENT: // Damaged component
+            default:
                 // Transition to Failed state
-                context.setState(new FailedState());
-                context.recordResult(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT);
+                context.recordResult(outcome);
+                context.setState(FailedState.INSTANCE);
                 break;
         }
     }
@@ -51,4 +62,9 @@ public class InManufacturingState implements ProcessState {
     public String getStateContext() {
         return "Currently manufacturing the product, deducting components from inventory if successful";
     }
+    
+    @Override
+    public String getName() {
+        return "InManufacturing";
+    }
 }
\ No newline at end of file
@@ -1,38 +1,119 @@
 package process;
 
+import component.Component;
 import component.Product;
+import component.Reservation;
 import observer.ProcessObserver;
 import system.InventoryManager;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class ManufacturingProcess {
     private final Product product;
     private final InventoryManager inventoryManager;
     private ProcessState currentState;
     private ManufacturingOutcome finalOutcome;
-    private final List<ProcessObserver> observers;
+    private Component shortComponent;
+    private Reservation consumption;
+    
+    // Null until an observer is added; may be a list shared with the creator, see observersShared
+    private List<ProcessObserver> observers;
+    private boolean observersShared;
+    
+    private final OutcomeModel outcomeModel;
+    private final RandomGenerator random;
+    
+    // System.nanoTime() at creation and when the current state was entered, taken
+    // only while an observer needs timings; see ProcessObserver.needsTimings()
+    private boolean timed;
+    private long createdNanos;
+    private long stateEnteredNanos;
+    private long lastStateDurationNanos;
     
     public ManufacturingProcess(Product product, InventoryManager inventoryManager) {
+        this(product, inventoryManager, null);
+    }
+    
+    /**
+     * Creates a process that notifies the given observers. The list is shared, not
+     * copied, so a controller can hand the same thread-safe list to every process;
+     * it is copied only if observers are added to or removed from this process.
+     */
+    public ManufacturingProcess(Product product, InventoryManager inventoryManager, List<ProcessObserver> observers) {
+        this(product, inventoryManager, observers, UniformOutcomeModel.INSTANCE, null);
+    }
+    
+    /**
+     * @param outcomeModel Decides the outcome of the manufacturing step
+     * @param random The source for the outcome, confined to the thread running the process;
+     *               null to use the thread's own {@link ThreadLocalRandom}
+     */
+    public ManufacturingProcess(Product product, InventoryManager inventoryManager, List<ProcessObserver> observers,
+                                OutcomeModel outcomeModel, RandomGenerator random) {
         this.product = product;
         this.inventoryManager = inventoryManager;
-        this.currentState = new WaitingForStockState();
-        this.observers = new ArrayList<>();
+        this.currentState = WaitingForStockState.INSTANCE;
+        this.observers = observers;
+        this.observersShared = observers != null;
+        this.outcomeModel = outcomeModel;
+        this.random = random;
+        if (needsTimings(observers)) {
+            startTimings();
+        }
         
         // No longer notify observers at construction time
     }
     
     public void addObserver(ProcessObserver observer) {
-        observers.add(observer);
+        ownObservers().add(observer);
+        if (!timed && observer.needsTimings()) {
+            startTimings();
+        }
     }
     
     public void removeObserver(ProcessObserver observer) {
-        observers.remove(observer);
+        if (observers != null) {
+            ownObservers().remove(observer);
+            timed = needsTimings(observers);
+        }
+    }
+    
+    private static boolean needsTimings(List<ProcessObserver> observers) {
+        if (observers == null) {
+            return false;
+        }
+        for (ProcessObserver observer : observers) {
+            if (observer.needsTimings()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Starts timing from now; an observer added later sees the time since it was added
+     */
+    private void startTimings() {
+        timed = true;
+        createdNanos = System.nanoTime();
+        stateEnteredNanos = createdNanos;
+    }
+    
+    private List<ProcessObserver> ownObservers() {
+        if (observers == null) {
+            observers = new ArrayList<>();
+        } else if (observersShared) {
+            observers = new ArrayList<>(observers);
+        }
+        observersShared = false;
+        return observers;
     }
     
     private void notifyStateChange(ProcessState oldState, ProcessState newState) {
-        if (observers.isEmpty()) {
+        if (observers == null || observers.isEmpty()) {
             return; // Skip notification if no observers are attached
         }
         
@@ -42,7 +123,7 @@ public class ManufacturingProcess {
     }
     
     private void notifyProcessCompleted() {
-        if (observers.isEmpty()) {
+        if (observers == null || observers.isEmpty()) {
             return; // Skip notification if no observers are attached
         }
         
@@ -54,6 +135,13 @@ public class ManufacturingProcess {
     public void setState(ProcessState newState) {
         ProcessState oldState = this.currentState;
         this.currentState = newState;
+        
+        if (timed) {
+            long now = System.nanoTime();
+            lastStateDurationNanos = now - stateEnteredNanos;
+            stateEnteredNanos = now;
+        }
+        
         notifyStateChange(oldState, newState);
         
         if (newState.isTerminal()) {
@@ -83,10 +171,67 @@ public class ManufacturingProcess {
         return currentState;
     }
     
+    /**
+     * Returns how long the process spent in the state it left at the last transition,
+     * or 0 unless an observer that needs timings is attached
+     */
+    public long getLastStateDurationNanos() {
+        return lastStateDurationNanos;
+    }
+    
+    /**
+     * Returns the time since the process was created, or until it finished if it is
+     * completed; 0 unless an observer that needs timings is attached
+     */
+    public long getElapsedNanos() {
+        if (!timed) {
+            return 0;
+        }
+        return (isCompleted() ? stateEnteredNanos : System.nanoTime()) - createdNanos;
+    }
+    
+    /**
+     * Draws the outcome of manufacturing this unit from the process's outcome model
+     */
+    public ManufacturingOutcome drawOutcome() {
+        return outcomeModel.draw(product, random != null ? random : ThreadLocalRandom.current());
+    }
+    
     public void recordResult(ManufacturingOutcome outcome) {
         this.finalOutcome = outcome;
     }
     
+    /**
+     * Records a stock shortage together with the component that was short
+     *
+     * @param shortComponent The component whose stock ran out, or null if unknown
+     */
+    public void recordStockShortage(Component shortComponent) {
+        this.shortComponent = shortComponent;
+        recordResult(ManufacturingOutcome.FAILED_STOCK_SHORTAGE);
+    }
+    
+    /**
+     * Returns the component that caused a stock shortage, or null
+     */
+    public Component getShortComponent() {
+        return shortComponent;
+    }
+    
+    /**
+     * Records the stock a completed unit took
+     */
+    public void recordConsumption(Reservation consumption) {
+        this.consumption = consumption;
+    }
+    
+    /**
+     * Returns the stock a completed unit took, or null
+     */
+    public Reservation getConsumption() {
+        return consumption;
+    }
+    
     public ManufacturingOutcome getFinalOutcome() {
         return finalOutcome;
     }
@@ -0,0 +1,23 @@
+package process;
+
+import component.Product;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Decides how the manufacturing of a single unit turns out.
+ *
+ * Implementations must be stateless or thread-safe, since one model is shared
+ * by all worker threads. All randomness comes from the generator passed in,
+ * so a run is reproducible when the caller seeds it and the model never
+ * contends on a shared random source.
+ */
+public interface OutcomeModel {
+    /**
+     * Draws the outcome of manufacturing one unit of the product.
+     * Stock shortages are decided by the inventory, so this returns
+     * {@link ManufacturingOutcome#COMPLETED}, {@link ManufacturingOutcome#FAILED_SYSTEM_ERROR}
+     * or {@link ManufacturingOutcome#FAILED_DAMAGED_COMPONENT}.
+     */
+    ManufacturingOutcome draw(Product product, RandomGenerator random);
+}
@@ -1,5 +1,10 @@
 package process;
 
+/**
+ * A step of the manufacturing state machine.
+ * States hold no per-process data, so each one is a shared singleton
+ * ({@code INSTANCE}) and a transition never allocates.
+ */
 public interface ProcessState {
     void handleProcess(ManufacturingProcess context);
     boolean isTerminal();
@@ -8,4 +13,9 @@ public interface ProcessState {
      * Returns a descriptive message for the current state
      */
     String getStateContext();
+    
+    /**
+     * Returns the short display name of the state, e.g. "InManufacturing"
+     */
+    String getName();
 } 
\ No newline at end of file
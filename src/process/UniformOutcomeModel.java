@@ -0,0 +1,27 @@
+package process;
+
+import component.Product;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The original model: success, system error and damaged component are equally likely.
+ */
+public class UniformOutcomeModel implements OutcomeModel {
+    public static final UniformOutcomeModel INSTANCE = new UniformOutcomeModel();
+    
+    private UniformOutcomeModel() {
+    }
+    
+    @Override
+    public ManufacturingOutcome draw(Product product, RandomGenerator random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return ManufacturingOutcome.COMPLETED;
+            case 1:
+                return ManufacturingOutcome.FAILED_SYSTEM_ERROR;
+            default:
+                return ManufacturingOutcome.FAILED_DAMAGED_COMPONENT;
+        }
+    }
+}
@@ -4,23 +4,29 @@ import component.Product;
 import system.InventoryManager;
 
 public class WaitingForStockState implements ProcessState {
+    public static final WaitingForStockState INSTANCE = new WaitingForStockState();
+    
+    private WaitingForStockState() {
+    }
     
     @Override
     public void handleProcess(ManufacturingProcess context) {
         Product product = context.getProduct();
         InventoryManager inventory = context.getInventoryManager();
         
-        // Check if we have sufficient stock
-        if (product.checkStockAvailability(inventory, 1)) {
+        // Check if we have sufficient stock, asking the other shards for it before giving up
+        if (product.checkStockAvailability(inventory, 1)
+                || inventory.requestTransfer(product.getBillOfMaterials(), 1)
+                && product.checkStockAvailability(inventory, 1)) {
             // Only check stock availability without deducting it here
             // Stock will be deducted only if manufacturing is successful
             
             // Transition to InManufacturing state
-            context.setState(new InManufacturingState());
+            context.setState(InManufacturingState.INSTANCE);
         } else {
             // Not enough stock, transition to Failed state
-            context.setState(new FailedState());
-            context.recordResult(ManufacturingOutcome.FAILED_STOCK_SHORTAGE);
+            context.recordStockShortage(product.findShortComponent(inventory, 1));
+            context.setState(FailedState.INSTANCE);
         }
     }
     
@@ -33,4 +39,9 @@ public class WaitingForStockState implements ProcessState {
     public String getStateContext() {
         return "Checking inventory for required components";
     }
+    
+    @Override
+    public String getName() {
+        return "WaitingForStock";
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,246 @@
+package system;
+
+import process.ManufacturingOutcome;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A run broken down by product and by component, as merged by {@link BreakdownReport}.
+ *
+ * Products are grouped by name, with the unit count of every outcome and the cost
+ * and weight of the completed units. Components are grouped by name as well, with
+ * the quantity the completed units consumed, counted in basic components as if
+ * every sub-assembly had been built from them, and the number of units that
+ * failed because that component ran short.
+ */
+public class Breakdown {
+    private static final ManufacturingOutcome[] OUTCOMES = ManufacturingOutcome.values();
+    
+    private final List<ProductRow> products;
+    private final List<ComponentRow> components;
+    
+    Breakdown(List<ProductRow> products, List<ComponentRow> components) {
+        this.products = Collections.unmodifiableList(products);
+        this.components = Collections.unmodifiableList(components);
+    }
+    
+    /**
+     * Returns the products sorted by name
+     */
+    public List<ProductRow> getProducts() {
+        return products;
+    }
+    
+    /**
+     * Returns the consumed or short components sorted by name
+     */
+    public List<ComponentRow> getComponents() {
+        return components;
+    }
+    
+    /**
+     * Writes the product rows as a semicolon-separated file with a header line
+     */
+    public void writeProductsCsv(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("Product;Completed;Stock Shortage;System Error;Damaged Component;Total Cost (TL);"
+                + "Total Weight (kg)\n");
+            for (ProductRow row : products) {
+                out.write(csvField(row.getName()) + ";" + row.getOutcomeCount(ManufacturingOutcome.COMPLETED)
+                    + ";" + row.getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE)
+                    + ";" + row.getOutcomeCount(ManufacturingOutcome.FAILED_SYSTEM_ERROR)
+                    + ";" + row.getOutcomeCount(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT)
+                    + ";" + decimal(row.getTotalCost()) + ";" + decimal(row.getTotalWeight()) + "\n");
+            }
+        }
+    }
+    
+    /**
+     * Writes the component rows as a semicolon-separated file with a header line
+     */
+    public void writeComponentsCsv(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("Component;Consumed Quantity;Consumed Cost (TL);Stock Shortage Failures\n");
+            for (ComponentRow row : components) {
+                out.write(csvField(row.getName()) + ";" + decimal(row.getConsumedQuantity())
+                    + ";" + decimal(row.getConsumedCost()) + ";" + row.getStockShortageCount() + "\n");
+            }
+        }
+    }
+    
+    /**
+     * Writes both breakdowns as one JSON object with a "products" and a "components" array
+     */
+    public void writeJson(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeJson(out);
+        }
+    }
+    
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"products\": [");
+        for (int i = 0; i < products.size(); i++) {
+            ProductRow row = products.get(i);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write("    {\"name\": " + jsonString(row.getName()) + ", \"outcomes\": {");
+            for (int o = 0; o < OUTCOMES.length; o++) {
+                out.write((o == 0 ? "" : ", ") + "\"" + OUTCOMES[o] + "\": " + row.getOutcomeCount(OUTCOMES[o]));
+            }
+            out.write("}, \"totalCost\": " + decimal(row.getTotalCost())
+                + ", \"totalWeight\": " + decimal(row.getTotalWeight()) + "}");
+        }
+        out.write("\n  ],\n  \"components\": [");
+        for (int i = 0; i < components.size(); i++) {
+            ComponentRow row = components.get(i);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write("    {\"name\": " + jsonString(row.getName())
+                + ", \"consumedQuantity\": " + decimal(row.getConsumedQuantity())
+                + ", \"consumedCost\": " + decimal(row.getConsumedCost())
+                + ", \"stockShortageFailures\": " + row.getStockShortageCount() + "}");
+        }
+        out.write("\n  ]\n}\n");
+    }
+    
+    /**
+     * Formats a value with three decimals; String.format would dominate the export of a large breakdown
+     */
+    private static String decimal(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 1e15) {
+            return String.format(Locale.ROOT, "%.3f", value);
+        }
+        long thousandths = Math.round(Math.abs(value) * 1000);
+        long fraction = thousandths % 1000;
+        return (value < 0 && thousandths > 0 ? "-" : "") + thousandths / 1000 + "."
+            + (fraction < 100 ? (fraction < 10 ? "00" : "0") : "") + fraction;
+    }
+    
+    private static String csvField(String value) {
+        if (value.indexOf(';') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+    
+    /**
+     * The units of every product with one name
+     */
+    public static final class ProductRow {
+        private final String name;
+        private final long[] outcomeCounts = new long[OUTCOMES.length];
+        private double totalCost;
+        private double totalWeight;
+        
+        ProductRow(String name) {
+            this.name = name;
+        }
+        
+        void add(long[] counts, double unitCost, double unitWeight) {
+            for (int o = 0; o < counts.length; o++) {
+                outcomeCounts[o] += counts[o];
+            }
+            long completed = counts[ManufacturingOutcome.COMPLETED.ordinal()];
+            totalCost += unitCost * completed;
+            totalWeight += unitWeight * completed;
+        }
+        
+        ProductRow merge(ProductRow other) {
+            add(other.outcomeCounts, 0, 0);
+            totalCost += other.totalCost;
+            totalWeight += other.totalWeight;
+            return this;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public long getOutcomeCount(ManufacturingOutcome outcome) {
+            return outcomeCounts[outcome.ordinal()];
+        }
+        
+        /**
+         * Returns the cost of the completed units
+         */
+        public double getTotalCost() {
+            return totalCost;
+        }
+        
+        /**
+         * Returns the weight of the completed units
+         */
+        public double getTotalWeight() {
+            return totalWeight;
+        }
+    }
+    
+    /**
+     * The consumption and shortages of every component with one name
+     */
+    public static final class ComponentRow {
+        private final String name;
+        private long consumedMilliUnits;
+        private double consumedCost;
+        private long stockShortageCount;
+        
+        ComponentRow(String name) {
+            this.name = name;
+        }
+        
+        void addConsumed(long milliUnits, double unitCost) {
+            consumedMilliUnits += milliUnits;
+            consumedCost += unitCost * milliUnits / InventoryManager.MILLI_UNITS_PER_UNIT;
+        }
+        
+        void addStockShortages(long count) {
+            stockShortageCount += count;
+        }
+        
+        ComponentRow merge(ComponentRow other) {
+            consumedMilliUnits += other.consumedMilliUnits;
+            consumedCost += other.consumedCost;
+            stockShortageCount += other.stockShortageCount;
+            return this;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public double getConsumedQuantity() {
+            return (double) consumedMilliUnits / InventoryManager.MILLI_UNITS_PER_UNIT;
+        }
+        
+        public double getConsumedCost() {
+            return consumedCost;
+        }
+        
+        /**
+         * Returns the number of units that failed because this component ran short
+         */
+        public long getStockShortageCount() {
+            return stockShortageCount;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package system;
+
+import component.Component;
+import component.Product;
+import component.Reservation;
+import process.BatchManufacturingProcess;
+import process.ManufacturingOutcome;
+import process.ManufacturingProcess;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Aggregates finished units per product and outcome, and stock shortages per
+ * component that caused them, so a run can be broken down beyond the global
+ * totals of the {@link ReportGenerator}.
+ *
+ * Counts go into striped tables indexed by product and component ID: a recording
+ * thread takes the stripe it hashes to, or the next free one when that stripe is
+ * busy, so workers rarely wait on each other and nothing is kept per unit.
+ * {@link #getBreakdown()} merges the stripes and groups them by name in parallel.
+ * The component consumption is the stock the reservations of the completed units
+ * took, so a finished sub-assembly used from stock counts as itself and not as
+ * the components it would have been built from.
+ */
+public class BreakdownReport {
+    private static final ManufacturingOutcome[] OUTCOMES = ManufacturingOutcome.values();
+    
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    
+    public BreakdownReport() {
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+        this.stripes = new Stripe[count];
+        this.stripeMask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+    
+    /**
+     * Clears the counts. Units recorded while the reset runs may be counted in
+     * either run, so reset between runs only.
+     */
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Adds a finished process to the counts
+     */
+    public void record(ManufacturingProcess process) {
+        ManufacturingOutcome outcome = process.getFinalOutcome();
+        if (outcome == null) {
+            return;
+        }
+        Component shortComponent = outcome == ManufacturingOutcome.FAILED_STOCK_SHORTAGE
+            ? process.getShortComponent() : null;
+        Stripe stripe = acquireStripe();
+        try {
+            stripe.add(process.getProduct(), outcome, 1, shortComponent);
+            stripe.addConsumption(process.getConsumption());
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    /**
+     * Adds a finished batch, which holds the outcome counts of a whole order, to the counts
+     */
+    public void record(BatchManufacturingProcess batch) {
+        Stripe stripe = acquireStripe();
+        try {
+            for (ManufacturingOutcome outcome : OUTCOMES) {
+                int count = batch.getOutcomeCount(outcome);
+                if (count > 0) {
+                    stripe.add(batch.getProduct(), outcome, count,
+                        outcome == ManufacturingOutcome.FAILED_STOCK_SHORTAGE ? batch.getShortComponent() : null);
+                }
+            }
+            stripe.addConsumption(batch.getConsumption());
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    /**
+     * Merges the counts recorded since the last reset into a breakdown by product
+     * and component name. Units recorded while the merge runs may be left out.
+     */
+    public Breakdown getBreakdown() {
+        // Copy every stripe under its lock, then merge the copies without holding any
+        Stripe[] copies = new Stripe[stripes.length];
+        int productSpan = 0;
+        int componentSpan = 0;
+        for (int s = 0; s < stripes.length; s++) {
+            stripes[s].lock.lock();
+            try {
+                copies[s] = stripes[s].copy();
+            } finally {
+                stripes[s].lock.unlock();
+            }
+            productSpan = Math.max(productSpan, copies[s].productNames.length);
+            componentSpan = Math.max(componentSpan, copies[s].componentNames.length);
+        }
+        
+        // Group the products by name, each thread of the group-by summing a range of IDs over all stripes
+        Grouping grouping = IntStream.range(0, productSpan).parallel()
+            .collect(Grouping::new, (group, id) -> group.addProduct(copies, id), Grouping::merge);
+        for (int id = 0; id < componentSpan; id++) {
+            grouping.addComponent(copies, id);
+        }
+        
+        List<Breakdown.ProductRow> productRows = new ArrayList<>(grouping.productRows.values());
+        List<Breakdown.ComponentRow> componentRows = new ArrayList<>(grouping.componentRows.values());
+        productRows.sort((a, b) -> a.getName().compareTo(b.getName()));
+        componentRows.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return new Breakdown(productRows, componentRows);
+    }
+    
+    /**
+     * Locks the calling thread's stripe, or the first free one after it
+     */
+    private Stripe acquireStripe() {
+        int home = mix(System.identityHashCode(Thread.currentThread()));
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[(home + i) & stripeMask];
+            if (stripe.lock.tryLock()) {
+                return stripe;
+            }
+        }
+        Stripe stripe = stripes[home & stripeMask];
+        stripe.lock.lock();
+        return stripe;
+    }
+    
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+    
+    /**
+     * One partial table of counts, grown on demand to the highest ID recorded.
+     * Only names and unit costs are kept, never the products themselves, so the
+     * report does not hold on to the bills of materials of a streamed order book.
+     */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        
+        // Indexed by product ID
+        String[] productNames = new String[0];
+        double[] productCosts = new double[0];
+        double[] productWeights = new double[0];
+        // Indexed by product ID * outcome count + outcome ordinal
+        long[] outcomeCounts = new long[0];
+        
+        // Indexed by component ID
+        String[] componentNames = new String[0];
+        double[] componentCosts = new double[0];
+        long[] consumedMilliUnits = new long[0];
+        long[] shortages = new long[0];
+        
+        void add(Product product, ManufacturingOutcome outcome, long count, Component shortComponent) {
+            int id = product.getId();
+            if (id >= productNames.length) {
+                int length = Math.max(id + 1, productNames.length * 2);
+                productNames = Arrays.copyOf(productNames, length);
+                productCosts = Arrays.copyOf(productCosts, length);
+                productWeights = Arrays.copyOf(productWeights, length);
+                outcomeCounts = Arrays.copyOf(outcomeCounts, length * OUTCOMES.length);
+            }
+            if (productNames[id] == null) {
+                productNames[id] = product.getName();
+                productCosts[id] = product.getCost();
+                productWeights[id] = product.getWeight();
+            }
+            outcomeCounts[id * OUTCOMES.length + outcome.ordinal()] += count;
+            
+            if (shortComponent != null) {
+                int componentId = register(shortComponent);
+                shortages[componentId] += count;
+            }
+        }
+        
+        /**
+         * Adds the stock completed units took, if any
+         */
+        void addConsumption(Reservation consumption) {
+            if (consumption == null) {
+                return;
+            }
+            for (int i = 0; i < consumption.size(); i++) {
+                int id = register(consumption.getComponent(i));
+                consumedMilliUnits[id] += consumption.getMilliQuantity(i);
+            }
+        }
+        
+        private int register(Component component) {
+            int id = component.getId();
+            if (id >= componentNames.length) {
+                int length = Math.max(id + 1, componentNames.length * 2);
+                componentNames = Arrays.copyOf(componentNames, length);
+                componentCosts = Arrays.copyOf(componentCosts, length);
+                consumedMilliUnits = Arrays.copyOf(consumedMilliUnits, length);
+                shortages = Arrays.copyOf(shortages, length);
+            }
+            if (componentNames[id] == null) {
+                componentNames[id] = component.getName();
+                componentCosts[id] = component.getCost();
+            }
+            return id;
+        }
+        
+        void clear() {
+            productNames = new String[0];
+            productCosts = new double[0];
+            productWeights = new double[0];
+            outcomeCounts = new long[0];
+            componentNames = new String[0];
+            componentCosts = new double[0];
+            consumedMilliUnits = new long[0];
+            shortages = new long[0];
+        }
+        
+        Stripe copy() {
+            Stripe copy = new Stripe();
+            copy.productNames = productNames.clone();
+            copy.productCosts = productCosts.clone();
+            copy.productWeights = productWeights.clone();
+            copy.outcomeCounts = outcomeCounts.clone();
+            copy.componentNames = componentNames.clone();
+            copy.componentCosts = componentCosts.clone();
+            copy.consumedMilliUnits = consumedMilliUnits.clone();
+            copy.shortages = shortages.clone();
+            return copy;
+        }
+    }
+    
+    /**
+     * The rows one thread of the parallel group-by has built so far
+     */
+    private static final class Grouping {
+        final Map<String, Breakdown.ProductRow> productRows = new HashMap<>();
+        final Map<String, Breakdown.ComponentRow> componentRows = new HashMap<>();
+        
+        void addProduct(Stripe[] stripes, int id) {
+            for (Stripe stripe : stripes) {
+                if (id < stripe.productNames.length && stripe.productNames[id] != null) {
+                    productRows.computeIfAbsent(stripe.productNames[id], Breakdown.ProductRow::new).add(
+                        Arrays.copyOfRange(stripe.outcomeCounts, id * OUTCOMES.length, (id + 1) * OUTCOMES.length),
+                        stripe.productCosts[id], stripe.productWeights[id]);
+                }
+            }
+        }
+        
+        void addComponent(Stripe[] stripes, int id) {
+            for (Stripe stripe : stripes) {
+                if (id < stripe.componentNames.length && stripe.componentNames[id] != null) {
+                    Breakdown.ComponentRow row = componentRows.computeIfAbsent(stripe.componentNames[id],
+                        Breakdown.ComponentRow::new);
+                    row.addConsumed(stripe.consumedMilliUnits[id], stripe.componentCosts[id]);
+                    row.addStockShortages(stripe.shortages[id]);
+                }
+            }
+        }
+        
+        void merge(Grouping other) {
+            other.productRows.forEach((name, row) -> productRows.merge(name, row, Breakdown.ProductRow::merge));
+            other.componentRows.forEach((name, row) -> componentRows.merge(name, row, Breakdown.ComponentRow::merge));
+        }
+    }
+}
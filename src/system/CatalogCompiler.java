@@ -0,0 +1,358 @@
+package system;
+
+import component.Component;
+import component.Hardware;
+import component.Paint;
+import component.Product;
+import component.RawMaterial;
+import component.factory.ComponentFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Compiles components.csv and products.csv into a binary catalog that
+ * {@link DataLoader} loads without parsing any text.
+ *
+ * The CSV files are read and validated once by the regular loader; the catalog
+ * then holds every name once in a string table, the component types as codes and
+ * each order's bill of materials as packed arrays of catalog IDs and quantities.
+ * Catalog IDs are the IDs the CSV load assigns, so a compiled catalog fills the
+ * inventory exactly like its CSV files (which an {@link InventoryStore} relies on).
+ * That only holds with unique component names, so the compiler rejects duplicates,
+ * and the loader rejects a catalog whose counts or IDs do not fit it.
+ *
+ * Usage: CatalogCompiler <components.csv> <products.csv> <catalog file>
+ */
+public class CatalogCompiler {
+    private static final int MAGIC = 0x4D434154;
+    private static final int VERSION = 1;
+    
+    // Indexed by the type code stored for each basic component
+    private static final String[] COMPONENT_TYPES = {"Raw Material", "Hardware", "Paint"};
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: CatalogCompiler <components.csv> <products.csv> <catalog file>");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        compile(args[0], args[1], Paths.get(args[2]));
+        System.out.printf("Compiled %s in %.1f ms%n", args[2], (System.nanoTime() - start) / 1e6);
+    }
+    
+    /**
+     * Returns true if the catalog exists and is newer than both CSV files
+     */
+    public static boolean isUpToDate(Path catalog, String componentsCsvPath, String productsCsvPath)
+            throws IOException {
+        if (!Files.exists(catalog)) {
+            return false;
+        }
+        long compiled = Files.getLastModifiedTime(catalog).toMillis();
+        return compiled >= Files.getLastModifiedTime(Paths.get(componentsCsvPath)).toMillis()
+            && compiled >= Files.getLastModifiedTime(Paths.get(productsCsvPath)).toMillis();
+    }
+    
+    /**
+     * Parses the CSV files and writes them as a compiled catalog. The file is
+     * written next to the target and moved into place, so a reader never sees a
+     * half-written catalog.
+     */
+    public static void compile(String componentsCsvPath, String productsCsvPath, Path catalog) throws IOException {
+        DataLoader loader = new DataLoader();
+        InventoryManager initialStock = new InventoryManager();
+        List<ManufacturingOrder> orders = loader.loadDataAndInitialize(componentsCsvPath, productsCsvPath,
+            initialStock);
+        List<Component> components = new ArrayList<>(loader.getBasicComponents());
+        // The CSV load keeps the stock of a duplicate's first row under its own ID, which the catalog has no row for
+        if (components.size() != initialStock.getComponentCount()) {
+            throw new IOException("Duplicate component names in " + componentsCsvPath
+                + "; a compiled catalog needs every name once");
+        }
+        components.sort(Comparator.comparingInt(Component::getId));
+        
+        Map<String, Integer> nameIndex = new HashMap<>();
+        List<byte[]> names = new ArrayList<>();
+        
+        Path temporary = catalog.resolveSibling(catalog.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporary), 1 << 16))) {
+            int[] componentNames = new int[components.size()];
+            for (int i = 0; i < componentNames.length; i++) {
+                componentNames[i] = intern(components.get(i).getName(), nameIndex, names);
+            }
+            int[] productNames = new int[orders.size()];
+            int entryCount = 0;
+            for (int i = 0; i < productNames.length; i++) {
+                Product product = orders.get(i).getProduct();
+                productNames[i] = intern(product.getName(), nameIndex, names);
+                entryCount += product.getComponentCount();
+            }
+            
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(loader.getNextComponentId());
+            out.writeInt(names.size());
+            out.writeInt(components.size());
+            out.writeInt(orders.size());
+            out.writeInt(entryCount);
+            
+            // String table: end offsets, then the UTF-8 bytes of every name
+            int offset = 0;
+            for (byte[] name : names) {
+                offset += name.length;
+                out.writeInt(offset);
+            }
+            for (byte[] name : names) {
+                out.write(name);
+            }
+            
+            for (Component component : components) {
+                out.writeInt(component.getId());
+            }
+            for (int name : componentNames) {
+                out.writeInt(name);
+            }
+            for (Component component : components) {
+                out.writeByte(typeCode(component));
+            }
+            for (Component component : components) {
+                out.writeDouble(component.getCost());
+            }
+            for (Component component : components) {
+                out.writeDouble(component.getWeight());
+            }
+            for (Component component : components) {
+                out.writeInt(initialStock.getStockLevel(component));
+            }
+            
+            for (ManufacturingOrder order : orders) {
+                out.writeInt(order.getProduct().getId());
+            }
+            for (int name : productNames) {
+                out.writeInt(name);
+            }
+            for (ManufacturingOrder order : orders) {
+                out.writeInt(order.getQuantity());
+            }
+            int entryEnd = 0;
+            for (ManufacturingOrder order : orders) {
+                entryEnd += order.getProduct().getComponentCount();
+                out.writeInt(entryEnd);
+            }
+            for (ManufacturingOrder order : orders) {
+                Product product = order.getProduct();
+                for (int c = 0; c < product.getComponentCount(); c++) {
+                    out.writeInt(product.getComponentId(c));
+                }
+            }
+            for (ManufacturingOrder order : orders) {
+                Product product = order.getProduct();
+                for (int c = 0; c < product.getComponentCount(); c++) {
+                    out.writeDouble(product.getComponentQuantity(c));
+                }
+            }
+        }
+        Files.move(temporary, catalog, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Maps a compiled catalog and creates its components and products, with IDs
+     * starting at the given base. Basic components get their initial stock and are
+     * handed to the component consumer; every order goes to the order consumer.
+     *
+     * @return The number of IDs the catalog takes up
+     */
+    static int load(Path catalog, int baseId, InventoryManager inventory, Consumer<Component> componentConsumer,
+                    Consumer<ManufacturingOrder> orderConsumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(catalog, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < 7 * Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a compiled catalog: " + catalog);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported catalog version " + version + ": " + catalog);
+        }
+        try {
+            return load(buffer, baseId, inventory, componentConsumer, orderConsumer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated catalog: " + catalog, e);
+        } catch (IOException e) {
+            throw new IOException(e.getMessage() + ": " + catalog, e);
+        }
+    }
+    
+    private static int load(ByteBuffer buffer, int baseId, InventoryManager inventory,
+                            Consumer<Component> componentConsumer, Consumer<ManufacturingOrder> orderConsumer)
+            throws IOException {
+        int idSpan = buffer.getInt();
+        int nameCount = buffer.getInt();
+        int componentCount = buffer.getInt();
+        int orderCount = buffer.getInt();
+        int entryCount = buffer.getInt();
+        // Every ID belongs to a component or product stored in the catalog, which bounds the arrays sized by it
+        if (idSpan < 0 || idSpan > buffer.capacity()) {
+            throw corrupt("ID span " + idSpan);
+        }
+        
+        // Every name is decoded once, however many rows use it
+        int[] nameEnds = readInts(buffer, nameCount);
+        int nameBytesLength = nameCount > 0 ? nameEnds[nameCount - 1] : 0;
+        if (nameBytesLength > buffer.remaining()) {
+            throw corrupt("string table of " + nameBytesLength + " bytes");
+        }
+        String[] names = new String[nameCount];
+        byte[] nameBytes = new byte[nameBytesLength];
+        buffer.get(nameBytes);
+        for (int i = 0, start = 0; i < nameCount; i++) {
+            if (nameEnds[i] < start) {
+                throw corrupt("string table offset " + nameEnds[i]);
+            }
+            names[i] = new String(nameBytes, start, nameEnds[i] - start, StandardCharsets.UTF_8);
+            start = nameEnds[i];
+        }
+        
+        int[] componentIds = checkIndexes(readInts(buffer, componentCount), idSpan, "component ID");
+        int[] componentNames = checkIndexes(readInts(buffer, componentCount), nameCount, "name index");
+        byte[] types = new byte[componentCount];
+        buffer.get(types);
+        for (byte type : types) {
+            if (type < 0 || type >= COMPONENT_TYPES.length) {
+                throw corrupt("component type " + type);
+            }
+        }
+        double[] costs = readDoubles(buffer, componentCount);
+        double[] weights = readDoubles(buffer, componentCount);
+        int[] stock = readInts(buffer, componentCount);
+        
+        int[] productIds = checkIndexes(readInts(buffer, orderCount), idSpan, "product ID");
+        int[] productNames = checkIndexes(readInts(buffer, orderCount), nameCount, "name index");
+        int[] quantities = readInts(buffer, orderCount);
+        int[] entryEnds = readInts(buffer, orderCount);
+        for (int i = 0, entry = 0; i < orderCount; i++) {
+            if (entryEnds[i] < entry || entryEnds[i] > entryCount) {
+                throw corrupt("entry offset " + entryEnds[i]);
+            }
+            entry = entryEnds[i];
+        }
+        int[] entryIds = checkIndexes(readInts(buffer, entryCount), idSpan, "entry ID");
+        double[] entryQuantities = readDoubles(buffer, entryCount);
+        
+        // Products are only kept for lookup if later rows use them as sub-assemblies
+        Component[] byId = new Component[idSpan];
+        boolean[] referenced = new boolean[idSpan];
+        for (int id : entryIds) {
+            referenced[id] = true;
+        }
+        for (int i = 0; i < componentCount; i++) {
+            Component component = ComponentFactory.createComponent(baseId + componentIds[i],
+                names[componentNames[i]], costs[i], weights[i], COMPONENT_TYPES[types[i]]);
+            byId[componentIds[i]] = component;
+            inventory.setInitialStock(component, stock[i]);
+            componentConsumer.accept(component);
+        }
+        
+        Component[] rowComponents = new Component[0];
+        double[] rowQuantities = new double[0];
+        for (int i = 0, entry = 0; i < orderCount; i++) {
+            Product product = ComponentFactory.createProduct(baseId + productIds[i], names[productNames[i]]);
+            int count = entryEnds[i] - entry;
+            if (count > rowComponents.length) {
+                rowComponents = new Component[count];
+                rowQuantities = new double[count];
+            }
+            for (int c = 0; c < count; c++, entry++) {
+                rowComponents[c] = byId[entryIds[entry]];
+                if (rowComponents[c] == null) {
+                    throw corrupt("entry ID " + entryIds[entry] + " of " + names[productNames[i]]);
+                }
+                rowQuantities[c] = entryQuantities[entry];
+            }
+            product.addComponents(rowComponents, rowQuantities, count);
+            if (referenced[productIds[i]]) {
+                byId[productIds[i]] = product;
+            }
+            orderConsumer.accept(new ManufacturingOrder(product, quantities[i]));
+        }
+        return idSpan;
+    }
+    
+    private static int intern(String name, Map<String, Integer> nameIndex, List<byte[]> names) {
+        Integer index = nameIndex.get(name);
+        if (index == null) {
+            index = names.size();
+            nameIndex.put(name, index);
+            names.add(name.getBytes(StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+    
+    private static byte typeCode(Component component) {
+        if (component instanceof RawMaterial) {
+            return 0;
+        }
+        if (component instanceof Hardware) {
+            return 1;
+        }
+        if (component instanceof Paint) {
+            return 2;
+        }
+        throw new IllegalArgumentException("Not a basic component: " + component.getName());
+    }
+    
+    private static int[] readInts(ByteBuffer buffer, int count) throws IOException {
+        if (count < 0 || count > buffer.remaining() / Integer.BYTES) {
+            throw corrupt("count " + count);
+        }
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+    
+    private static double[] readDoubles(ByteBuffer buffer, int count) throws IOException {
+        if (count < 0 || count > buffer.remaining() / Double.BYTES) {
+            throw corrupt("count " + count);
+        }
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return values;
+    }
+    
+    /**
+     * Checks that every value indexes an array of the given length
+     */
+    private static int[] checkIndexes(int[] values, int length, String what) throws IOException {
+        for (int value : values) {
+            if (value < 0 || value >= length) {
+                throw corrupt(what + " " + value);
+            }
+        }
+        return values;
+    }
+    
+    private static IOException corrupt(String detail) {
+        return new IOException("Corrupt catalog: bad " + detail);
+    }
+}
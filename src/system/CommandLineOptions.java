@@ -0,0 +1,434 @@
+package system;
+
+import observer.BackpressurePolicy;
+import process.FailureRateOutcomeModel;
+import process.OutcomeModel;
+import process.UniformOutcomeModel;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The command line options of the application.
+ *
+ * {@link #parse(String...)} validates every option and throws an
+ * IllegalArgumentException naming the bad one; options are given as
+ * --name or --name=value and anything else is rejected.
+ * Options that the chosen run would ignore, like --metrics with --serve,
+ * are rejected as well.
+ */
+public class CommandLineOptions {
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: java Main [options]",
+        "  --mode=<sequential|parallel-ordered|parallel-throughput|batch|timed>",
+        "  --workers=<count>                  worker threads of the parallel modes",
+        "  --threads=<platform|virtual>",
+        "  --log[=<block|drop|sample>]        log every process through the async event bus",
+        "  --seed=<number>                    reproducible outcomes",
+        "  --schedule=<csv-order|greedy-by-value|shortest-bom-first|knapsack>",
+        "  --metrics[=<seconds>]              collect metrics (JMX and a final snapshot, plus a periodic dump)",
+        "  --store=<directory>                keep the inventory on disk between runs",
+        "  --live-report=<seconds>            print the running totals to stderr during the run",
+        "  --catalog=<file>                   load a compiled catalog, compiling it from the CSV files when they are newer",
+        "  --station=<state>:<milliseconds>:<machines>  a station of --mode=timed or --simulate, repeated per state",
+        "  --shards=<count>                   split the stock into shards the parallel workers draw on",
+        "  --breakdown=<directory>            export the per-product and per-component breakdown as CSV and JSON",
+        "  --serve[=<port>]                   keep the catalog loaded and take orders over HTTP",
+        "  --batch-window=<milliseconds>      how long the order service collects requests into one pass",
+        "  --simulate=<replications>          run the order book on a simulated clock in parallel replications",
+        "  --horizon=<minutes>                the simulated time of each replication",
+        "  --wip-limit=<units>                the units in the simulated plant at once",
+        "  --stock=<component>:<factor>       scale the simulated starting stock of a component, repeated per component",
+        "  --forecast=<replications>          forecast the yield of the order book from Monte Carlo replications",
+        "  --error-rate=<probability>         draw outcomes from failure rates, with this system error rate",
+        "  --damage-rate=<probability>        draw outcomes from failure rates, with this damage rate",
+        "  --product-error-rate=<product>:<probability>      system error rate of a product, repeated per product",
+        "  --component-damage-rate=<component>:<probability> damage rate of a component, repeated per component",
+        "  --help                             print this message");
+    
+    private ExecutionMode mode = ExecutionMode.SEQUENTIAL;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private WorkerThreadType threadType = WorkerThreadType.PLATFORM;
+    private BackpressurePolicy logPolicy;
+    private Long seed;
+    private SchedulingPolicy schedulingPolicy = SchedulingPolicy.CSV_ORDER;
+    private boolean collectMetrics;
+    private long metricsDumpSeconds;
+    private String storeDirectory;
+    private String catalogPath;
+    private long liveReportSeconds;
+    private String breakdownDirectory;
+    private int shardCount;
+    private final List<Station> stations = new ArrayList<>();
+    private Integer servePort;
+    private long batchWindowMillis = OrderService.DEFAULT_BATCH_WINDOW_MILLIS;
+    private int replications;
+    private int forecastReplications;
+    private final SimulationScenario scenario = new SimulationScenario("default");
+    private Double errorRate;
+    private Double damageRate;
+    private final List<String> productErrorRates = new ArrayList<>();
+    private final List<String> componentDamageRates = new ArrayList<>();
+    private OutcomeModel outcomeModel = UniformOutcomeModel.INSTANCE;
+    private boolean help;
+    private final Set<String> given = new HashSet<>();
+    
+    private CommandLineOptions() {
+    }
+    
+    /**
+     * Parses and validates the arguments
+     *
+     * @throws IllegalArgumentException If an option is unknown, lacks its value or has a bad one
+     */
+    public static CommandLineOptions parse(String... args) {
+        CommandLineOptions options = new CommandLineOptions();
+        for (String arg : args) {
+            if (!options.parseOption(arg)) {
+                throw new IllegalArgumentException("Unknown option '" + arg + "'");
+            }
+        }
+        options.validate();
+        return options;
+    }
+    
+    /**
+     * Applies one argument
+     *
+     * @return False if the argument is not an option of this class
+     * @throws IllegalArgumentException If the option lacks its value or has a bad one
+     */
+    private boolean parseOption(String arg) {
+        if (!arg.startsWith("--")) {
+            throw new IllegalArgumentException("Unexpected argument '" + arg + "'");
+        }
+        int equals = arg.indexOf('=');
+        String name = equals < 0 ? arg : arg.substring(0, equals);
+        String value = equals < 0 ? null : arg.substring(equals + 1).trim();
+        switch (name) {
+            case "--mode":
+                mode = enumValue(ExecutionMode.class, name, value);
+                break;
+            case "--workers":
+                workers = intValue(name, value, 1);
+                break;
+            case "--threads":
+                threadType = enumValue(WorkerThreadType.class, name, value);
+                break;
+            case "--log":
+                logPolicy = value == null
+                    ? BackpressurePolicy.BLOCK : enumValue(BackpressurePolicy.class, name, value);
+                break;
+            case "--schedule":
+                schedulingPolicy = enumValue(SchedulingPolicy.class, name, value);
+                break;
+            case "--seed":
+                seed = longValue(name, value, Long.MIN_VALUE);
+                break;
+            case "--metrics":
+                collectMetrics = true;
+                metricsDumpSeconds = value == null ? 0 : longValue(name, value, 0);
+                break;
+            case "--store":
+                storeDirectory = stringValue(name, value);
+                break;
+            case "--live-report":
+                liveReportSeconds = longValue(name, value, 0);
+                break;
+            case "--catalog":
+                catalogPath = stringValue(name, value);
+                break;
+            case "--station":
+                stations.add(specValue(name, stringValue(name, value), Station::parse));
+                break;
+            case "--shards":
+                shardCount = intValue(name, value, 0);
+                break;
+            case "--serve":
+                servePort = value == null ? 8080 : intValue(name, value, 0);
+                if (servePort > 65535) {
+                    throw new IllegalArgumentException(name + " expects a port up to 65535, got '" + value + "'");
+                }
+                break;
+            case "--batch-window":
+                batchWindowMillis = longValue(name, value, 0);
+                break;
+            case "--simulate":
+                replications = intValue(name, value, 1);
+                break;
+            case "--forecast":
+                forecastReplications = intValue(name, value, 1);
+                break;
+            case "--horizon":
+                scenario.setHorizon(longValue(name, value, 1), TimeUnit.MINUTES);
+                break;
+            case "--wip-limit":
+                scenario.setWipLimit(intValue(name, value, 1));
+                break;
+            case "--stock":
+                specValue(name, stringValue(name, value), spec -> {
+                    scenario.parseStockFactor(spec);
+                    return spec;
+                });
+                break;
+            case "--breakdown":
+                breakdownDirectory = stringValue(name, value);
+                break;
+            case "--error-rate":
+                errorRate = probabilityValue(name, value);
+                break;
+            case "--damage-rate":
+                damageRate = probabilityValue(name, value);
+                break;
+            case "--product-error-rate":
+                productErrorRates.add(stringValue(name, value));
+                break;
+            case "--component-damage-rate":
+                componentDamageRates.add(stringValue(name, value));
+                break;
+            case "--help":
+                help = true;
+                break;
+            default:
+                return false;
+        }
+        given.add(name);
+        return true;
+    }
+    
+    /**
+     * Checks the options that depend on each other, once every argument is applied
+     */
+    private void validate() {
+        // Refuse the options the chosen run would ignore
+        rejectCombination("--serve", "--mode", "--log", "--metrics", "--live-report",
+            "--breakdown", "--shards", "--station");
+        rejectCombination("--simulate", "--serve", "--mode", "--workers", "--threads", "--log", "--metrics",
+            "--live-report", "--breakdown", "--shards", "--store");
+        rejectCombination("--forecast", "--serve", "--simulate", "--mode", "--workers", "--threads", "--log",
+            "--metrics", "--live-report", "--breakdown", "--shards", "--store", "--station");
+        requireOption("--serve", "--batch-window");
+        requireOption("--simulate", "--horizon", "--wip-limit", "--stock");
+        Set<String> states = new HashSet<>();
+        for (Station station : stations) {
+            if (!states.add(station.getStateName())) {
+                throw new IllegalArgumentException("--station given twice for state " + station.getStateName());
+            }
+        }
+        scenario.setStations(stations);
+        if (errorRate != null || damageRate != null || !productErrorRates.isEmpty()
+                || !componentDamageRates.isEmpty()) {
+            // Unset base rates keep the distribution of the uniform model
+            FailureRateOutcomeModel failureRates = new FailureRateOutcomeModel(
+                errorRate != null ? errorRate : 1.0 / 3, damageRate != null ? damageRate : 0.5);
+            for (String spec : productErrorRates) {
+                specValue("--product-error-rate", spec, failureRates::parseProductSystemErrorRate);
+            }
+            for (String spec : componentDamageRates) {
+                specValue("--component-damage-rate", spec, failureRates::parseComponentDamageRate);
+            }
+            outcomeModel = failureRates;
+        }
+        scenario.setOutcomeModel(outcomeModel);
+    }
+    
+    public static void printUsage(PrintStream out) {
+        out.println(USAGE);
+    }
+    
+    private void rejectCombination(String option, String... others) {
+        if (!given.contains(option)) {
+            return;
+        }
+        for (String other : others) {
+            if (given.contains(other)) {
+                throw new IllegalArgumentException(option + " cannot be combined with " + other);
+            }
+        }
+    }
+    
+    private void requireOption(String option, String... dependents) {
+        for (String dependent : dependents) {
+            if (given.contains(dependent) && !given.contains(option)) {
+                throw new IllegalArgumentException(dependent + " only applies with " + option);
+            }
+        }
+    }
+    
+    private static String stringValue(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name + " expects a value");
+        }
+        return value;
+    }
+    
+    /**
+     * Turns "parallel-ordered" into {@code PARALLEL_ORDERED}
+     */
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name, String value) {
+        String constant = stringValue(name, value).toUpperCase().replace('-', '_');
+        for (E candidate : type.getEnumConstants()) {
+            if (candidate.name().equals(constant)) {
+                return candidate;
+            }
+        }
+        StringBuilder expected = new StringBuilder();
+        for (E candidate : type.getEnumConstants()) {
+            if (expected.length() > 0) {
+                expected.append('|');
+            }
+            expected.append(candidate.name().toLowerCase().replace('_', '-'));
+        }
+        throw new IllegalArgumentException(name + " expects one of " + expected + ", got '" + value + "'");
+    }
+    
+    private static int intValue(String name, String value, int min) {
+        long parsed = longValue(name, value, min);
+        if (parsed > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(name + " expects a number up to " + Integer.MAX_VALUE
+                + ", got '" + value + "'");
+        }
+        return (int) parsed;
+    }
+    
+    private static long longValue(String name, String value, long min) {
+        long parsed;
+        try {
+            parsed = Long.parseLong(stringValue(name, value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " expects a whole number, got '" + value + "'");
+        }
+        if (parsed < min) {
+            throw new IllegalArgumentException(name + " expects a number of at least " + min
+                + ", got '" + value + "'");
+        }
+        return parsed;
+    }
+    
+    private static double probabilityValue(String name, String value) {
+        double parsed;
+        try {
+            parsed = Double.parseDouble(stringValue(name, value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " expects a number, got '" + value + "'");
+        }
+        if (!(parsed >= 0 && parsed <= 1)) {
+            throw new IllegalArgumentException(name + " expects a probability between 0 and 1, got '" + value + "'");
+        }
+        return parsed;
+    }
+    
+    /**
+     * Parses a structured value, naming the option in the parser's error
+     */
+    private static <T> T specValue(String name, String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(name + ": " + e.getMessage(), e);
+        }
+    }
+    
+    public ExecutionMode getMode() {
+        return mode;
+    }
+    
+    public int getWorkers() {
+        return workers;
+    }
+    
+    public WorkerThreadType getThreadType() {
+        return threadType;
+    }
+    
+    /**
+     * Returns the backpressure policy of the log, or null without --log
+     */
+    public BackpressurePolicy getLogPolicy() {
+        return logPolicy;
+    }
+    
+    /**
+     * Returns the seed, or null without --seed
+     */
+    public Long getSeed() {
+        return seed;
+    }
+    
+    public SchedulingPolicy getSchedulingPolicy() {
+        return schedulingPolicy;
+    }
+    
+    public boolean isCollectMetrics() {
+        return collectMetrics;
+    }
+    
+    public long getMetricsDumpSeconds() {
+        return metricsDumpSeconds;
+    }
+    
+    public String getStoreDirectory() {
+        return storeDirectory;
+    }
+    
+    public String getCatalogPath() {
+        return catalogPath;
+    }
+    
+    public long getLiveReportSeconds() {
+        return liveReportSeconds;
+    }
+    
+    public String getBreakdownDirectory() {
+        return breakdownDirectory;
+    }
+    
+    public int getShardCount() {
+        return shardCount;
+    }
+    
+    public List<Station> getStations() {
+        return Collections.unmodifiableList(stations);
+    }
+    
+    /**
+     * Returns the port of the order service, or null without --serve
+     */
+    public Integer getServePort() {
+        return servePort;
+    }
+    
+    public long getBatchWindowMillis() {
+        return batchWindowMillis;
+    }
+    
+    public int getReplications() {
+        return replications;
+    }
+    
+    public int getForecastReplications() {
+        return forecastReplications;
+    }
+    
+    /**
+     * Returns the simulation scenario with the horizon, WIP limit, stock factors,
+     * stations and outcome model set
+     */
+    public SimulationScenario getScenario() {
+        return scenario;
+    }
+    
+    public OutcomeModel getOutcomeModel() {
+        return outcomeModel;
+    }
+    
+    public boolean isHelp() {
+        return help;
+    }
+}
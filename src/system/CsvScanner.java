@@ -0,0 +1,319 @@
+package system;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streaming reader for the semicolon separated CSV files.
+ *
+ * The file is memory-mapped in windows and each line is split in place by
+ * recording the start and end offset of every field, so reading a line creates
+ * no objects. Numbers are parsed straight from the mapped bytes, accepting both
+ * a comma and a dot as decimal separator; Strings are only created for fields
+ * the caller asks for as text.
+ */
+final class CsvScanner implements Closeable {
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    
+    // Exact powers of ten; dividing an exact mantissa by one of them is correctly rounded
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    
+    /**
+     * Returned by {@link #parseLeadingInt(int)} for a field that does not start with an integer
+     */
+    static final long INVALID_INT = Long.MIN_VALUE;
+    
+    private final FileChannel channel;
+    private final byte delimiter;
+    private final long fileSize;
+    
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+    private int lineNumber;
+    
+    // Field i spans [fieldStarts[i], fieldEnds[i]) in the current window
+    private int[] fieldStarts = new int[32];
+    private int[] fieldEnds = new int[32];
+    private int fieldCount;
+    
+    CsvScanner(Path path, char delimiter) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.delimiter = (byte) delimiter;
+        this.fileSize = channel.size();
+        mapWindow(0, WINDOW_SIZE);
+    }
+    
+    /**
+     * Advances to the next line and splits it into fields
+     *
+     * @return false once the end of the file is reached
+     */
+    boolean nextLine() throws IOException {
+        if (windowStart + position >= fileSize) {
+            return false;
+        }
+        
+        int end = findLineEnd();
+        if (end < 0) {
+            // The line runs past the window: remap starting at the line, growing the window if needed
+            long lineStart = windowStart + position;
+            long size = WINDOW_SIZE;
+            do {
+                mapWindow(lineStart, size);
+                size *= 2;
+                end = findLineEnd();
+            } while (end < 0 && windowStart + window.limit() < fileSize);
+            if (end < 0) {
+                end = window.limit();
+            }
+        }
+        
+        splitFields(position, end);
+        lineNumber++;
+        position = end + 1;
+        return true;
+    }
+    
+    /**
+     * Returns the 1-based number of the current line
+     */
+    int getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+     * Returns the number of fields, ignoring trailing empty fields like {@link String#split(String)}
+     */
+    int getFieldCount() {
+        return fieldCount;
+    }
+    
+    /**
+     * Returns the field as a trimmed String. This is the only method that allocates.
+     */
+    String getField(int index) {
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        byte[] bytes = new byte[end - start];
+        window.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    boolean isFieldBlank(int index) {
+        int start = trimStart(index);
+        return trimEnd(index, start) == start;
+    }
+    
+    /**
+     * Returns true if the field is a zero such as "0", "0,0" or "0.00", checked
+     * on the raw bytes so the mostly-zero cells of a wide file are skipped
+     * without being parsed
+     */
+    boolean isFieldZero(int index) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        // The common case: a bare "0" with no padding
+        if (end - start == 1) {
+            return window.get(start) == '0';
+        }
+        start = trimStart(index);
+        end = trimEnd(index, start);
+        boolean digit = false;
+        for (int i = start; i < end; i++) {
+            byte b = window.get(i);
+            if (b == '0') {
+                digit = true;
+            } else if (b != ',' && b != '.') {
+                return false;
+            }
+        }
+        return digit;
+    }
+    
+    /**
+     * Parses a decimal number with a comma or dot separator
+     *
+     * @return The value, or NaN if the field is not a number
+     */
+    double parseDecimal(int index) {
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        int i = start;
+        
+        boolean negative = false;
+        if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+            negative = window.get(i) == '-';
+            i++;
+        }
+        
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = window.get(i);
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    return parseDecimalSlowly(start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0 && ++fractionDigits >= POWERS_OF_TEN.length) {
+                    return parseDecimalSlowly(start, end);
+                }
+            } else if ((b == ',' || b == '.') && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b == 'e' || b == 'E') {
+                return parseDecimalSlowly(start, end);
+            } else {
+                return Double.NaN;
+            }
+        }
+        
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+    
+    /**
+     * Parses the integer at the start of the field, up to the first space
+     * (e.g. 1000 in "1000 pieces")
+     *
+     * @return The value, or {@link #INVALID_INT} if there is no valid int
+     */
+    long parseLeadingInt(int index) {
+        return parseInt(index, true);
+    }
+    
+    /**
+     * Parses a field that holds nothing but an integer
+     *
+     * @return The value, or {@link #INVALID_INT} if the field is not a valid int
+     */
+    long parseInt(int index) {
+        return parseInt(index, false);
+    }
+    
+    private long parseInt(int index, boolean stopAtSpace) {
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        int i = start;
+        
+        boolean negative = false;
+        if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+            negative = window.get(i) == '-';
+            i++;
+        }
+        
+        long value = 0;
+        int digits = 0;
+        for (; i < end; i++) {
+            byte b = window.get(i);
+            if (b == ' ' && stopAtSpace) {
+                break;
+            }
+            if (b < '0' || b > '9') {
+                return INVALID_INT;
+            }
+            value = value * 10 + (b - '0');
+            if (++digits > 10) {
+                return INVALID_INT;
+            }
+        }
+        
+        if (digits == 0) {
+            return INVALID_INT;
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? INVALID_INT : value;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    private void mapWindow(long start, long size) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size, fileSize - start));
+        position = 0;
+    }
+    
+    /**
+     * Returns the index of the next '\n' in the window, the end of the file
+     * if the window reaches it, or -1 if the line continues past the window
+     */
+    private int findLineEnd() {
+        int limit = window.limit();
+        for (int i = position; i < limit; i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return windowStart + limit >= fileSize ? limit : -1;
+    }
+    
+    private void splitFields(int start, int end) {
+        if (end > start && window.get(end - 1) == '\r') {
+            end--;
+        }
+        
+        fieldCount = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || window.get(i) == delimiter) {
+                if (fieldCount == fieldStarts.length) {
+                    fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                }
+                fieldStarts[fieldCount] = fieldStart;
+                fieldEnds[fieldCount] = i;
+                fieldCount++;
+                fieldStart = i + 1;
+            }
+        }
+        
+        while (fieldCount > 0 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+            fieldCount--;
+        }
+    }
+    
+    private int trimStart(int index) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && (window.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+    
+    private int trimEnd(int index, int start) {
+        int end = fieldEnds[index];
+        while (end > start && (window.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+    
+    private double parseDecimalSlowly(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        window.get(start, bytes);
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII).replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -2,190 +2,342 @@ package system;
 
 import component.*;
 import component.factory.ComponentFactory;
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import metrics.ManufacturingMetrics;
 import java.io.IOException;
-import java.text.ParseException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class DataLoader {
     private final Map<String, Component> basicComponentsMap = new HashMap<>();
     
+    // Dense inventory IDs: basic components first, then products, in file order.
+    // Every load starts over, so a component keeps its ID across the runs of one inventory.
+    private int nextComponentId = 0;
+    
+    private ManufacturingMetrics metrics;
+    
+    /**
+     * Attaches metrics that record how long the CSV files take to load
+     */
+    public void setMetrics(ManufacturingMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Returns the basic components of the last load, the last one of each name
+     */
+    Collection<Component> getBasicComponents() {
+        return basicComponentsMap.values();
+    }
+    
+    /**
+     * Returns the ID the next loaded component will get
+     */
+    int getNextComponentId() {
+        return nextComponentId;
+    }
+    
+    /**
+     * Forgets the previous load, so the next one hands out the same IDs again
+     */
+    private void startLoad() {
+        basicComponentsMap.clear();
+        nextComponentId = 0;
+    }
+    
     private void loadBasicComponents(String csvPath, InventoryManager inventory) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvPath))) {
+        startLoad();
+        try (CsvScanner scanner = new CsvScanner(Paths.get(csvPath), ';')) {
             // Skip header line
-            String line = reader.readLine();
-            int lineNumber = 1;
+            scanner.nextLine();
             
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                try {
-                    String[] parts = line.split(";");
-                    if (parts.length < 5) {
-                        throw new ParseException("Insufficient data columns", lineNumber);
-                    }
-                    
-                    String name = parts[0].trim();
-                    if (name.isEmpty()) {
-                        throw new ParseException("Empty component name", lineNumber);
-                    }
-                    
-                    double unitCost;
-                    try {
-                        unitCost = Double.parseDouble(parts[1].replace(",", "."));
-                    } catch (NumberFormatException e) {
-                        throw new ParseException("Invalid unit cost: " + parts[1], lineNumber);
-                    }
-                    
-                    double unitWeight;
-                    try {
-                        unitWeight = Double.parseDouble(parts[2].replace(",", "."));
-                    } catch (NumberFormatException e) {
-                        throw new ParseException("Invalid unit weight: " + parts[2], lineNumber);
-                    }
-                    
-                    String type = parts[3].trim();
-                    if (!type.equals("Raw Material") && !type.equals("Hardware") && !type.equals("Paint")) {
-                        throw new ParseException("Invalid component type: " + type, lineNumber);
-                    }
-                    
-                    String stockInfo = parts[4].trim();
-                    int stockQuantity;
-                    try {
-                        stockQuantity = Integer.parseInt(stockInfo.split(" ")[0]);
-                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
-                        throw new ParseException("Invalid stock quantity: " + stockInfo, lineNumber);
-                    }
-                    
-                    // Use factory to create component
-                    Component component = ComponentFactory.createComponent(name, unitCost, unitWeight, type);
-                    
-                    if (basicComponentsMap.containsKey(name)) {
-                        System.out.println("Warning: Duplicate component name '" + name + "' at line " + lineNumber);
-                    }
-                    
-                    basicComponentsMap.put(name, component);
-                    inventory.setInitialStock(component, stockQuantity);
-                    
-                } catch (ParseException e) {
-                    System.err.println("Error parsing components CSV at line " + e.getErrorOffset() + ": " + e.getMessage());
-                    // Continue with next line instead of failing completely
+            while (scanner.nextLine()) {
+                int lineNumber = scanner.getLineNumber();
+                if (scanner.getFieldCount() < 5) {
+                    reportComponentError(lineNumber, "Insufficient data columns");
+                    continue;
+                }
+                
+                if (scanner.isFieldBlank(0)) {
+                    reportComponentError(lineNumber, "Empty component name");
+                    continue;
+                }
+                
+                double unitCost = scanner.parseDecimal(1);
+                if (Double.isNaN(unitCost)) {
+                    reportComponentError(lineNumber, "Invalid unit cost: " + scanner.getField(1));
+                    continue;
+                }
+                
+                double unitWeight = scanner.parseDecimal(2);
+                if (Double.isNaN(unitWeight)) {
+                    reportComponentError(lineNumber, "Invalid unit weight: " + scanner.getField(2));
+                    continue;
+                }
+                
+                String type = scanner.getField(3);
+                if (!type.equals("Raw Material") && !type.equals("Hardware") && !type.equals("Paint")) {
+                    reportComponentError(lineNumber, "Invalid component type: " + type);
+                    continue;
                 }
+                
+                long stockQuantity = scanner.parseLeadingInt(4);
+                if (stockQuantity == CsvScanner.INVALID_INT) {
+                    reportComponentError(lineNumber, "Invalid stock quantity: " + scanner.getField(4));
+                    continue;
+                }
+                
+                // Use factory to create component
+                String name = scanner.getField(0);
+                Component component = ComponentFactory.createComponent(nextComponentId++, name, unitCost, unitWeight, type);
+                
+                if (basicComponentsMap.containsKey(name)) {
+                    System.out.println("Warning: Duplicate component name '" + name + "' at line " + lineNumber);
+                }
+                
+                basicComponentsMap.put(name, component);
+                inventory.setInitialStock(component, (int) stockQuantity);
             }
             
             if (basicComponentsMap.isEmpty()) {
                 throw new IOException("No valid components loaded from " + csvPath);
             }
-        } catch (FileNotFoundException e) {
+        } catch (NoSuchFileException e) {
             throw new IOException("Components CSV file not found: " + csvPath, e);
         }
     }
     
     private List<ManufacturingOrder> loadManufacturingOrders(String csvPath) throws IOException {
         List<ManufacturingOrder> orders = new ArrayList<>();
+        streamOrders(csvPath, orders::add);
+        return orders;
+    }
+    
+    private void loadComponents(String csvPath, InventoryManager inventory) throws IOException {
+        if (metrics == null) {
+            loadBasicComponents(csvPath, inventory);
+            return;
+        }
+        long start = System.nanoTime();
+        loadBasicComponents(csvPath, inventory);
+        metrics.recordComponentsLoad(System.nanoTime() - start, basicComponentsMap.size());
+    }
+    
+    /**
+     * Streams the orders, timing only the parsing and not the work the consumer does
+     */
+    private int streamOrders(String csvPath, Consumer<ManufacturingOrder> orderConsumer) throws IOException {
+        ManufacturingMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return streamManufacturingOrders(csvPath, orderConsumer);
+        }
+        long[] consumerNanos = new long[1];
+        long start = System.nanoTime();
+        int orderCount = streamManufacturingOrders(csvPath, order -> {
+            long consumerStart = System.nanoTime();
+            orderConsumer.accept(order);
+            consumerNanos[0] += System.nanoTime() - consumerStart;
+        });
+        metrics.recordProductsLoad(System.nanoTime() - start - consumerNanos[0], orderCount);
+        return orderCount;
+    }
+    
+    /**
+     * Parses the products file and hands every valid order to the consumer as soon
+     * as its line has been read
+     * 
+     * @return The number of orders handed to the consumer
+     */
+    private int streamManufacturingOrders(String csvPath, Consumer<ManufacturingOrder> orderConsumer) throws IOException {
+        int orderCount = 0;
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvPath))) {
+        try (CsvScanner scanner = new CsvScanner(Paths.get(csvPath), ';')) {
             // Read header to get component names
-            String header = reader.readLine();
-            if (header == null) {
+            if (!scanner.nextLine()) {
                 throw new IOException("Products CSV file is empty");
             }
             
-            String[] headerParts = header.split(";");
-            if (headerParts.length < 2) {
+            int headerSize = scanner.getFieldCount();
+            if (headerSize < 2) {
                 throw new IOException("Products CSV header is invalid");
             }
             
-            int lineNumber = 1;
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                try {
-                    String[] parts = line.split(";");
-                    if (parts.length < 2) {
-                        throw new ParseException("Insufficient data columns", lineNumber);
-                    }
-                    
-                    String productName = parts[0].trim();
-                    if (productName.isEmpty()) {
-                        throw new ParseException("Empty product name", lineNumber);
+            // Resolve every component column once instead of looking it up for each cell.
+            // Columns that name no basic component may name a product defined on an earlier row.
+            String[] columnNames = new String[headerSize];
+            Component[] columnComponents = new Component[headerSize];
+            Map<String, Integer> productColumns = new HashMap<>();
+            
+            // The non-zero cells of the current row; only these become part of the product
+            Component[] rowComponents = new Component[headerSize];
+            double[] rowQuantities = new double[headerSize];
+            for (int i = 1; i < headerSize; i++) {
+                columnNames[i] = scanner.getField(i);
+                columnComponents[i] = basicComponentsMap.get(columnNames[i]);
+                if (columnComponents[i] == null) {
+                    productColumns.putIfAbsent(columnNames[i], i);
+                }
+            }
+            
+            while (scanner.nextLine()) {
+                int lineNumber = scanner.getLineNumber();
+                int fieldCount = scanner.getFieldCount();
+                if (fieldCount < 2) {
+                    reportProductError(lineNumber, "Insufficient data columns");
+                    continue;
+                }
+                
+                if (scanner.isFieldBlank(0)) {
+                    reportProductError(lineNumber, "Empty product name");
+                    continue;
+                }
+                
+                // Last column is the quantity to manufacture
+                long parsedQuantity = scanner.parseInt(fieldCount - 1);
+                if (parsedQuantity == CsvScanner.INVALID_INT) {
+                    reportProductError(lineNumber, "Invalid quantity: " + scanner.getField(fieldCount - 1));
+                    continue;
+                }
+                int quantityToManufacture = (int) parsedQuantity;
+                if (quantityToManufacture <= 0) {
+                    reportProductError(lineNumber, "Quantity must be positive: " + scanner.getField(fieldCount - 1));
+                    continue;
+                }
+                
+                // Use factory to create product
+                String productName = scanner.getField(0);
+                Product product = ComponentFactory.createProduct(nextComponentId++, productName);
+                
+                // Collect the non-zero cells, skipping zeros without parsing them
+                int componentCount = 0;
+                int lastColumn = Math.min(fieldCount - 1, headerSize);
+                for (int i = 1; i < lastColumn; i++) {
+                    if (scanner.isFieldZero(i)) {
+                        continue;
                     }
                     
-                    // Use factory to create product
-                    Product product = ComponentFactory.createProduct(productName);
-                    
-                    // Last column is the quantity to manufacture
-                    String quantityStr = parts[parts.length - 1].trim();
-                    int quantityToManufacture;
-                    try {
-                        quantityToManufacture = Integer.parseInt(quantityStr);
-                        if (quantityToManufacture <= 0) {
-                            throw new ParseException("Quantity must be positive: " + quantityStr, lineNumber);
-                        }
-                    } catch (NumberFormatException e) {
-                        throw new ParseException("Invalid quantity: " + quantityStr, lineNumber);
+                    double quantity = scanner.parseDecimal(i);
+                    if (Double.isNaN(quantity)) {
+                        System.err.println("Warning: Invalid component quantity '" + scanner.getField(i) + 
+                                         "' for " + columnNames[i] + " in product " + productName);
+                        continue;
                     }
                     
-                    // Add components to the product
-                    for (int i = 1; i < parts.length - 1; i++) {
-                        if (i >= headerParts.length) {
-                            continue;
-                        }
-                        
-                        String componentName = headerParts[i].trim();
-                        String compQuantityStr = parts[i].replace(",", ".");
-                        
-                        double quantity;
-                        try {
-                            quantity = Double.parseDouble(compQuantityStr);
-                        } catch (NumberFormatException e) {
-                            System.err.println("Warning: Invalid component quantity '" + compQuantityStr + 
-                                             "' for " + componentName + " in product " + productName);
-                            continue;
-                        }
-                        
-                        if (quantity > 0) {
-                            Component component = basicComponentsMap.get(componentName);
-                            if (component != null) {
-                                product.addComponent(component, quantity);
-                            } else {
-                                System.err.println("Warning: Unknown component '" + componentName + 
-                                                 "' referenced in product " + productName);
-                            }
+                    if (quantity > 0) {
+                        Component component = columnComponents[i];
+                        if (component != null) {
+                            rowComponents[componentCount] = component;
+                            rowQuantities[componentCount++] = quantity;
+                        } else {
+                            System.err.println("Warning: Unknown component '" + columnNames[i] + 
+                                             "' referenced in product " + productName);
                         }
                     }
-                    
-                    // Only add product if it has components
-                    if (!product.getRequiredComponents().isEmpty()) {
-                        orders.add(new ManufacturingOrder(product, quantityToManufacture));
-                    } else {
-                        System.err.println("Warning: Product '" + productName + 
-                                         "' has no components and will be ignored");
+                }
+                
+                product.addComponents(rowComponents, rowQuantities, componentCount);
+                
+                // Only add product if it has components
+                if (product.getComponentCount() > 0) {
+                    // Later rows can use this product as a sub-assembly
+                    Integer column = productColumns.remove(productName);
+                    if (column != null) {
+                        columnComponents[column] = product;
                     }
-                    
-                } catch (ParseException e) {
-                    System.err.println("Error parsing products CSV at line " + e.getErrorOffset() + ": " + e.getMessage());
-                    // Continue with next line instead of failing completely
+                    orderConsumer.accept(new ManufacturingOrder(product, quantityToManufacture));
+                    orderCount++;
+                } else {
+                    System.err.println("Warning: Product '" + productName + 
+                                     "' has no components and will be ignored");
                 }
             }
             
-            if (orders.isEmpty()) {
+            if (orderCount == 0) {
                 throw new IOException("No valid products loaded from " + csvPath);
             }
-            
-        } catch (FileNotFoundException e) {
+        
+        } catch (NoSuchFileException e) {
             throw new IOException("Products CSV file not found: " + csvPath, e);
         }
         
-        return orders;
+        return orderCount;
+    }
+    
+    // Bad rows are reported and skipped, without building an exception per row
+    private static void reportComponentError(int lineNumber, String message) {
+        System.err.println("Error parsing components CSV at line " + lineNumber + ": " + message);
+    }
+    
+    private static void reportProductError(int lineNumber, String message) {
+        System.err.println("Error parsing products CSV at line " + lineNumber + ": " + message);
     }
     
     public List<ManufacturingOrder> loadDataAndInitialize(String componentsCsvPath, String productsCsvPath, InventoryManager inventoryManager) throws IOException {
-        loadBasicComponents(componentsCsvPath, inventoryManager);
+        loadComponents(componentsCsvPath, inventoryManager);
         return loadManufacturingOrders(productsCsvPath);
     }
+    
+    /**
+     * Loads the components into the inventory, then streams the manufacturing orders
+     * to the consumer one by one instead of building the whole list first
+     * 
+     * @return The number of orders handed to the consumer
+     */
+    public int loadDataAndStreamOrders(String componentsCsvPath, String productsCsvPath, InventoryManager inventoryManager,
+                                       Consumer<ManufacturingOrder> orderConsumer) throws IOException {
+        loadComponents(componentsCsvPath, inventoryManager);
+        return streamOrders(productsCsvPath, orderConsumer);
+    }
+    
+    public List<ManufacturingOrder> loadCatalogAndInitialize(String catalogPath, InventoryManager inventoryManager)
+            throws IOException {
+        List<ManufacturingOrder> orders = new ArrayList<>();
+        loadCatalogAndStreamOrders(catalogPath, inventoryManager, orders::add);
+        return orders;
+    }
+    
+    /**
+     * Loads a catalog compiled by {@link CatalogCompiler} instead of the CSV files:
+     * the components go into the inventory, then the orders are streamed to the consumer
+     * 
+     * @return The number of orders handed to the consumer
+     */
+    public int loadCatalogAndStreamOrders(String catalogPath, InventoryManager inventoryManager,
+                                          Consumer<ManufacturingOrder> orderConsumer) throws IOException {
+        ManufacturingMetrics metrics = this.metrics;
+        long start = System.nanoTime();
+        // Timed like the CSV load: components until the first order, orders without the consumer's work
+        long[] componentsEnd = new long[1];
+        long[] consumerNanos = new long[1];
+        int[] orderCount = new int[1];
+        startLoad();
+        try {
+            nextComponentId += CatalogCompiler.load(Paths.get(catalogPath), nextComponentId, inventoryManager,
+                component -> basicComponentsMap.put(component.getName(), component),
+                order -> {
+                    long consumerStart = System.nanoTime();
+                    if (orderCount[0]++ == 0) {
+                        componentsEnd[0] = consumerStart;
+                    }
+                    orderConsumer.accept(order);
+                    consumerNanos[0] += System.nanoTime() - consumerStart;
+                });
+        } catch (NoSuchFileException e) {
+            throw new IOException("Compiled catalog not found: " + catalogPath, e);
+        }
+        
+        if (metrics != null) {
+            long end = System.nanoTime();
+            long componentsNanos = (orderCount[0] > 0 ? componentsEnd[0] : end) - start;
+            metrics.recordComponentsLoad(componentsNanos, basicComponentsMap.size());
+            metrics.recordProductsLoad(end - start - componentsNanos - consumerNanos[0], orderCount[0]);
+        }
+        return orderCount[0];
+    }
 } 
\ No newline at end of file
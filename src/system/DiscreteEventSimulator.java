@@ -0,0 +1,361 @@
+package system;
+
+import component.Component;
+import component.Product;
+import process.ManufacturingOutcome;
+import process.ManufacturingProcess;
+import process.ProcessState;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs an order book through the manufacturing states on a simulated clock, to
+ * ask how a plant would do with other stations or other stock without waiting
+ * for a real run.
+ *
+ * Units are real {@link ManufacturingProcess}es taking the steps of their
+ * {@link ProcessState}s against a private copy of the stock, reserving it as a
+ * real run does, so finished sub-assemblies in stock are used before the parts
+ * they are built from. A state with a {@link Station} holds the unit on one of
+ * the station's machines for the service time, queueing it first when all
+ * machines are busy; the end of each service is an event on a primitive-heap
+ * {@link EventCalendar}. States without a station take no simulated time. Units enter in order-book order whenever
+ * fewer than the scenario's WIP limit are in the plant, and a replication ends
+ * at the horizon or when the order book is done.
+ *
+ * Replications run in parallel as fork/join tasks. Each one gets its own stock,
+ * calendar and random stream, the streams split from the seed up front, so the
+ * result depends only on the seed and not on how the tasks were scheduled.
+ */
+public class DiscreteEventSimulator {
+    private final List<ManufacturingOrder> orders;
+    private final long[] stockLevels;
+    private final Map<String, Component> componentsByName = new HashMap<>();
+    
+    /**
+     * @param orders The order book, in the order units are released
+     * @param inventory The stock every replication starts from; it is copied, never changed
+     */
+    public DiscreteEventSimulator(List<ManufacturingOrder> orders, InventoryManager inventory) {
+        this.orders = new ArrayList<>(orders);
+        this.stockLevels = inventory.snapshotStockLevels();
+        for (ManufacturingOrder order : orders) {
+            addComponents(order.getProduct());
+        }
+    }
+    
+    /**
+     * Makes every component of the product, at any depth, available to stock factors
+     */
+    private void addComponents(Product product) {
+        for (int i = 0; i < product.getComponentCount(); i++) {
+            Component component = product.getComponent(i);
+            if (componentsByName.putIfAbsent(component.getName(), component) == null
+                    && component instanceof Product) {
+                addComponents((Product) component);
+            }
+        }
+    }
+    
+    /**
+     * Runs the replications on the common fork/join pool
+     */
+    public SimulationResult replicate(SimulationScenario scenario, int replications, long seed) {
+        return replicate(scenario, replications, seed, ForkJoinPool.commonPool());
+    }
+    
+    public SimulationResult replicate(SimulationScenario scenario, int replications, long seed, ForkJoinPool pool) {
+        if (replications <= 0) {
+            throw new IllegalArgumentException("Replication count must be positive: " + replications);
+        }
+        long[] stock = scaledStock(scenario);
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[replications];
+        for (int i = 0; i < replications; i++) {
+            randoms[i] = root.split();
+        }
+        return pool.invoke(new ReplicationTask(scenario, stock, randoms, 0, replications));
+    }
+    
+    /**
+     * Returns the starting stock of the scenario, scaled by its stock factors
+     */
+    private long[] scaledStock(SimulationScenario scenario) {
+        long[] stock = stockLevels.clone();
+        for (Map.Entry<String, Double> factor : scenario.getStockFactors().entrySet()) {
+            Component component = componentsByName.get(factor.getKey());
+            if (component == null) {
+                throw new IllegalArgumentException("No product of the order book uses component '"
+                    + factor.getKey() + "'");
+            }
+            int id = component.getId();
+            if (id >= 0 && id < stock.length) {
+                stock[id] = (long) (stock[id] * factor.getValue());
+            }
+        }
+        return stock;
+    }
+    
+    /**
+     * Splits a range of replications in halves until each task runs one
+     */
+    private final class ReplicationTask extends RecursiveTask<SimulationResult> {
+        private static final long serialVersionUID = 1L;
+        
+        private final SimulationScenario scenario;
+        private final long[] stock;
+        private final SplittableRandom[] randoms;
+        private final int from;
+        private final int to;
+        
+        ReplicationTask(SimulationScenario scenario, long[] stock, SplittableRandom[] randoms, int from, int to) {
+            this.scenario = scenario;
+            this.stock = stock;
+            this.randoms = randoms;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected SimulationResult compute() {
+            if (to - from == 1) {
+                return new Replication(scenario, stock, randoms[from]).run();
+            }
+            int middle = (from + to) >>> 1;
+            ReplicationTask left = new ReplicationTask(scenario, stock, randoms, from, middle);
+            left.fork();
+            SimulationResult right = new ReplicationTask(scenario, stock, randoms, middle, to).compute();
+            SimulationResult result = left.join();
+            result.add(right);
+            return result;
+        }
+    }
+    
+    /**
+     * The state of one replication, confined to the thread running it
+     */
+    private final class Replication {
+        private final SimulationScenario scenario;
+        private final List<Station> stations;
+        private final InventoryManager inventory = new InventoryManager(1);
+        private final SplittableRandom random;
+        private final EventCalendar calendar = new EventCalendar();
+        private final long horizon;
+        
+        // Per station, indexed like the scenario's stations
+        private final String[] stateNames;
+        private final long[] serviceNanos;
+        private final int[] idleMachines;
+        private final ManufacturingProcess[][] queues;
+        private final long[][] arrivals;
+        private final int[] queueHeads;
+        private final int[] queueLengths;
+        private final long[] servedCounts;
+        private final long[] busyNanos;
+        private final long[] waitNanos;
+        private final long[] maxWaitNanos;
+        private final int[] peakQueueLengths;
+        
+        // Per machine slot: the unit in service, its station and when the service began
+        private final ManufacturingProcess[] slotProcesses;
+        private final int[] slotStations;
+        private final long[] slotStarts;
+        private final int[] freeSlots;
+        private int freeSlotCount;
+        
+        private final long[] outcomes = new long[ManufacturingOutcome.values().length];
+        private int orderIndex;
+        private int unitsLeftInOrder;
+        private int workInProgress;
+        private long released;
+        private long events;
+        
+        Replication(SimulationScenario scenario, long[] stock, SplittableRandom random) {
+            this.scenario = scenario;
+            this.stations = scenario.getStations();
+            this.random = random;
+            this.horizon = scenario.getHorizonNanos();
+            inventory.restoreStockLevels(stock);
+            
+            int count = stations.size();
+            this.stateNames = new String[count];
+            this.serviceNanos = new long[count];
+            this.idleMachines = new int[count];
+            this.queues = new ManufacturingProcess[count][];
+            this.arrivals = new long[count][];
+            this.queueHeads = new int[count];
+            this.queueLengths = new int[count];
+            this.servedCounts = new long[count];
+            this.busyNanos = new long[count];
+            this.waitNanos = new long[count];
+            this.maxWaitNanos = new long[count];
+            this.peakQueueLengths = new int[count];
+            int machines = 0;
+            for (int i = 0; i < count; i++) {
+                Station station = stations.get(i);
+                stateNames[i] = station.getStateName();
+                serviceNanos[i] = station.getServiceNanos();
+                idleMachines[i] = station.getCapacity();
+                queues[i] = new ManufacturingProcess[16];
+                arrivals[i] = new long[16];
+                machines += station.getCapacity();
+            }
+            this.slotProcesses = new ManufacturingProcess[machines];
+            this.slotStations = new int[machines];
+            this.slotStarts = new long[machines];
+            this.freeSlots = new int[machines];
+            for (int i = 0; i < machines; i++) {
+                freeSlots[freeSlotCount++] = machines - 1 - i;
+            }
+            this.unitsLeftInOrder = orders.isEmpty() ? 0 : orders.get(0).getQuantity();
+        }
+        
+        SimulationResult run() {
+            long now = 0;
+            release(now);
+            while (!calendar.isEmpty() && calendar.peekTime() <= horizon) {
+                now = calendar.peekTime();
+                int slot = calendar.poll();
+                events++;
+                finishService(slot, now);
+                release(now);
+            }
+            long end = calendar.isEmpty() ? now : horizon;
+            
+            SimulationResult result = new SimulationResult(scenario.getName(), stations);
+            result.recordReplication(outcomes, released, workInProgress, events, end);
+            
+            // Services still running at the horizon count as busy up to it
+            for (int slot = 0; slot < slotProcesses.length; slot++) {
+                if (slotProcesses[slot] != null) {
+                    busyNanos[slotStations[slot]] += end - slotStarts[slot];
+                }
+            }
+            for (int i = 0; i < stateNames.length; i++) {
+                result.recordStation(i, servedCounts[i], busyNanos[i], waitNanos[i], maxWaitNanos[i],
+                    peakQueueLengths[i]);
+            }
+            return result;
+        }
+        
+        /**
+         * Lets units of the order book into the plant up to the WIP limit
+         */
+        private void release(long now) {
+            while (workInProgress < scenario.getWipLimit()) {
+                while (unitsLeftInOrder == 0) {
+                    if (++orderIndex >= orders.size()) {
+                        return;
+                    }
+                    unitsLeftInOrder = orders.get(orderIndex).getQuantity();
+                }
+                unitsLeftInOrder--;
+                workInProgress++;
+                released++;
+                advance(new ManufacturingProcess(orders.get(orderIndex).getProduct(), inventory, null,
+                    scenario.getOutcomeModel(), random), now);
+            }
+        }
+        
+        /**
+         * Takes the unit through states without a station until it reaches a
+         * station or ends
+         */
+        private void advance(ManufacturingProcess process, long now) {
+            while (!process.isCompleted()) {
+                int station = stationOf(process.getCurrentState());
+                if (station >= 0) {
+                    arrive(station, process, now);
+                    return;
+                }
+                process.process();
+            }
+            outcomes[process.getFinalOutcome().ordinal()]++;
+            workInProgress--;
+        }
+        
+        private int stationOf(ProcessState state) {
+            String name = state.getName();
+            for (int i = 0; i < stateNames.length; i++) {
+                if (stateNames[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        private void arrive(int station, ManufacturingProcess process, long now) {
+            if (idleMachines[station] > 0) {
+                startService(station, process, now, 0);
+                return;
+            }
+            int length = queueLengths[station];
+            if (length == queues[station].length) {
+                growQueue(station);
+            }
+            int tail = (queueHeads[station] + length) & (queues[station].length - 1);
+            queues[station][tail] = process;
+            arrivals[station][tail] = now;
+            queueLengths[station] = ++length;
+            peakQueueLengths[station] = Math.max(peakQueueLengths[station], length);
+        }
+        
+        private void startService(int station, ManufacturingProcess process, long now, long waited) {
+            idleMachines[station]--;
+            waitNanos[station] += waited;
+            maxWaitNanos[station] = Math.max(maxWaitNanos[station], waited);
+            int slot = freeSlots[--freeSlotCount];
+            slotProcesses[slot] = process;
+            slotStations[slot] = station;
+            slotStarts[slot] = now;
+            calendar.schedule(now + serviceNanos[station], slot);
+        }
+        
+        /**
+         * Ends the service of a slot: the unit takes its step, the machine takes
+         * the next unit in the queue and the unit moves on
+         */
+        private void finishService(int slot, long now) {
+            ManufacturingProcess process = slotProcesses[slot];
+            int station = slotStations[slot];
+            slotProcesses[slot] = null;
+            freeSlots[freeSlotCount++] = slot;
+            idleMachines[station]++;
+            servedCounts[station]++;
+            busyNanos[station] += now - slotStarts[slot];
+            
+            process.process();
+            
+            if (queueLengths[station] > 0) {
+                int head = queueHeads[station];
+                ManufacturingProcess next = queues[station][head];
+                queues[station][head] = null;
+                queueHeads[station] = (head + 1) & (queues[station].length - 1);
+                queueLengths[station]--;
+                startService(station, next, now, now - arrivals[station][head]);
+            }
+            advance(process, now);
+        }
+        
+        private void growQueue(int station) {
+            ManufacturingProcess[] queue = queues[station];
+            long[] times = arrivals[station];
+            int head = queueHeads[station];
+            int length = queue.length;
+            ManufacturingProcess[] grownQueue = new ManufacturingProcess[length * 2];
+            long[] grownTimes = new long[length * 2];
+            for (int i = 0; i < length; i++) {
+                grownQueue[i] = queue[(head + i) & (length - 1)];
+                grownTimes[i] = times[(head + i) & (length - 1)];
+            }
+            queues[station] = grownQueue;
+            arrivals[station] = grownTimes;
+            queueHeads[station] = 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package system;
+
+import java.util.Arrays;
+
+/**
+ * The event calendar of the {@link DiscreteEventSimulator}: a binary min-heap of
+ * events ordered by simulated time, held in primitive arrays so scheduling an
+ * event never allocates or boxes. Each event carries an int the simulator
+ * resolves itself, such as the machine slot whose service ends.
+ *
+ * Events due at the same time come out in the order they were scheduled, which
+ * keeps a simulation with a fixed seed reproducible. Not thread-safe: every
+ * replication has its own calendar.
+ */
+final class EventCalendar {
+    private static final int INITIAL_CAPACITY = 64;
+    
+    private long[] times = new long[INITIAL_CAPACITY];
+    private long[] sequences = new long[INITIAL_CAPACITY];
+    private int[] payloads = new int[INITIAL_CAPACITY];
+    private int size;
+    private long nextSequence;
+    
+    /**
+     * Schedules an event at the given simulated time
+     */
+    void schedule(long time, int payload) {
+        if (size == times.length) {
+            int newLength = times.length * 2;
+            times = Arrays.copyOf(times, newLength);
+            sequences = Arrays.copyOf(sequences, newLength);
+            payloads = Arrays.copyOf(payloads, newLength);
+        }
+        long sequence = nextSequence++;
+        
+        // Sift the new event up from the end
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(time, sequence, times[parent], sequences[parent])) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        set(i, time, sequence, payload);
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Returns the time of the next event; the calendar must not be empty
+     */
+    long peekTime() {
+        return times[0];
+    }
+    
+    /**
+     * Removes the next event and returns its payload; read its time with
+     * {@link #peekTime()} first
+     */
+    int poll() {
+        int payload = payloads[0];
+        int last = --size;
+        if (last > 0) {
+            long time = times[last];
+            long sequence = sequences[last];
+            int lastPayload = payloads[last];
+            
+            // Sift the last event down from the root
+            int i = 0;
+            int half = last >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < last && before(times[right], sequences[right], times[child], sequences[child])) {
+                    child = right;
+                }
+                if (!before(times[child], sequences[child], time, sequence)) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            set(i, time, sequence, lastPayload);
+        }
+        return payload;
+    }
+    
+    void clear() {
+        size = 0;
+        nextSequence = 0;
+    }
+    
+    private static boolean before(long time, long sequence, long otherTime, long otherSequence) {
+        return time < otherTime || time == otherTime && sequence < otherSequence;
+    }
+    
+    private void move(int from, int to) {
+        set(to, times[from], sequences[from], payloads[from]);
+    }
+    
+    private void set(int i, long time, long sequence, int payload) {
+        times[i] = time;
+        sequences[i] = sequence;
+        payloads[i] = payload;
+    }
+}
@@ -0,0 +1,35 @@
+package system;
+
+/**
+ * How the controller runs the manufacturing processes of an order book.
+ */
+public enum ExecutionMode {
+    /**
+     * Every unit runs one after another on the calling thread
+     */
+    SEQUENTIAL,
+    
+    /**
+     * Units of one order run in parallel, but an order only starts once the
+     * previous one has finished, so stock is allocated in strict CSV order
+     */
+    PARALLEL_ORDERED,
+    
+    /**
+     * Units of all orders run in parallel and compete for stock, giving the best throughput
+     */
+    PARALLEL_THROUGHPUT,
+    
+    /**
+     * Each order runs as one batch: stock for all coverable units is reserved
+     * at once and the outcomes are drawn in bulk
+     */
+    BATCH,
+    
+    /**
+     * Every unit runs as its own virtual thread through timed {@link Station stations}
+     * with a limited number of machines each, to measure throughput and queueing.
+     * Needs Java 21 or later; the controller refuses it on older runtimes.
+     */
+    TIMED
+}
@@ -0,0 +1,287 @@
+package system;
+
+import component.BillOfMaterials;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only journal of inventory changes with group commit.
+ *
+ * Each change is a fixed 13-byte record: a flag byte, the component ID and a
+ * milli-unit value that is either added to the stock or, for initial stock,
+ * replaces it. The changes of one multi-component reservation are written as a
+ * group: every record but the last carries {@link #MORE_FOLLOWS}, and replay
+ * drops a group whose last record never reached the disk.
+ *
+ * Appending only copies the record into an in-memory buffer. A background
+ * thread writes the buffer and forces it to disk every commit interval, so one
+ * fsync covers every change made in that interval; an appender only waits when
+ * the buffer is full.
+ */
+final class InventoryJournal implements Closeable {
+    static final int RECORD_SIZE = 1 + 4 + 8;
+    static final byte SET = 1;
+    static final byte MORE_FOLLOWS = 2;
+    
+    private static final int BUFFER_SIZE = 1 << 20;
+    
+    private final FileChannel channel;
+    private final long commitIntervalMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition committed = lock.newCondition();
+    private final Condition commitRequested = lock.newCondition();
+    
+    // Appenders fill the active buffer; the committer swaps it with the spare one and writes it
+    private ByteBuffer activeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer spareBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long appendedGroups;
+    private long committedGroups;
+    private boolean closed;
+    private IOException failure;
+    private final Thread committer;
+    
+    InventoryJournal(Path path, long commitIntervalMillis) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.committer = new Thread(this::commitLoop, "inventory-journal-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+    
+    /**
+     * Journals a single stock change
+     *
+     * @param set true if the value replaces the stock, false if it is added to it
+     */
+    void append(int componentId, long milliUnits, boolean set) {
+        lock.lock();
+        try {
+            reserveSpace(1);
+            putRecord(set ? SET : 0, componentId, milliUnits);
+            appendedGroups++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Journals the change of a whole bill of materials, units times its per-unit
+     * quantities, as one group
+     */
+    void append(BillOfMaterials bom, long units) {
+        int count = 0;
+        for (int i = 0; i < bom.size(); i++) {
+            if (bom.getMilliQuantity(i) > 0) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        
+        lock.lock();
+        try {
+            reserveSpace(count);
+            int remaining = count;
+            for (int i = 0; i < bom.size(); i++) {
+                long quantity = bom.getMilliQuantity(i);
+                if (quantity > 0) {
+                    putRecord(--remaining > 0 ? MORE_FOLLOWS : 0, bom.getComponentId(i), quantity * units);
+                }
+            }
+            appendedGroups++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Journals the change of several components as one group, each quantity times the sign
+     */
+    void append(int[] componentIds, long[] milliUnits, int count, long sign) {
+        if (count == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            reserveSpace(count);
+            for (int i = 0; i < count; i++) {
+                putRecord(i < count - 1 ? MORE_FOLLOWS : 0, componentIds[i], milliUnits[i] * sign);
+            }
+            appendedGroups++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Waits until everything appended so far is on disk
+     */
+    void sync() throws IOException {
+        lock.lock();
+        try {
+            long target = appendedGroups;
+            commitRequested.signal();
+            while (committedGroups < target && failure == null && !closed) {
+                committed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Commits the remaining changes and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        sync();
+        lock.lock();
+        try {
+            closed = true;
+            commitRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+    
+    /**
+     * Applies the complete groups of a journal file to the stock levels
+     *
+     * @return The levels, grown if the journal names higher component IDs
+     */
+    static long[] replay(Path path, long[] levels) throws IOException {
+        if (!Files.exists(path)) {
+            return levels;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long completeRecords = channel.size() / RECORD_SIZE;
+            ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, completeRecords * RECORD_SIZE);
+            
+            // Records of the current group are applied only once its last record is seen
+            int count = levels.length;
+            long groupStart = 0;
+            for (long r = 0; r < completeRecords; r++) {
+                if ((records.get((int) (r * RECORD_SIZE)) & MORE_FOLLOWS) != 0) {
+                    continue;
+                }
+                for (long g = groupStart; g <= r; g++) {
+                    int offset = (int) (g * RECORD_SIZE);
+                    byte flags = records.get(offset);
+                    int id = records.getInt(offset + 1);
+                    long value = records.getLong(offset + 5);
+                    if (id >= levels.length) {
+                        levels = Arrays.copyOf(levels, Math.max(levels.length * 2, id + 1));
+                    }
+                    count = Math.max(count, id + 1);
+                    if ((flags & SET) != 0) {
+                        levels[id] = value;
+                    } else {
+                        levels[id] += value;
+                    }
+                }
+                groupStart = r + 1;
+            }
+            return count == levels.length ? levels : Arrays.copyOf(levels, count);
+        }
+    }
+    
+    private void putRecord(byte flags, int componentId, long value) {
+        activeBuffer.put(flags);
+        activeBuffer.putInt(componentId);
+        activeBuffer.putLong(value);
+    }
+    
+    /**
+     * Waits for the committer while the active buffer cannot take the group
+     */
+    private void reserveSpace(int records) {
+        int needed = records * RECORD_SIZE;
+        if (needed > BUFFER_SIZE) {
+            throw new IllegalArgumentException("Journal group too large: " + records + " records");
+        }
+        while (activeBuffer.remaining() < needed) {
+            if (closed) {
+                throw new IllegalStateException("Inventory journal is closed");
+            }
+            commitRequested.signal();
+            committed.awaitUninterruptibly();
+        }
+    }
+    
+    private void commitLoop() {
+        while (true) {
+            ByteBuffer toWrite;
+            long groups;
+            lock.lock();
+            try {
+                if (activeBuffer.position() == 0) {
+                    if (closed) {
+                        committed.signalAll();
+                        return;
+                    }
+                    try {
+                        commitRequested.await(commitIntervalMillis, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                    if (activeBuffer.position() == 0) {
+                        committedGroups = appendedGroups;
+                        committed.signalAll();
+                        continue;
+                    }
+                }
+                toWrite = activeBuffer;
+                activeBuffer = spareBuffer;
+                spareBuffer = toWrite;
+                groups = appendedGroups;
+            } finally {
+                lock.unlock();
+            }
+            
+            IOException error = null;
+            try {
+                toWrite.flip();
+                while (toWrite.hasRemaining()) {
+                    channel.write(toWrite);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                toWrite.clear();
+            }
+            
+            lock.lock();
+            try {
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                committedGroups = groups;
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,40 +1,629 @@
 package system;
 
+import component.BillOfMaterials;
 import component.Component;
-import java.util.HashMap;
+import metrics.InventoryOperation;
+import metrics.ManufacturingMetrics;
+import java.util.BitSet;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Keeps the stock levels of components and is safe to share between
+ * manufacturing threads.
+ *
+ * Stock is held in a primitive array indexed by the dense component ID that
+ * {@link DataLoader} assigns, so a lookup never hashes or boxes. Reads are
+ * lock-free. Every update takes the lock stripe that owns the component
+ * (ID modulo the stripe count), so threads working on different components do
+ * not block each other. Multi-component reservations take the stripes they
+ * need in ascending order, which makes a whole bill of materials an
+ * all-or-nothing deduction without a global lock.
+ *
+ * Stock is counted in fixed-point milli-units ({@link #MILLI_UNITS_PER_UNIT} per
+ * whole unit), so fractional bill-of-materials quantities such as 1.5 m² of
+ * wood are deducted exactly instead of being rounded up per unit. Methods taking
+ * an int quantity work in whole units; bills of materials and the array-based
+ * methods work in milli-units.
+ *
+ * When metrics are attached with {@link #setMetrics(ManufacturingMetrics)} the
+ * bill-of-materials checks, reservations and releases are timed; without them
+ * the only cost is a null check. The same holds for the journal of an
+ * {@link InventoryStore}: every change is appended while its stripes are held,
+ * so the journal sees the changes of a component in the order they happened.
+ */
 public class InventoryManager {
-    private final Map<Component, Integer> stockLevels;
+    /**
+     * Upper bound for the stripe count, so a set of stripes fits in one long bit mask
+     */
+    private static final int MAX_STRIPE_COUNT = 64;
+    private static final int INITIAL_CAPACITY = 64;
+    
+    public static final long MILLI_UNITS_PER_UNIT = 1000;
+    
+    // Quantities are rounded up to whole milli-units, ignoring the noise of binary fractions
+    private static final double MILLI_UNIT_TOLERANCE = 1e-6;
+    
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+    private volatile AtomicLongArray stockLevels;
+    private volatile ManufacturingMetrics metrics;
+    private volatile InventoryJournal journal;
+    
+    // The sharded inventory this is a shard of, which covers its shortages from the other shards
+    private volatile ShardedInventory shardGroup;
+    
+    // Components whose stock came from an inventory store; their initial stock is ignored
+    private final BitSet restoredIds = new BitSet();
+    
+    // One more than the highest ID whose stock was ever set, the extent an inventory store saves
+    private final AtomicInteger componentCount = new AtomicInteger();
     
     public InventoryManager() {
-        this.stockLevels = new HashMap<>();
+        this(MAX_STRIPE_COUNT);
+    }
+    
+    /**
+     * @param stripeCount The number of lock stripes, a power of two no larger than 64
+     */
+    public InventoryManager(int stripeCount) {
+        if (stripeCount <= 0 || stripeCount > MAX_STRIPE_COUNT || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two between 1 and "
+                    + MAX_STRIPE_COUNT + ": " + stripeCount);
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = stripeCount - 1;
+        this.stockLevels = new AtomicLongArray(INITIAL_CAPACITY);
+    }
+    
+    /**
+     * Attaches metrics that time the inventory operations, or detaches them when null
+     */
+    public void setMetrics(ManufacturingMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    ManufacturingMetrics getMetrics() {
+        return metrics;
     }
     
+    /**
+     * Sets the stock a component starts with. Ignored for components whose stock
+     * was restored from an {@link InventoryStore}, which already reflects every
+     * change since the stock was first set.
+     */
     public void setInitialStock(Component component, int quantity) {
-        stockLevels.put(component, quantity);
+        int id = idOf(component);
+        ensureCapacity(id);
+        componentCount.accumulateAndGet(id + 1, Math::max);
+        ReentrantLock lock = stripes[id & stripeMask];
+        lock.lock();
+        try {
+            if (restoredIds.get(id)) {
+                return;
+            }
+            long milliUnits = quantity * MILLI_UNITS_PER_UNIT;
+            stockLevels.set(id, milliUnits);
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                journal.append(id, milliUnits, true);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
     
     public boolean checkStock(Component component, int quantity) {
-        Integer available = stockLevels.getOrDefault(component, 0);
-        return available >= quantity;
+        return getStockMilliUnits(component) >= quantity * MILLI_UNITS_PER_UNIT;
     }
     
-    public boolean deductStock(Component component, int quantity) {
-        Integer available = stockLevels.getOrDefault(component, 0);
-        if (available < quantity) {
-            return false;
+    /**
+     * Checks whether every component of the given requirements is in stock.
+     * The answer is a snapshot; use {@link #reserve(Map)} to actually claim the stock.
+     */
+    public boolean checkStock(Map<Component, Integer> requirements) {
+        for (Map.Entry<Component, Integer> entry : requirements.entrySet()) {
+            if (!checkStock(entry.getKey(), entry.getValue())) {
+                return false;
+            }
         }
-        stockLevels.put(component, available - quantity);
         return true;
     }
     
+    /**
+     * Checks whether the stock covers the given number of units of a bill of materials
+     */
+    public boolean checkStock(BillOfMaterials bom, int units) {
+        ManufacturingMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return isCovered(bom, units);
+        }
+        long start = System.nanoTime();
+        boolean covered = isCovered(bom, units);
+        metrics.recordInventoryOperation(InventoryOperation.CHECK, System.nanoTime() - start, covered);
+        return covered;
+    }
+    
+    private boolean isCovered(BillOfMaterials bom, int units) {
+        AtomicLongArray levels = stockLevels;
+        for (int i = 0; i < bom.size(); i++) {
+            if (level(levels, bom.getComponentId(i)) < bom.getMilliQuantity(i) * units) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public boolean deductStock(Component component, int quantity) {
+        ManufacturingMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return tryDeduct(component, quantity);
+        }
+        long start = System.nanoTime();
+        boolean deducted = tryDeduct(component, quantity);
+        metrics.recordInventoryOperation(InventoryOperation.RESERVE, System.nanoTime() - start, deducted);
+        return deducted;
+    }
+    
+    private boolean tryDeduct(Component component, int quantity) {
+        int id = idOf(component);
+        long milliUnits = quantity * MILLI_UNITS_PER_UNIT;
+        ReentrantLock lock = stripes[id & stripeMask];
+        lock.lock();
+        try {
+            AtomicLongArray levels = stockLevels;
+            long available = level(levels, id);
+            if (available < milliUnits) {
+                return false;
+            }
+            if (milliUnits > 0) {
+                levels.addAndGet(id, -milliUnits);
+                InventoryJournal journal = this.journal;
+                if (journal != null) {
+                    journal.append(id, -milliUnits, false);
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Atomically deducts every component of the given requirements.
+     * Either all quantities are taken or, if any component is short,
+     * nothing is taken at all.
+     *
+     * @param requirements Component to quantity needed
+     * @return true if the stock was reserved, false if any component was short
+     */
+    public boolean reserve(Map<Component, Integer> requirements) {
+        ManufacturingMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return tryReserve(requirements);
+        }
+        long start = System.nanoTime();
+        boolean reserved = tryReserve(requirements);
+        metrics.recordInventoryOperation(InventoryOperation.RESERVE, System.nanoTime() - start, reserved);
+        return reserved;
+    }
+    
+    private boolean tryReserve(Map<Component, Integer> requirements) {
+        long stripeSet = 0;
+        for (Component component : requirements.keySet()) {
+            stripeSet |= 1L << (idOf(component) & stripeMask);
+        }
+        
+        lockStripes(stripeSet);
+        try {
+            AtomicLongArray levels = stockLevels;
+            for (Map.Entry<Component, Integer> entry : requirements.entrySet()) {
+                if (level(levels, idOf(entry.getKey())) < entry.getValue() * MILLI_UNITS_PER_UNIT) {
+                    return false;
+                }
+            }
+            InventoryJournal journal = this.journal;
+            int[] journalIds = journal != null ? new int[requirements.size()] : null;
+            long[] journalQuantities = journal != null ? new long[requirements.size()] : null;
+            int journalCount = 0;
+            for (Map.Entry<Component, Integer> entry : requirements.entrySet()) {
+                long quantity = entry.getValue() * MILLI_UNITS_PER_UNIT;
+                if (quantity > 0) {
+                    levels.addAndGet(idOf(entry.getKey()), -quantity);
+                    if (journal != null) {
+                        journalIds[journalCount] = idOf(entry.getKey());
+                        journalQuantities[journalCount++] = quantity;
+                    }
+                }
+            }
+            if (journal != null) {
+                journal.append(journalIds, journalQuantities, journalCount, -1);
+            }
+            return true;
+        } finally {
+            unlockStripes(stripeSet);
+        }
+    }
+    
+    /**
+     * Atomically deducts the stock for the given number of units of a bill of
+     * materials, all or nothing. Runs without allocating.
+     *
+     * @return true if the stock was reserved, false if any component was short
+     */
+    public boolean reserve(BillOfMaterials bom, int units) {
+        ManufacturingMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return tryReserve(bom, units);
+        }
+        long start = System.nanoTime();
+        boolean reserved = tryReserve(bom, units);
+        metrics.recordInventoryOperation(InventoryOperation.RESERVE, System.nanoTime() - start, reserved);
+        return reserved;
+    }
+    
+    private boolean tryReserve(BillOfMaterials bom, int units) {
+        long stripeSet = stripesOf(bom);
+        lockStripes(stripeSet);
+        try {
+            AtomicLongArray levels = stockLevels;
+            for (int i = 0; i < bom.size(); i++) {
+                if (level(levels, bom.getComponentId(i)) < bom.getMilliQuantity(i) * units) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < bom.size(); i++) {
+                long quantity = bom.getMilliQuantity(i) * units;
+                if (quantity > 0) {
+                    levels.addAndGet(bom.getComponentId(i), -quantity);
+                }
+            }
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                journal.append(bom, -units);
+            }
+            return true;
+        } finally {
+            unlockStripes(stripeSet);
+        }
+    }
+    
+    /**
+     * Checks whether the stock covers the given quantities, given as parallel
+     * arrays of component IDs and amounts in milli-units
+     */
+    public boolean checkStock(int[] componentIds, long[] quantities, int count) {
+        ManufacturingMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        AtomicLongArray levels = stockLevels;
+        boolean covered = true;
+        for (int i = 0; i < count && covered; i++) {
+            covered = level(levels, componentIds[i]) >= quantities[i];
+        }
+        if (metrics != null) {
+            metrics.recordInventoryOperation(InventoryOperation.CHECK, System.nanoTime() - start, covered);
+        }
+        return covered;
+    }
+    
+    /**
+     * Atomically deducts the given milli-unit quantities, all or nothing.
+     * The component IDs must be distinct.
+     *
+     * @return true if the stock was reserved, false if any component was short
+     */
+    public boolean reserve(int[] componentIds, long[] quantities, int count) {
+        ManufacturingMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        long stripeSet = 0;
+        for (int i = 0; i < count; i++) {
+            stripeSet |= 1L << (componentIds[i] & stripeMask);
+        }
+        
+        boolean reserved = true;
+        lockStripes(stripeSet);
+        try {
+            AtomicLongArray levels = stockLevels;
+            for (int i = 0; i < count && reserved; i++) {
+                reserved = level(levels, componentIds[i]) >= quantities[i];
+            }
+            if (reserved) {
+                for (int i = 0; i < count; i++) {
+                    if (quantities[i] > 0) {
+                        levels.addAndGet(componentIds[i], -quantities[i]);
+                    }
+                }
+                InventoryJournal journal = this.journal;
+                if (journal != null) {
+                    journal.append(componentIds, quantities, count, -1);
+                }
+            }
+        } finally {
+            unlockStripes(stripeSet);
+        }
+        if (metrics != null) {
+            metrics.recordInventoryOperation(InventoryOperation.RESERVE, System.nanoTime() - start, reserved);
+        }
+        return reserved;
+    }
+    
+    /**
+     * Returns the stock of the given number of units taken by {@link #reserve(BillOfMaterials, int)}
+     */
+    public void release(BillOfMaterials bom, int units) {
+        ManufacturingMetrics metrics = this.metrics;
+        if (metrics == null) {
+            returnStock(bom, units);
+            return;
+        }
+        long start = System.nanoTime();
+        returnStock(bom, units);
+        metrics.recordInventoryOperation(InventoryOperation.RELEASE, System.nanoTime() - start, true);
+    }
+    
+    private void returnStock(BillOfMaterials bom, int units) {
+        long stripeSet = stripesOf(bom);
+        lockStripes(stripeSet);
+        try {
+            AtomicLongArray levels = stockLevels;
+            for (int i = 0; i < bom.size(); i++) {
+                long quantity = bom.getMilliQuantity(i) * units;
+                if (quantity > 0) {
+                    levels.addAndGet(bom.getComponentId(i), quantity);
+                }
+            }
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                journal.append(bom, units);
+            }
+        } finally {
+            unlockStripes(stripeSet);
+        }
+    }
+    
+    /**
+     * Returns how many units of a bill of materials the current stock covers
+     */
+    public int coverableUnits(BillOfMaterials bom) {
+        AtomicLongArray levels = stockLevels;
+        long units = Integer.MAX_VALUE;
+        for (int i = 0; i < bom.size(); i++) {
+            long perUnit = bom.getMilliQuantity(i);
+            if (perUnit > 0) {
+                units = Math.min(units, Math.max(0, level(levels, bom.getComponentId(i))) / perUnit);
+            }
+        }
+        return (int) units;
+    }
+    
     public void addStock(Component component, int quantity) {
-        Integer current = stockLevels.getOrDefault(component, 0);
-        stockLevels.put(component, current + quantity);
+        int id = idOf(component);
+        ensureCapacity(id);
+        componentCount.accumulateAndGet(id + 1, Math::max);
+        ReentrantLock lock = stripes[id & stripeMask];
+        lock.lock();
+        try {
+            long milliUnits = quantity * MILLI_UNITS_PER_UNIT;
+            stockLevels.addAndGet(id, milliUnits);
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                journal.append(id, milliUnits, false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Moves the stock this inventory lacks for the given units of a bill of
+     * materials from the other shards of its {@link ShardedInventory}. Does
+     * nothing for an inventory that is not a shard.
+     *
+     * @return true if the stock now covers the units, false if the other shards
+     *         could not make up the difference or this is not a shard
+     */
+    public boolean requestTransfer(BillOfMaterials bom, int units) {
+        ShardedInventory shardGroup = this.shardGroup;
+        return shardGroup != null && shardGroup.rebalance(this, bom, units);
     }
     
+    void setShardGroup(ShardedInventory shardGroup) {
+        this.shardGroup = shardGroup;
+    }
+    
+    /**
+     * Takes up to the given milli-units of a component, never going below zero.
+     * Moves between the shards of a {@link ShardedInventory} are not journaled:
+     * the stock is consolidated before the next checkpoint.
+     *
+     * @return The milli-units taken
+     */
+    long takeMilliUnits(int id, long milliUnits) {
+        ReentrantLock lock = stripes[id & stripeMask];
+        lock.lock();
+        try {
+            AtomicLongArray levels = stockLevels;
+            long taken = Math.min(milliUnits, level(levels, id));
+            if (taken <= 0) {
+                return 0;
+            }
+            levels.addAndGet(id, -taken);
+            return taken;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Adds milli-units of a component without journaling, the other half of {@link #takeMilliUnits}
+     */
+    void putMilliUnits(int id, long milliUnits) {
+        ensureCapacity(id);
+        componentCount.accumulateAndGet(id + 1, Math::max);
+        ReentrantLock lock = stripes[id & stripeMask];
+        lock.lock();
+        try {
+            stockLevels.addAndGet(id, milliUnits);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns one more than the highest component ID whose stock was ever set
+     */
+    int getComponentCount() {
+        return componentCount.get();
+    }
+    
+    /**
+     * Returns the stock in whole units, rounded down
+     */
     public int getStockLevel(Component component) {
-        return stockLevels.getOrDefault(component, 0);
+        return (int) Math.floorDiv(getStockMilliUnits(component), MILLI_UNITS_PER_UNIT);
+    }
+    
+    public long getStockMilliUnits(Component component) {
+        return level(stockLevels, idOf(component));
+    }
+    
+    /**
+     * Converts a quantity in units to milli-units, rounding up any remainder
+     * below a milli-unit
+     */
+    public static long toMilliUnits(double quantity) {
+        return (long) Math.ceil(quantity * MILLI_UNITS_PER_UNIT - MILLI_UNIT_TOLERANCE);
+    }
+    
+    /**
+     * Returns a copy of all stock levels in milli-units indexed by component ID, for planning
+     * without touching the live inventory. Taken without locks, so updates that
+     * run at the same time may or may not be included.
+     */
+    public long[] snapshotStockLevels() {
+        AtomicLongArray levels = stockLevels;
+        long[] snapshot = new long[levels.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = levels.get(i);
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Replaces the stock levels with ones restored from an inventory store and
+     * marks the restored components, so loading their initial stock again keeps
+     * the restored levels
+     */
+    void restoreStockLevels(long[] levels) {
+        if (levels.length == 0) {
+            return;
+        }
+        ensureCapacity(levels.length - 1);
+        long allStripes = allStripes();
+        lockStripes(allStripes);
+        try {
+            AtomicLongArray current = stockLevels;
+            for (int id = 0; id < levels.length; id++) {
+                current.set(id, levels[id]);
+            }
+            restoredIds.set(0, levels.length);
+            componentCount.accumulateAndGet(levels.length, Math::max);
+        } finally {
+            unlockStripes(allStripes);
+        }
+    }
+    
+    /**
+     * Copies the stock levels of every component whose stock was set and switches
+     * to the given journal with every stripe held, so each change is either in the
+     * copy or in the new journal
+     *
+     * @param next The journal for all later changes, or null to stop journaling
+     */
+    long[] snapshotAndSetJournal(InventoryJournal next) {
+        long allStripes = allStripes();
+        lockStripes(allStripes);
+        try {
+            AtomicLongArray levels = stockLevels;
+            long[] snapshot = new long[componentCount.get()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = levels.get(i);
+            }
+            journal = next;
+            return snapshot;
+        } finally {
+            unlockStripes(allStripes);
+        }
+    }
+    
+    private static int idOf(Component component) {
+        int id = component.getId();
+        if (id < 0) {
+            throw new IllegalArgumentException("Component '" + component.getName() + "' has no inventory ID");
+        }
+        return id;
+    }
+    
+    private static long level(AtomicLongArray levels, int id) {
+        return id < levels.length() ? levels.get(id) : 0;
+    }
+    
+    private long stripesOf(BillOfMaterials bom) {
+        long stripeSet = 0;
+        for (int i = 0; i < bom.size(); i++) {
+            stripeSet |= 1L << (bom.getComponentId(i) & stripeMask);
+        }
+        return stripeSet;
+    }
+    
+    private long allStripes() {
+        return stripes.length == MAX_STRIPE_COUNT ? -1L : (1L << stripes.length) - 1;
+    }
+    
+    /**
+     * Locks the stripes of the bit set in ascending order, so concurrent
+     * reservations can never deadlock
+     */
+    private void lockStripes(long stripeSet) {
+        for (long remaining = stripeSet; remaining != 0; remaining &= remaining - 1) {
+            stripes[Long.numberOfTrailingZeros(remaining)].lock();
+        }
+    }
+    
+    private void unlockStripes(long stripeSet) {
+        for (long remaining = stripeSet; remaining != 0; remaining &= remaining - 1) {
+            stripes[Long.numberOfTrailingZeros(remaining)].unlock();
+        }
+    }
+    
+    /**
+     * Grows the stock array so it holds the given ID. All stripes are held while
+     * copying, so no update can be lost in the old array.
+     */
+    private void ensureCapacity(int id) {
+        if (id < stockLevels.length()) {
+            return;
+        }
+        long allStripes = allStripes();
+        lockStripes(allStripes);
+        try {
+            AtomicLongArray current = stockLevels;
+            if (id < current.length()) {
+                return;
+            }
+            int newLength = Math.max(current.length() * 2, id + 1);
+            AtomicLongArray grown = new AtomicLongArray(newLength);
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            stockLevels = grown;
+        } finally {
+            unlockStripes(allStripes);
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package system;
+
+import component.BillOfMaterials;
+import component.Component;
+import component.Reservation;
+import java.util.Arrays;
+
+/**
+ * A private, copy-on-write view of the stock levels, for trying out a run of the
+ * order book without touching the live {@link InventoryManager}.
+ *
+ * The levels are held in pages of {@value #PAGE_SIZE} components. A copy shares
+ * every page with the snapshot it came from, and a page is copied only when
+ * one of its components is first changed, so thousands of copies of a large
+ * catalog cost little more than the pages their runs actually change. After
+ * {@link #copy()} neither side changes a shared page in place. Copying a
+ * snapshot that owns no pages only reads it, so many threads may copy the same
+ * unchanged snapshot at once; anything else needs the snapshot confined to one
+ * thread.
+ */
+public final class InventorySnapshot {
+    private static final int PAGE_SHIFT = 6;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    
+    private final long[][] pages;
+    
+    // Pages this snapshot copied itself and may change in place
+    private final boolean[] ownedPages;
+    private int ownedPageCount;
+    private int copiedPageCount;
+    
+    /**
+     * @param levels The stock in milli-units, indexed by component ID
+     */
+    public InventorySnapshot(long[] levels) {
+        this.pages = new long[(levels.length + PAGE_MASK) >>> PAGE_SHIFT][];
+        this.ownedPages = new boolean[pages.length];
+        for (int p = 0; p < pages.length; p++) {
+            pages[p] = Arrays.copyOfRange(levels, p << PAGE_SHIFT, (p + 1) << PAGE_SHIFT);
+            ownedPages[p] = true;
+        }
+        this.ownedPageCount = pages.length;
+    }
+    
+    private InventorySnapshot(long[][] pages) {
+        this.pages = pages;
+        this.ownedPages = new boolean[pages.length];
+    }
+    
+    /**
+     * Returns a snapshot with the same stock that shares this one's pages until
+     * either of them changes
+     */
+    public InventorySnapshot copy() {
+        // Pages this snapshot changed in place are shared from now on as well
+        if (ownedPageCount > 0) {
+            Arrays.fill(ownedPages, false);
+            ownedPageCount = 0;
+        }
+        return new InventorySnapshot(pages.clone());
+    }
+    
+    public long getStockMilliUnits(int id) {
+        int page = id >>> PAGE_SHIFT;
+        return page < pages.length ? pages[page][id & PAGE_MASK] : 0;
+    }
+    
+    public long getStockMilliUnits(Component component) {
+        return getStockMilliUnits(component.getId());
+    }
+    
+    /**
+     * Returns how many units of the bill of materials the stock covers
+     */
+    public long coverableUnits(BillOfMaterials bom) {
+        long units = Long.MAX_VALUE;
+        for (int i = 0; i < bom.size(); i++) {
+            long perUnit = bom.getMilliQuantity(i);
+            if (perUnit > 0) {
+                units = Math.min(units, Math.max(0, getStockMilliUnits(bom.getComponentId(i))) / perUnit);
+            }
+        }
+        return units;
+    }
+    
+    /**
+     * Returns the index in the bill of materials of the first leaf whose stock
+     * does not cover one more unit, or -1 if the stock covers it
+     */
+    public int findShortLeaf(BillOfMaterials bom) {
+        for (int i = 0; i < bom.size(); i++) {
+            if (getStockMilliUnits(bom.getComponentId(i)) < bom.getMilliQuantity(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Takes the leaves of the given units out of the stock. The caller checks
+     * that they are covered; stock never goes below zero.
+     */
+    public void deduct(BillOfMaterials bom, long units) {
+        for (int i = 0; i < bom.size(); i++) {
+            int id = bom.getComponentId(i);
+            long[] page = writablePage(id >>> PAGE_SHIFT);
+            page[id & PAGE_MASK] = Math.max(0, page[id & PAGE_MASK] - bom.getMilliQuantity(i) * units);
+        }
+    }
+    
+    /**
+     * Returns the index in the reservation of the first component whose stock
+     * does not cover it, or -1 if the stock covers it all
+     */
+    public int findShortComponent(Reservation reservation) {
+        for (int i = 0; i < reservation.size(); i++) {
+            if (getStockMilliUnits(reservation.getComponent(i)) < reservation.getMilliQuantity(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Takes a planned reservation out of the stock. The caller checks that it is
+     * covered; stock never goes below zero.
+     */
+    public void deduct(Reservation reservation) {
+        for (int i = 0; i < reservation.size(); i++) {
+            int id = reservation.getComponent(i).getId();
+            long[] page = writablePage(id >>> PAGE_SHIFT);
+            page[id & PAGE_MASK] = Math.max(0, page[id & PAGE_MASK] - reservation.getMilliQuantity(i));
+        }
+    }
+    
+    /**
+     * Returns how many pages this snapshot had to copy
+     */
+    public int getCopiedPageCount() {
+        return copiedPageCount;
+    }
+    
+    private long[] writablePage(int page) {
+        if (page >= pages.length) {
+            throw new IllegalArgumentException("No stock for component ID " + (page << PAGE_SHIFT));
+        }
+        if (!ownedPages[page]) {
+            pages[page] = pages[page].clone();
+            ownedPages[page] = true;
+            ownedPageCount++;
+            copiedPageCount++;
+        }
+        return pages[page];
+    }
+}
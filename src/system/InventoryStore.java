@@ -0,0 +1,186 @@
+package system;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps the stock of an {@link InventoryManager} on disk between runs.
+ *
+ * The store directory holds a snapshot, the stock levels in milli-units indexed
+ * by component ID in one memory-mapped file, and the journal of every change made
+ * since (see {@link InventoryJournal}). Each snapshot carries a generation and
+ * each journal is named after the generation it follows, so opening the store
+ * maps the snapshot and replays the journals of its generation and any newer
+ * one; a crash at any point of a checkpoint loses no committed change.
+ *
+ * Stock is restored by component ID, so the components file must list the
+ * components in the same order as when the stock was first stored.
+ */
+public class InventoryStore implements AutoCloseable {
+    /**
+     * How long a change waits at most before its journal record is forced to disk
+     */
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 5;
+    
+    private static final String SNAPSHOT_FILE = "inventory.snapshot";
+    private static final String JOURNAL_PREFIX = "inventory-";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final int MAGIC = 0x494E5653;
+    private static final int VERSION = 1;
+    
+    // Magic, version, generation and component count, followed by one long per component
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    
+    private final Path directory;
+    private final InventoryManager inventory;
+    private final long commitIntervalMillis;
+    private final int restoredComponents;
+    private long generation;
+    private InventoryJournal journal;
+    
+    private InventoryStore(Path directory, InventoryManager inventory, long commitIntervalMillis,
+                           int restoredComponents) {
+        this.directory = directory;
+        this.inventory = inventory;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.restoredComponents = restoredComponents;
+    }
+    
+    public static InventoryStore open(Path directory, InventoryManager inventory) throws IOException {
+        return open(directory, inventory, DEFAULT_COMMIT_INTERVAL_MILLIS);
+    }
+    
+    /**
+     * Restores the stored stock into the inventory, which must not be in use yet,
+     * and journals its changes from then on
+     *
+     * @param commitIntervalMillis How long the journal collects changes before forcing them to disk
+     */
+    public static InventoryStore open(Path directory, InventoryManager inventory, long commitIntervalMillis)
+            throws IOException {
+        if (commitIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Commit interval must be positive: " + commitIntervalMillis);
+        }
+        Files.createDirectories(directory);
+        
+        long generation = 0;
+        long[] levels = new long[0];
+        boolean found = false;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException("Not an inventory snapshot: " + snapshot);
+                }
+                generation = buffer.getLong(8);
+                int count = buffer.getInt(16);
+                if (buffer.capacity() < HEADER_SIZE + (long) count * Long.BYTES) {
+                    throw new IOException("Truncated inventory snapshot: " + snapshot);
+                }
+                levels = new long[count];
+                buffer.position(HEADER_SIZE);
+                buffer.asLongBuffer().get(levels);
+            }
+            found = true;
+        }
+        
+        // Journals older than the snapshot are already in it; newer ones follow in order
+        long lastGeneration = generation;
+        for (long g = generation; Files.exists(journalPath(directory, g)); g++) {
+            levels = InventoryJournal.replay(journalPath(directory, g), levels);
+            lastGeneration = g;
+            found = true;
+        }
+        
+        if (found) {
+            inventory.restoreStockLevels(levels);
+        }
+        InventoryStore store = new InventoryStore(directory, inventory, commitIntervalMillis,
+            found ? levels.length : 0);
+        store.generation = lastGeneration;
+        store.checkpoint();
+        return store;
+    }
+    
+    /**
+     * Returns the number of components whose stock was restored, or 0 for a new store
+     */
+    public int getRestoredComponents() {
+        return restoredComponents;
+    }
+    
+    /**
+     * Waits until every change made so far is on disk
+     */
+    public synchronized void sync() throws IOException {
+        if (journal != null) {
+            journal.sync();
+        }
+    }
+    
+    /**
+     * Writes the current stock as a new snapshot and starts a new, empty journal,
+     * so the next start has nothing to replay
+     */
+    public synchronized void checkpoint() throws IOException {
+        long next = generation + 1;
+        InventoryJournal previous = journal;
+        journal = new InventoryJournal(journalPath(directory, next), commitIntervalMillis);
+        long[] levels = inventory.snapshotAndSetJournal(journal);
+        if (previous != null) {
+            previous.close();
+        }
+        
+        writeSnapshot(levels, next);
+        // The snapshot replaces every older journal
+        long stale = next - 1;
+        while (stale >= 0 && Files.deleteIfExists(journalPath(directory, stale))) {
+            stale--;
+        }
+        generation = next;
+    }
+    
+    /**
+     * Checkpoints and stops journaling the inventory's changes
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        checkpoint();
+        inventory.snapshotAndSetJournal(null);
+        journal.close();
+        journal = null;
+    }
+    
+    private void writeSnapshot(long[] levels, long snapshotGeneration) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) levels.length * Long.BYTES);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(snapshotGeneration);
+            buffer.putInt(levels.length);
+            buffer.putInt(0);
+            ByteBuffer body = buffer.slice();
+            body.asLongBuffer().put(levels);
+            buffer.force();
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private static Path journalPath(Path directory, long generation) {
+        return directory.resolve(JOURNAL_PREFIX + generation + JOURNAL_SUFFIX);
+    }
+}
@@ -1,10 +1,25 @@
 package system;
 
 import component.Product;
+import metrics.ManufacturingMetrics;
+import metrics.MetricsObserver;
+import observer.ProcessObserver;
+import process.BatchManufacturingProcess;
 import process.ManufacturingProcess;
+import process.OutcomeModel;
+import process.UniformOutcomeModel;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Controller class that coordinates the manufacturing process
@@ -14,65 +29,475 @@ public class ManufacturingController {
     private final DataLoader dataLoader;
     private final InventoryManager inventoryManager;
     private final ReportGenerator reportGenerator;
+    private final ExecutionMode executionMode;
+    private final int workerCount;
+    private final WorkerThreadType workerThreadType;
+    private final List<ProcessObserver> observers = new CopyOnWriteArrayList<>();
+    private volatile ManufacturingMetrics metrics;
+    private volatile OutcomeModel outcomeModel = UniformOutcomeModel.INSTANCE;
+    private volatile Long seed;
+    private volatile OrderScheduler scheduler = new OrderScheduler(SchedulingPolicy.CSV_ORDER);
+    private InventoryStore inventoryStore;
+    private volatile String catalogPath;
+    private volatile long liveReportMillis;
+    private volatile BreakdownReport breakdownReport;
+    private volatile int shardCount;
+    private volatile List<Station> stations = Station.defaultStations();
+    
+    // Root of the run's random streams; only the thread that reads the orders splits it
+    private SplittableRandom runRandom;
+    
+    /**
+     * Number of units a single parallel task manufactures
+     */
+    private static final int UNITS_PER_TASK = 256;
+    
+    /**
+     * Parallel tasks allowed in flight per worker, which bounds memory while orders stream in
+     */
+    private static final int TASKS_IN_FLIGHT_PER_WORKER = 4;
+    
+    /**
+     * Units the timed mode keeps in flight at most, each on its own virtual thread
+     */
+    private static final int TIMED_UNITS_IN_FLIGHT = 200_000;
     
     public ManufacturingController() {
+        this(ExecutionMode.SEQUENTIAL, 1, WorkerThreadType.PLATFORM);
+    }
+    
+    /**
+     * @param executionMode How the units of the order book are scheduled
+     * @param workerCount The number of worker threads for the parallel modes
+     * @param workerThreadType Whether the workers are platform or virtual threads
+     * @throws IllegalStateException for the timed mode on a runtime without virtual threads
+     */
+    public ManufacturingController(ExecutionMode executionMode, int workerCount, WorkerThreadType workerThreadType) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+        }
+        if (executionMode == ExecutionMode.TIMED && !WorkerThreadType.isVirtualSupported()) {
+            throw new IllegalStateException("The timed mode runs every unit on a virtual thread and needs Java 21 "
+                + "or later, this runtime is Java " + Runtime.version().feature());
+        }
         this.dataLoader = new DataLoader();
         this.inventoryManager = new InventoryManager();
         this.reportGenerator = new ReportGenerator();
+        this.executionMode = executionMode;
+        this.workerCount = workerCount;
+        this.workerThreadType = workerThreadType;
+    }
+    
+    /**
+     * Attaches an observer to every manufacturing process started by this controller
+     */
+    public void addObserver(ProcessObserver observer) {
+        observers.add(observer);
+    }
+    
+    /**
+     * Records loading, inventory and per-process metrics of every run into the given metrics
+     */
+    public void setMetrics(ManufacturingMetrics metrics) {
+        this.metrics = metrics;
+        dataLoader.setMetrics(metrics);
+        inventoryManager.setMetrics(metrics);
+        addObserver(new MetricsObserver(metrics));
+    }
+    
+    /**
+     * Sets the model that decides the outcome of every unit
+     */
+    public void setOutcomeModel(OutcomeModel outcomeModel) {
+        this.outcomeModel = outcomeModel;
+    }
+    
+    /**
+     * Sets the policy deciding which orders get the stock first. Any policy other
+     * than {@link SchedulingPolicy#CSV_ORDER} reads the whole products file and
+     * plans against the loaded stock before the first unit runs.
+     */
+    public void setSchedulingPolicy(SchedulingPolicy policy) {
+        this.scheduler = new OrderScheduler(policy);
+    }
+    
+    /**
+     * Makes the outcome draws of every run reproducible.
+     * Each order (or, in the parallel modes, each task) gets its own stream split
+     * from the seed in submission order, so the draws do not depend on thread
+     * timing. Which units get the stock in PARALLEL_THROUGHPUT mode still does.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Prints a one-line live report to stderr on the given period while a run is
+     * going on, or no live report when the period is 0
+     */
+    public void setLiveReportPeriod(long period, TimeUnit unit) {
+        if (period < 0) {
+            throw new IllegalArgumentException("Live report period must not be negative: " + period);
+        }
+        this.liveReportMillis = unit.toMillis(period);
+    }
+    
+    /**
+     * Also records every finished unit into the given breakdown, which is reset
+     * at the start of each run
+     */
+    public void setBreakdownReport(BreakdownReport breakdownReport) {
+        this.breakdownReport = breakdownReport;
+    }
+    
+    /**
+     * Splits the stock into the given number of {@link ShardedInventory shards}
+     * for the parallel modes, each worker thread taking its units from one shard
+     * and pulling stock from the others when it runs short; 0 keeps one shared
+     * inventory. The stock is back in one inventory when the run ends.
+     */
+    public void setShardCount(int shardCount) {
+        if (shardCount < 0) {
+            throw new IllegalArgumentException("Shard count must not be negative: " + shardCount);
+        }
+        this.shardCount = shardCount;
     }
     
     /**
-     * Loads data and processes manufacturing orders
+     * Sets the stations of the {@link ExecutionMode#TIMED} mode. States without a
+     * station take no time and have no capacity limit.
+     */
+    public void setStations(List<Station> stations) {
+        Map<String, Station> byState = new HashMap<>();
+        for (Station station : stations) {
+            if (byState.put(station.getStateName(), station) != null) {
+                throw new IllegalArgumentException("Two stations for state " + station.getStateName());
+            }
+        }
+        this.stations = List.copyOf(stations);
+    }
+    
+    public List<Station> getStations() {
+        return stations;
+    }
+    
+    /**
+     * Returns the report of the last run
+     */
+    public ReportGenerator getReportGenerator() {
+        return reportGenerator;
+    }
+    
+    public InventoryManager getInventoryManager() {
+        return inventoryManager;
+    }
+    
+    /**
+     * Loads every run from a catalog compiled by {@link CatalogCompiler} instead
+     * of the CSV files, or from the CSV files again when null
+     */
+    public void setCatalog(String catalogPath) {
+        this.catalogPath = catalogPath;
+    }
+    
+    /**
+     * Keeps the inventory in a store in the given directory, restoring the stock
+     * it holds and journaling every change; each run ends with a checkpoint.
+     * Must be called before the first run.
+     *
+     * @return The store, e.g. to report how many components were restored
+     */
+    public InventoryStore openInventoryStore(Path directory) throws IOException {
+        if (inventoryStore != null) {
+            throw new IllegalStateException("Inventory store already open");
+        }
+        inventoryStore = InventoryStore.open(directory, inventoryManager);
+        return inventoryStore;
+    }
+    
+    /**
+     * Checkpoints and closes the inventory store, if one is open
+     */
+    public void closeInventoryStore() throws IOException {
+        if (inventoryStore != null) {
+            inventoryStore.close();
+            inventoryStore = null;
+        }
+    }
+    
+    /**
+     * Loads data and processes manufacturing orders.
+     * Orders are processed while the products file is still being read, and every
+     * finished unit goes straight into the report's running totals, so memory stays
+     * flat however many units are ordered.
      */
     public void processManufacturingOrders(String componentsFilePath, String productsFilePath) {
+        reportGenerator.reset();
+        BreakdownReport breakdownReport = this.breakdownReport;
+        if (breakdownReport != null) {
+            breakdownReport.reset();
+        }
+        Long seed = this.seed;
+        runRandom = seed != null ? new SplittableRandom(seed) : new SplittableRandom();
+        long liveReportMillis = this.liveReportMillis;
+        if (liveReportMillis > 0) {
+            reportGenerator.startLiveReport(liveReportMillis, TimeUnit.MILLISECONDS, System.err);
+        }
         try {
-            // Load data and initialize inventory
-            List<ManufacturingOrder> orders = dataLoader.loadDataAndInitialize(
-                componentsFilePath, productsFilePath, inventoryManager);
+            if (executionMode == ExecutionMode.SEQUENTIAL || executionMode == ExecutionMode.BATCH) {
+                // Load data and process each order as soon as it is parsed (or planned)
+                streamOrders(componentsFilePath, productsFilePath, this::processOrder);
+            } else if (executionMode == ExecutionMode.TIMED) {
+                processOrdersTimed(componentsFilePath, productsFilePath);
+            } else {
+                processOrdersInParallel(componentsFilePath, productsFilePath);
+            }
             
-            // Process all manufacturing orders
-            List<ManufacturingProcess> allResults = processOrders(orders);
+            // Let buffered observers catch up so their output comes before the report
+            for (ProcessObserver observer : observers) {
+                observer.flush();
+            }
+            reportGenerator.stopLiveReport();
             
-            // Generate final report
-            reportGenerator.generateReport(allResults);
+            // Compact the journal of this run into the stored snapshot
+            if (inventoryStore != null) {
+                inventoryStore.checkpoint();
+            }
             
+            // Generate final report
+            reportGenerator.printReport();
+        
         } catch (IOException e) {
             System.err.println("Error processing manufacturing system: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            reportGenerator.stopLiveReport();
+        }
+    }
+    
+    /**
+     * Hands the orders to the consumer, straight from the file in CSV order or,
+     * under a scheduling policy, in the planned sequence once all are loaded
+     */
+    private void streamOrders(String componentsFilePath, String productsFilePath,
+                              Consumer<ManufacturingOrder> orderConsumer) throws IOException {
+        OrderScheduler scheduler = this.scheduler;
+        String catalogPath = this.catalogPath;
+        if (scheduler.getPolicy() == SchedulingPolicy.CSV_ORDER) {
+            if (catalogPath != null) {
+                dataLoader.loadCatalogAndStreamOrders(catalogPath, inventoryManager, orderConsumer);
+            } else {
+                dataLoader.loadDataAndStreamOrders(componentsFilePath, productsFilePath, inventoryManager,
+                    orderConsumer);
+            }
+            return;
+        }
+        
+        List<ManufacturingOrder> orders = catalogPath != null
+            ? dataLoader.loadCatalogAndInitialize(catalogPath, inventoryManager)
+            : dataLoader.loadDataAndInitialize(componentsFilePath, productsFilePath, inventoryManager);
+        for (ManufacturingOrder order : scheduler.schedule(orders, inventoryManager)) {
+            orderConsumer.accept(order);
         }
     }
     
     /**
-     * Processes orders in the exact sequence they appear in the CSV file
+     * Processes a single order on the calling thread, either unit by unit or as one batch
      */
-    private List<ManufacturingProcess> processOrders(List<ManufacturingOrder> orders) {
-        List<ManufacturingProcess> allResults = new ArrayList<>();
+    private void processOrder(ManufacturingOrder order) {
+        if (executionMode == ExecutionMode.BATCH) {
+            BatchManufacturingProcess batch = order.createBatchProcess(inventoryManager, outcomeModel,
+                runRandom.split());
+            batch.process();
+            reportGenerator.record(batch);
+            BreakdownReport breakdownReport = this.breakdownReport;
+            if (breakdownReport != null) {
+                breakdownReport.record(batch);
+            }
+            ManufacturingMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.recordBatch(batch);
+            }
+            return;
+        }
         
-        // Iterate through each order in the exact order they appear in the CSV
-        for (ManufacturingOrder order : orders) {
-            Product product = order.getProduct();
-            int quantityToMake = order.getQuantity();
+        Product product = order.getProduct();
+        int quantityToMake = order.getQuantity();
+        SplittableRandom random = runRandom.split();
+        BreakdownReport breakdownReport = this.breakdownReport;
+        
+        // Try to manufacture each individual product
+        for (int i = 0; i < quantityToMake; i++) {
+            ManufacturingProcess process = createManufacturingProcess(product, inventoryManager, random);
             
-            // Try to manufacture each individual product
-            for (int i = 0; i < quantityToMake; i++) {
-                ManufacturingProcess process = createManufacturingProcess(product);
-                
-                // Process until completed or failed
-                completeManufacturingProcess(process);
+            // Process until completed or failed
+            completeManufacturingProcess(process);
+            
+            // Add to the running totals
+            reportGenerator.record(process);
+            if (breakdownReport != null) {
+                breakdownReport.record(process);
+            }
+        }
+    }
+    
+    /**
+     * Splits the units of every order into tasks and runs them on the worker pool as the
+     * orders stream in. In ordered mode an order's tasks must all finish before the next
+     * order starts.
+     */
+    private void processOrdersInParallel(String componentsFilePath, String productsFilePath) throws IOException {
+        int maxTasksInFlight = workerCount * TASKS_IN_FLIGHT_PER_WORKER;
+        Semaphore tasksInFlight = new Semaphore(maxTasksInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int shardCount = this.shardCount;
+        ShardedInventory shardedInventory = shardCount > 0
+            ? new ShardedInventory(inventoryManager, shardCount) : null;
+        boolean[] distributed = new boolean[1];
+        
+        ExecutorService executor = workerThreadType.createExecutor(workerCount);
+        try {
+            streamOrders(componentsFilePath, productsFilePath, order -> {
+                // Every component is loaded before the first order arrives
+                if (shardedInventory != null && !distributed[0]) {
+                    shardedInventory.distribute();
+                    distributed[0] = true;
+                }
+                for (int start = 0; start < order.getQuantity(); start += UNITS_PER_TASK) {
+                    int count = Math.min(UNITS_PER_TASK, order.getQuantity() - start);
+                    acquire(tasksInFlight, 1);
+                    executor.execute(createUnitTask(order.getProduct(), count, runRandom.split(),
+                        shardedInventory, tasksInFlight, failure));
+                }
                 
-                // Add to results
-                allResults.add(process);
+                if (executionMode == ExecutionMode.PARALLEL_ORDERED) {
+                    awaitTasks(tasksInFlight, maxTasksInFlight, failure);
+                }
+            });
+            awaitTasks(tasksInFlight, maxTasksInFlight, failure);
+        } finally {
+            executor.shutdownNow();
+            if (shardedInventory != null) {
+                shardedInventory.consolidate();
             }
         }
+        if (shardedInventory != null) {
+            reportGenerator.recordShards(shardedInventory);
+        }
+    }
+    
+    /**
+     * Runs every unit on its own virtual thread through the stations. Units queue
+     * for the machines of a station while their threads sleep through the service
+     * time, so a unit in flight costs a virtual thread rather than a platform thread.
+     */
+    private void processOrdersTimed(String componentsFilePath, String productsFilePath) throws IOException {
+        List<Station> stations = this.stations;
+        Map<String, Station> byState = new HashMap<>();
+        for (Station station : stations) {
+            station.reset();
+            byState.put(station.getStateName(), station);
+        }
+        Semaphore unitsInFlight = new Semaphore(TIMED_UNITS_IN_FLIGHT);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        BreakdownReport breakdownReport = this.breakdownReport;
+        long start = System.nanoTime();
+        
+        ExecutorService executor = WorkerThreadType.createVirtualThreadPerTaskExecutor();
+        try {
+            streamOrders(componentsFilePath, productsFilePath, order -> {
+                for (int i = 0; i < order.getQuantity(); i++) {
+                    SplittableRandom random = runRandom.split();
+                    acquire(unitsInFlight, 1);
+                    executor.execute(() -> {
+                        try {
+                            ManufacturingProcess process = createManufacturingProcess(order.getProduct(),
+                                inventoryManager, random);
+                            while (!process.isCompleted()) {
+                                Station station = byState.get(process.getCurrentState().getName());
+                                if (station != null) {
+                                    station.serve(process);
+                                } else {
+                                    process.process();
+                                }
+                            }
+                            reportGenerator.record(process);
+                            if (breakdownReport != null) {
+                                breakdownReport.record(process);
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            unitsInFlight.release();
+                        }
+                    });
+                }
+            });
+            awaitTasks(unitsInFlight, TIMED_UNITS_IN_FLIGHT, failure);
+        } finally {
+            executor.shutdownNow();
+        }
+        Station.printReport(stations, System.nanoTime() - start, System.out);
+    }
+    
+    /**
+     * Creates a task that manufactures a range of units and records them in the report.
+     * With a sharded inventory the units draw on the shard of the worker thread.
+     */
+    private Runnable createUnitTask(Product product, int count, SplittableRandom random,
+                                    ShardedInventory shardedInventory, Semaphore tasksInFlight,
+                                    AtomicReference<Throwable> failure) {
+        BreakdownReport breakdownReport = this.breakdownReport;
+        return () -> {
+            try {
+                InventoryManager inventory = shardedInventory != null
+                    ? shardedInventory.getLocalShard() : inventoryManager;
+                for (int i = 0; i < count; i++) {
+                    ManufacturingProcess process = createManufacturingProcess(product, inventory, random);
+                    completeManufacturingProcess(process);
+                    reportGenerator.record(process);
+                    if (breakdownReport != null) {
+                        breakdownReport.record(process);
+                    }
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                tasksInFlight.release();
+            }
+        };
+    }
+    
+    /**
+     * Waits until no task is in flight, rethrowing the first task failure
+     */
+    private void awaitTasks(Semaphore tasksInFlight, int maxTasksInFlight, AtomicReference<Throwable> failure) {
+        acquire(tasksInFlight, maxTasksInFlight);
+        tasksInFlight.release(maxTasksInFlight);
         
-        return allResults;
+        Throwable cause = failure.get();
+        if (cause != null) {
+            throw new IllegalStateException("Manufacturing task failed", cause);
+        }
+    }
+    
+    private void acquire(Semaphore semaphore, int permits) {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing manufacturing orders", e);
+        }
     }
     
     /**
-     * Creates a new manufacturing process
+     * Creates a new manufacturing process on the given inventory, drawing its outcome from the given random stream
      */
-    private ManufacturingProcess createManufacturingProcess(Product product) {
-        return new ManufacturingProcess(product, inventoryManager);
+    private ManufacturingProcess createManufacturingProcess(Product product, InventoryManager inventory,
+                                                            SplittableRandom random) {
+        // Every process shares the controller's copy-on-write observer list
+        return new ManufacturingProcess(product, inventory, observers.isEmpty() ? null : observers,
+            outcomeModel, random);
     }
     
     /**
@@ -83,4 +508,4 @@ public class ManufacturingController {
             process.process();
         }
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
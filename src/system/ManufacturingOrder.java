@@ -1,6 +1,10 @@
 package system;
 
 import component.Product;
+import process.BatchManufacturingProcess;
+import process.OutcomeModel;
+
+import java.util.random.RandomGenerator;
 
 public class ManufacturingOrder {
     private final Product product;
@@ -18,4 +22,19 @@ public class ManufacturingOrder {
     public int getQuantity() {
         return quantity;
     }
+    
+    /**
+     * Creates a process that manufactures every unit of this order in one batch
+     */
+    public BatchManufacturingProcess createBatchProcess(InventoryManager inventoryManager) {
+        return new BatchManufacturingProcess(product, quantity, inventoryManager);
+    }
+    
+    /**
+     * Creates a batch process that draws its outcomes from the given model and random source
+     */
+    public BatchManufacturingProcess createBatchProcess(InventoryManager inventoryManager, OutcomeModel outcomeModel,
+                                                        RandomGenerator random) {
+        return new BatchManufacturingProcess(product, quantity, inventoryManager, outcomeModel, random);
+    }
 } 
\ No newline at end of file
@@ -14,6 +14,12 @@ public class ManufacturingSystem {
         this.controller = new ManufacturingController();
     }
     
+    public ManufacturingSystem(String componentsFilePath, String productsFilePath, ManufacturingController controller) {
+        this.componentsFilePath = componentsFilePath;
+        this.productsFilePath = productsFilePath;
+        this.controller = controller;
+    }
+    
     public void run() {
         controller.processManufacturingOrders(componentsFilePath, productsFilePath);
     }
@@ -0,0 +1,44 @@
+package system;
+
+import component.Component;
+import process.BatchManufacturingProcess;
+import process.ManufacturingOutcome;
+
+/**
+ * The outcome of one order placed with the {@link OrderService}: how many of its
+ * units ended in each {@link ManufacturingOutcome}. The planner may run an order
+ * in several parts; their counts are added up here.
+ */
+public class OrderResult {
+    private final ManufacturingOrder order;
+    private final int[] outcomeCounts = new int[ManufacturingOutcome.values().length];
+    private Component shortComponent;
+    
+    OrderResult(ManufacturingOrder order) {
+        this.order = order;
+    }
+    
+    void add(BatchManufacturingProcess batch) {
+        for (ManufacturingOutcome outcome : ManufacturingOutcome.values()) {
+            outcomeCounts[outcome.ordinal()] += batch.getOutcomeCount(outcome);
+        }
+        if (batch.getShortComponent() != null) {
+            shortComponent = batch.getShortComponent();
+        }
+    }
+    
+    public ManufacturingOrder getOrder() {
+        return order;
+    }
+    
+    public int getOutcomeCount(ManufacturingOutcome outcome) {
+        return outcomeCounts[outcome.ordinal()];
+    }
+    
+    /**
+     * Returns the component that limited the order when units failed with a stock shortage, or null
+     */
+    public Component getShortComponent() {
+        return shortComponent;
+    }
+}
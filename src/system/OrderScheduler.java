@@ -0,0 +1,193 @@
+package system;
+
+import component.BillOfMaterials;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides the order in which manufacturing orders take stock.
+ *
+ * Planning runs on a copy of the inventory's stock levels: the orders are
+ * ranked by the {@link SchedulingPolicy}, then each order in turn is given as
+ * many units as the remaining stock covers. The planned units of every order
+ * run first, in rank order; units the plan could not cover follow in file
+ * order, so no order is dropped and they still get any stock that failed
+ * units leave behind. Planning works on the flattened bills of materials and
+ * takes O(orders x BOM size) time besides the sort.
+ *
+ * The plan is a conservative bound: it counts every planned unit as taking its
+ * stock, while a unit that fails gives it back. An order ranked after others
+ * may therefore be planned for fewer units than the run ends up covering; the
+ * rest of it runs in the remainder, where it takes the stock the failed units
+ * returned.
+ */
+public class OrderScheduler {
+    private final SchedulingPolicy policy;
+    
+    public OrderScheduler(SchedulingPolicy policy) {
+        this.policy = policy;
+    }
+    
+    public SchedulingPolicy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * Returns the orders in the sequence they should run, with orders split into
+     * a planned part and a remainder where the stock does not cover all units
+     */
+    public List<ManufacturingOrder> schedule(List<ManufacturingOrder> orders, InventoryManager inventory) {
+        if (policy == SchedulingPolicy.CSV_ORDER) {
+            return orders;
+        }
+        
+        int[] sequence = plan(orders, inventory);
+        List<ManufacturingOrder> scheduled = new ArrayList<>(sequence.length / 2);
+        for (int i = 0; i < sequence.length; i += 2) {
+            scheduled.add(new ManufacturingOrder(orders.get(sequence[i]).getProduct(), sequence[i + 1]));
+        }
+        return scheduled;
+    }
+    
+    /**
+     * Plans the same sequence as {@link #schedule}, as pairs of the index of an
+     * order in the given list and the units of it to run, so a caller can tell
+     * which order each part belongs to
+     */
+    int[] plan(List<ManufacturingOrder> orders, InventoryManager inventory) {
+        if (policy == SchedulingPolicy.CSV_ORDER) {
+            int[] sequence = new int[orders.size() * 2];
+            for (int i = 0; i < orders.size(); i++) {
+                sequence[2 * i] = i;
+                sequence[2 * i + 1] = orders.get(i).getQuantity();
+            }
+            return sequence;
+        }
+        
+        long[] stock = inventory.snapshotStockLevels();
+        BillOfMaterials[] boms = new BillOfMaterials[orders.size()];
+        for (int i = 0; i < boms.length; i++) {
+            boms[i] = orders.get(i).getProduct().getBillOfMaterials();
+        }
+        
+        double[] priorities = priorities(orders, boms, stock);
+        Integer[] ranking = new Integer[orders.size()];
+        for (int i = 0; i < ranking.length; i++) {
+            ranking[i] = i;
+        }
+        // Highest priority first; the sort is stable, so ties keep file order
+        Arrays.sort(ranking, Comparator.comparingDouble((Integer i) -> priorities[i]).reversed());
+        
+        int[] plannedUnits = new int[orders.size()];
+        for (int index : ranking) {
+            plannedUnits[index] = allocate(boms[index], orders.get(index).getQuantity(), stock);
+        }
+        
+        int[] sequence = new int[orders.size() * 4];
+        int length = 0;
+        for (int index : ranking) {
+            if (plannedUnits[index] > 0) {
+                sequence[length++] = index;
+                sequence[length++] = plannedUnits[index];
+            }
+        }
+        for (int i = 0; i < orders.size(); i++) {
+            int remaining = orders.get(i).getQuantity() - plannedUnits[i];
+            if (remaining > 0) {
+                sequence[length++] = i;
+                sequence[length++] = remaining;
+            }
+        }
+        return Arrays.copyOf(sequence, length);
+    }
+    
+    private double[] priorities(List<ManufacturingOrder> orders, BillOfMaterials[] boms, long[] stock) {
+        double[] priorities = new double[boms.length];
+        switch (policy) {
+            case GREEDY_BY_VALUE:
+                for (int i = 0; i < boms.length; i++) {
+                    priorities[i] = boms[i].getCost();
+                }
+                break;
+            case SHORTEST_BOM_FIRST:
+                for (int i = 0; i < boms.length; i++) {
+                    long milliUnits = 0;
+                    for (int c = 0; c < boms[i].size(); c++) {
+                        milliUnits += boms[i].getMilliQuantity(c);
+                    }
+                    priorities[i] = -milliUnits;
+                }
+                break;
+            case KNAPSACK:
+                double[] pressure = stockPressure(orders, boms, stock);
+                for (int i = 0; i < boms.length; i++) {
+                    double scarceUse = 0;
+                    for (int c = 0; c < boms[i].size(); c++) {
+                        int id = boms[i].getComponentId(c);
+                        if (id < pressure.length) {
+                            scarceUse += boms[i].getMilliQuantity(c) * pressure[id];
+                        }
+                    }
+                    priorities[i] = scarceUse > 0 ? boms[i].getCost() / scarceUse : Double.POSITIVE_INFINITY;
+                }
+                break;
+            default:
+                break;
+        }
+        return priorities;
+    }
+    
+    /**
+     * Weighs each component by how oversubscribed it is: zero if the whole order book
+     * fits in the stock, otherwise demand / stock per unit of stock
+     */
+    private static double[] stockPressure(List<ManufacturingOrder> orders, BillOfMaterials[] boms, long[] stock) {
+        double[] demand = new double[stock.length];
+        for (int i = 0; i < boms.length; i++) {
+            long quantity = orders.get(i).getQuantity();
+            for (int c = 0; c < boms[i].size(); c++) {
+                int id = boms[i].getComponentId(c);
+                if (id < demand.length) {
+                    demand[id] += (double) boms[i].getMilliQuantity(c) * quantity;
+                }
+            }
+        }
+        
+        double[] pressure = new double[stock.length];
+        for (int id = 0; id < stock.length; id++) {
+            double available = Math.max(1, stock[id]);
+            if (demand[id] > stock[id]) {
+                pressure[id] = demand[id] / available / available;
+            }
+        }
+        return pressure;
+    }
+    
+    /**
+     * Takes stock (in milli-units) from the snapshot for as many units of the order as it covers,
+     * as if every unit succeeded
+     *
+     * @return The number of units planned
+     */
+    private static int allocate(BillOfMaterials bom, int quantity, long[] stock) {
+        long units = quantity;
+        for (int c = 0; c < bom.size(); c++) {
+            int id = bom.getComponentId(c);
+            long perUnit = bom.getMilliQuantity(c);
+            if (perUnit > 0) {
+                long available = id < stock.length ? Math.max(0, stock[id]) : 0;
+                units = Math.min(units, available / perUnit);
+            }
+        }
+        for (int c = 0; c < bom.size(); c++) {
+            int id = bom.getComponentId(c);
+            if (id < stock.length) {
+                stock[id] -= units * bom.getMilliQuantity(c);
+            }
+        }
+        return (int) units;
+    }
+}
@@ -0,0 +1,431 @@
+package system;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import component.Product;
+import process.BatchManufacturingProcess;
+import process.ManufacturingOutcome;
+import process.OutcomeModel;
+import process.UniformOutcomeModel;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running order service that keeps the catalog and the inventory in memory
+ * and manufactures orders as they come in over a local HTTP endpoint.
+ *
+ * Requests are not served one by one: a single planner thread takes the first
+ * waiting request, collects every request that arrives within the batch window
+ * after it, plans all their orders together with the {@link OrderScheduler} and
+ * runs each planned part as a {@link BatchManufacturingProcess}. The planner is
+ * the only thread that touches the inventory, so a pass never contends on the
+ * stock, and a burst of small requests costs one planning pass instead of many.
+ *
+ * Endpoints, all on the loopback address:
+ * <ul>
+ *   <li>POST /orders with one "product name;quantity" line per order; the response
+ *       has one "product name;quantity;completed;stock shortage;system error;damaged component"
+ *       line per order, in request order</li>
+ *   <li>GET /products lists the product names that can be ordered</li>
+ *   <li>GET /report returns a one-line snapshot of the totals since the start</li>
+ * </ul>
+ */
+public class OrderService implements AutoCloseable {
+    /**
+     * How long the planner waits for more requests after the first one of a pass
+     */
+    public static final long DEFAULT_BATCH_WINDOW_MILLIS = 5;
+    
+    // Read once, when the JDK's HTTP server is first used
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    
+    private static final ManufacturingOutcome[] RESPONSE_OUTCOMES = {
+        ManufacturingOutcome.COMPLETED,
+        ManufacturingOutcome.FAILED_STOCK_SHORTAGE,
+        ManufacturingOutcome.FAILED_SYSTEM_ERROR,
+        ManufacturingOutcome.FAILED_DAMAGED_COMPONENT
+    };
+    
+    private final InventoryManager inventoryManager = new InventoryManager();
+    private final ReportGenerator reportGenerator = new ReportGenerator();
+    private final DataLoader dataLoader = new DataLoader();
+    private final Map<String, Product> products = new LinkedHashMap<>();
+    private final BlockingQueue<PendingRequest> requests = new LinkedBlockingQueue<>();
+    private final long batchWindowNanos;
+    private volatile OrderScheduler scheduler = new OrderScheduler(SchedulingPolicy.CSV_ORDER);
+    private volatile OutcomeModel outcomeModel = UniformOutcomeModel.INSTANCE;
+    private volatile boolean closed;
+    private SplittableRandom random = new SplittableRandom();
+    private Thread planner;
+    private HttpServer server;
+    private ExecutorService handlers;
+    
+    public OrderService() {
+        this(DEFAULT_BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * @param batchWindow How long the planner collects requests before a pass, 0 for no waiting
+     */
+    public OrderService(long batchWindow, TimeUnit unit) {
+        if (batchWindow < 0) {
+            throw new IllegalArgumentException("Batch window must not be negative: " + batchWindow);
+        }
+        this.batchWindowNanos = unit.toNanos(batchWindow);
+    }
+    
+    /**
+     * Returns the inventory, e.g. to keep it in an {@link InventoryStore}, which
+     * must then be opened before the catalog is loaded
+     */
+    public InventoryManager getInventoryManager() {
+        return inventoryManager;
+    }
+    
+    public void setSchedulingPolicy(SchedulingPolicy policy) {
+        this.scheduler = new OrderScheduler(policy);
+    }
+    
+    public void setOutcomeModel(OutcomeModel outcomeModel) {
+        this.outcomeModel = outcomeModel;
+    }
+    
+    /**
+     * Makes the outcome draws reproducible for a given sequence of passes. Must be
+     * called before the service is started.
+     */
+    public void setSeed(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+    
+    /**
+     * Loads the stock from the components file and the orderable products from
+     * the products file; the orders in the products file are not run
+     */
+    public void loadCatalog(String componentsCsvPath, String productsCsvPath) throws IOException {
+        addProducts(dataLoader.loadDataAndInitialize(componentsCsvPath, productsCsvPath, inventoryManager));
+    }
+    
+    /**
+     * Loads the stock and the orderable products from a catalog compiled by {@link CatalogCompiler}
+     */
+    public void loadCompiledCatalog(String catalogPath) throws IOException {
+        addProducts(dataLoader.loadCatalogAndInitialize(catalogPath, inventoryManager));
+    }
+    
+    private void addProducts(List<ManufacturingOrder> orders) {
+        for (ManufacturingOrder order : orders) {
+            products.putIfAbsent(order.getProduct().getName(), order.getProduct());
+        }
+    }
+    
+    /**
+     * Returns the names of the products that can be ordered, in catalog order
+     */
+    public List<String> getProductNames() {
+        return new ArrayList<>(products.keySet());
+    }
+    
+    /**
+     * Returns the orderable product with the given name, or null
+     */
+    public Product getProduct(String name) {
+        return products.get(name);
+    }
+    
+    public ReportGenerator getReportGenerator() {
+        return reportGenerator;
+    }
+    
+    /**
+     * Starts the planner and an HTTP server on the loopback address
+     *
+     * @param port The port to listen on, or 0 for any free port
+     * @param threadType The kind of threads that handle requests
+     * @param handlerThreads The number of request handler threads
+     */
+    public synchronized void start(int port, WorkerThreadType threadType, int handlerThreads) throws IOException {
+        if (planner != null) {
+            throw new IllegalStateException("Order service already started");
+        }
+        planner = new Thread(this::planRequests, "order-planner");
+        planner.setDaemon(true);
+        planner.start();
+        
+        // Small responses would otherwise wait for the client's delayed ACK, about 40 ms per request
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/orders", this::handleOrders);
+        server.createContext("/products", this::handleProducts);
+        server.createContext("/report", exchange -> respond(exchange, 200, reportGenerator.getLiveSnapshot() + "\n"));
+        handlers = threadType.createExecutor(handlerThreads);
+        server.setExecutor(handlers);
+        server.start();
+    }
+    
+    /**
+     * Returns the port the server listens on
+     */
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("Order service not started");
+        }
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Places orders and waits until the planner has run them
+     *
+     * @return One result per order, in the same sequence
+     */
+    public List<OrderResult> submit(List<ManufacturingOrder> orders) throws InterruptedException {
+        try {
+            return submitAsync(orders).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Order pass failed", cause);
+        }
+    }
+    
+    /**
+     * Places orders without waiting, so a caller does not hold a thread while
+     * its request waits for the next pass
+     *
+     * @return The results, one per order in the same sequence, once the planner has run them
+     */
+    public CompletableFuture<List<OrderResult>> submitAsync(List<ManufacturingOrder> orders) {
+        if (closed) {
+            throw new IllegalStateException("Order service closed");
+        }
+        PendingRequest request = new PendingRequest(orders);
+        requests.add(request);
+        // close() may have drained the queue between the check and the add; then
+        // nothing else will ever complete the request. If close() got to it first,
+        // remove() fails and close() has already failed the request.
+        if (closed && requests.remove(request)) {
+            request.results.completeExceptionally(new IllegalStateException("Order service closed"));
+        }
+        return request.results;
+    }
+    
+    /**
+     * Stops the server and the planner. Requests still waiting fail.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (server != null) {
+            server.stop(0);
+        }
+        if (planner != null) {
+            planner.interrupt();
+            try {
+                planner.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        PendingRequest request;
+        while ((request = requests.poll()) != null) {
+            request.results.completeExceptionally(new IllegalStateException("Order service closed"));
+        }
+        // Only now, so the failed requests above can still be answered
+        if (handlers != null) {
+            handlers.shutdownNow();
+        }
+    }
+    
+    /**
+     * The planner loop: one pass per batch window
+     */
+    private void planRequests() {
+        List<PendingRequest> pass = new ArrayList<>();
+        try {
+            while (!closed) {
+                pass.add(requests.take());
+                long deadline = System.nanoTime() + batchWindowNanos;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    PendingRequest next = requests.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    pass.add(next);
+                }
+                requests.drainTo(pass);
+                runPass(pass);
+                pass.clear();
+            }
+        } catch (InterruptedException e) {
+            for (PendingRequest request : pass) {
+                request.results.completeExceptionally(new IllegalStateException("Order service closed"));
+            }
+        }
+    }
+    
+    /**
+     * Plans the orders of every request in the pass together and manufactures them
+     */
+    private void runPass(List<PendingRequest> pass) {
+        try {
+            List<ManufacturingOrder> orders = new ArrayList<>();
+            List<OrderResult> results = new ArrayList<>();
+            for (PendingRequest request : pass) {
+                for (ManufacturingOrder order : request.orders) {
+                    orders.add(order);
+                    results.add(new OrderResult(order));
+                }
+            }
+            
+            int[] sequence = scheduler.plan(orders, inventoryManager);
+            for (int i = 0; i < sequence.length; i += 2) {
+                ManufacturingOrder part = new ManufacturingOrder(orders.get(sequence[i]).getProduct(), sequence[i + 1]);
+                BatchManufacturingProcess batch = part.createBatchProcess(inventoryManager, outcomeModel, random.split());
+                batch.process();
+                reportGenerator.record(batch);
+                results.get(sequence[i]).add(batch);
+            }
+            
+            int start = 0;
+            for (PendingRequest request : pass) {
+                int end = start + request.orders.size();
+                request.results.complete(Collections.unmodifiableList(results.subList(start, end)));
+                start = end;
+            }
+        } catch (RuntimeException e) {
+            for (PendingRequest request : pass) {
+                request.results.completeExceptionally(e);
+            }
+        }
+    }
+    
+    private void handleOrders(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Use POST with one 'product name;quantity' line per order\n");
+            return;
+        }
+        List<ManufacturingOrder> orders;
+        try {
+            orders = parseOrders(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage() + "\n");
+            return;
+        }
+        
+        CompletableFuture<List<OrderResult>> results;
+        try {
+            results = submitAsync(orders);
+        } catch (IllegalStateException e) {
+            respond(exchange, 503, e.getMessage() + "\n");
+            return;
+        }
+        // The handler thread is free for the next request while this one waits for its pass
+        results.whenCompleteAsync((orderResults, failure) -> {
+            try {
+                if (failure != null) {
+                    respond(exchange, 503, failure.getMessage() + "\n");
+                } else {
+                    respond(exchange, 200, formatResults(orderResults));
+                }
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, handlers);
+    }
+    
+    private static String formatResults(List<OrderResult> results) {
+        StringBuilder response = new StringBuilder();
+        for (OrderResult result : results) {
+            response.append(result.getOrder().getProduct().getName()).append(';').append(result.getOrder().getQuantity());
+            for (ManufacturingOutcome outcome : RESPONSE_OUTCOMES) {
+                response.append(';').append(result.getOutcomeCount(outcome));
+            }
+            response.append('\n');
+        }
+        return response.toString();
+    }
+    
+    private void handleProducts(HttpExchange exchange) throws IOException {
+        StringBuilder response = new StringBuilder();
+        for (String name : products.keySet()) {
+            response.append(name).append('\n');
+        }
+        respond(exchange, 200, response.toString());
+    }
+    
+    /**
+     * Parses "product name;quantity" lines, skipping blank ones
+     */
+    private List<ManufacturingOrder> parseOrders(String body) {
+        List<ManufacturingOrder> orders = new ArrayList<>();
+        for (String line : body.split("\r?\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int separator = line.lastIndexOf(';');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected 'product name;quantity': " + line);
+            }
+            String name = line.substring(0, separator).trim();
+            Product product = products.get(name);
+            if (product == null) {
+                throw new IllegalArgumentException("Unknown product: " + name);
+            }
+            int quantity;
+            try {
+                quantity = Integer.parseInt(line.substring(separator + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid quantity: " + line);
+            }
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive: " + line);
+            }
+            orders.add(new ManufacturingOrder(product, quantity));
+        }
+        if (orders.isEmpty()) {
+            throw new IllegalArgumentException("No orders in request");
+        }
+        return orders;
+    }
+    
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * The orders of one request and the future its handler waits on
+     */
+    private static final class PendingRequest {
+        final List<ManufacturingOrder> orders;
+        final CompletableFuture<List<OrderResult>> results = new CompletableFuture<>();
+        
+        PendingRequest(List<ManufacturingOrder> orders) {
+            this.orders = orders;
+        }
+    }
+}
@@ -1,44 +1,180 @@
 package system;
 
 import component.Product;
+import process.BatchManufacturingProcess;
 import process.ManufacturingOutcome;
 import process.ManufacturingProcess;
-import java.util.List;
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Builds the summary report from running totals, so finished processes can be
+ * recorded as they complete and do not have to be kept until the end of the run.
+ *
+ * The totals are striped adders: recording never locks, so parallel workers do
+ * not contend on the report, and the stripes are only summed when a snapshot
+ * is taken. Memory stays constant however many units are recorded, and a live
+ * snapshot can be printed on a fixed period while the run is going on.
+ */
 public class ReportGenerator {
+    private static final ManufacturingOutcome[] OUTCOMES = ManufacturingOutcome.values();
+    
+    private final LongAdder[] outcomeCounts = new LongAdder[OUTCOMES.length];
+    private final DoubleAdder totalCost = new DoubleAdder();
+    private final DoubleAdder totalWeight = new DoubleAdder();
+    private volatile long startNanos = System.nanoTime();
+    
+    // Set by a sharded run, printed with the report; zero shards for an unsharded run
+    private volatile int shardCount;
+    private volatile long shardTransfers;
+    private volatile long uncoveredShardShortages;
+    private ScheduledExecutorService liveReportScheduler;
+    
+    public ReportGenerator() {
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            outcomeCounts[i] = new LongAdder();
+        }
+    }
     
-    public void generateReport(List<ManufacturingProcess> completedProcesses) {
-        int successCount = 0;
-        int stockShortageCount = 0;
-        int systemErrorCount = 0;
-        int damagedComponentCount = 0;
-        double totalCost = 0.0;
-        double totalWeight = 0.0;
+    /**
+     * Clears the running totals. Units recorded while the reset runs may be
+     * counted in either run, so reset between runs only.
+     */
+    public void reset() {
+        for (LongAdder count : outcomeCounts) {
+            count.reset();
+        }
+        totalCost.reset();
+        totalWeight.reset();
+        startNanos = System.nanoTime();
+        shardCount = 0;
+        shardTransfers = 0;
+        uncoveredShardShortages = 0;
+    }
+    
+    /**
+     * Records how the stock shards of a sharded run traded stock, for the report
+     */
+    public void recordShards(ShardedInventory shards) {
+        shardTransfers = shards.getTransferCount();
+        uncoveredShardShortages = shards.getFailedTransferCount();
+        shardCount = shards.getShardCount();
+    }
+    
+    /**
+     * Adds a finished process to the running totals
+     */
+    public void record(ManufacturingProcess process) {
+        ManufacturingOutcome outcome = process.getFinalOutcome();
+        if (outcome == null) {
+            return;
+        }
         
-        for (ManufacturingProcess process : completedProcesses) {
+        outcomeCounts[outcome.ordinal()].increment();
+        if (outcome == ManufacturingOutcome.COMPLETED) {
             Product product = process.getProduct();
-            ManufacturingOutcome outcome = process.getFinalOutcome();
-            
-            switch (outcome) {
-                case COMPLETED:
-                    successCount++;
-                    totalCost += product.getCost();
-                    totalWeight += product.getWeight();
-                    break;
-                    
-                case FAILED_STOCK_SHORTAGE:
-                    stockShortageCount++;
-                    break;
-                    
-                case FAILED_SYSTEM_ERROR:
-                    systemErrorCount++;
-                    break;
-                    
-                case FAILED_DAMAGED_COMPONENT:
-                    damagedComponentCount++;
-                    break;
+            totalCost.add(product.getCost());
+            totalWeight.add(product.getWeight());
+        }
+    }
+    
+    /**
+     * Adds a finished batch, which holds the outcome counts of a whole order, to the running totals
+     */
+    public void record(BatchManufacturingProcess batch) {
+        for (ManufacturingOutcome outcome : OUTCOMES) {
+            int count = batch.getOutcomeCount(outcome);
+            if (count > 0) {
+                outcomeCounts[outcome.ordinal()].add(count);
             }
         }
         
+        int completed = batch.getOutcomeCount(ManufacturingOutcome.COMPLETED);
+        if (completed > 0) {
+            Product product = batch.getProduct();
+            totalCost.add(product.getCost() * completed);
+            totalWeight.add(product.getWeight() * completed);
+        }
+    }
+    
+    public long getOutcomeCount(ManufacturingOutcome outcome) {
+        return outcomeCounts[outcome.ordinal()].sum();
+    }
+    
+    /**
+     * Returns the number of units recorded since the last reset
+     */
+    public long getUnitCount() {
+        long total = 0;
+        for (LongAdder count : outcomeCounts) {
+            total += count.sum();
+        }
+        return total;
+    }
+    
+    public double getTotalCost() {
+        return totalCost.sum();
+    }
+    
+    public double getTotalWeight() {
+        return totalWeight.sum();
+    }
+    
+    /**
+     * Returns a one-line summary of the totals so far. The counters are summed one
+     * after another, so a snapshot taken while units finish may be off by the
+     * units recorded in between.
+     */
+    public String getLiveSnapshot() {
+        long units = getUnitCount();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("[%.1f s] %d units (%.0f/s): %d succeeded, %d system error, %d damaged component, "
+                + "%d stock shortage; cost %.2f TL, weight %.2f kg",
+                seconds, units, seconds > 0 ? units / seconds : 0,
+                getOutcomeCount(ManufacturingOutcome.COMPLETED),
+                getOutcomeCount(ManufacturingOutcome.FAILED_SYSTEM_ERROR),
+                getOutcomeCount(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT),
+                getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE),
+                getTotalCost(), getTotalWeight());
+    }
+    
+    /**
+     * Prints a live snapshot to the given stream every period until
+     * {@link #stopLiveReport()} is called
+     */
+    public synchronized void startLiveReport(long period, TimeUnit unit, PrintStream out) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Live report period must be positive: " + period);
+        }
+        stopLiveReport();
+        liveReportScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "live-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        liveReportScheduler.scheduleAtFixedRate(() -> out.println(getLiveSnapshot()), period, period, unit);
+    }
+    
+    public synchronized void stopLiveReport() {
+        if (liveReportScheduler != null) {
+            liveReportScheduler.shutdownNow();
+            liveReportScheduler = null;
+        }
+    }
+    
+    /**
+     * Prints the report for everything recorded since the last reset
+     */
+    public void printReport() {
+        long successCount = getOutcomeCount(ManufacturingOutcome.COMPLETED);
+        long systemErrorCount = getOutcomeCount(ManufacturingOutcome.FAILED_SYSTEM_ERROR);
+        long damagedComponentCount = getOutcomeCount(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT);
+        long stockShortageCount = getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE);
+        
         // Print a more visually appealing report
         String titleBorder = "+===========================================================================+";
         
@@ -51,8 +187,8 @@ public class ReportGenerator {
         System.out.println("| 1. SUCCESSFULLY MANUFACTURED PRODUCTS                                   |");
         System.out.println("|    ----------------------------------------                             |");
         System.out.printf("| ▶ Successfully manufactured products: %-36d |\n", successCount);
-        System.out.printf("| ▶ Total cost: %-52s |\n", String.format("%.2f", totalCost).replace(".", ",") + " TL");
-        System.out.printf("| ▶ Total weight: %-50s |\n", String.format("%.2f", totalWeight).replace(".", ",") + " kg");
+        System.out.printf("| ▶ Total cost: %-52s |\n", String.format("%.2f", getTotalCost()).replace(".", ",") + " TL");
+        System.out.printf("| ▶ Total weight: %-50s |\n", String.format("%.2f", getTotalWeight()).replace(".", ",") + " kg");
         
         // Failed products section
         System.out.println("|                                                                         |");
@@ -62,6 +198,15 @@ public class ReportGenerator {
         System.out.printf("| 3. Products failed by damaged component: %-31d |\n", damagedComponentCount);
         System.out.printf("| 4. Products failed by stock shortage: %-34d |\n", stockShortageCount);
         System.out.println("|                                                                         |");
+        
+        if (shardCount > 0) {
+            System.out.println("| STOCK SHARDS                                                            |");
+            System.out.println("|    ------------                                                         |");
+            System.out.printf("| ▶ Shards: %-61d |\n", shardCount);
+            System.out.printf("| ▶ Transfers between shards: %-43d |\n", shardTransfers);
+            System.out.printf("| ▶ Shortages no shard could cover: %-37d |\n", uncoveredShardShortages);
+            System.out.println("|                                                                         |");
+        }
         System.out.println(titleBorder);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,29 @@
+package system;
+
+/**
+ * The order in which {@link OrderScheduler} lets orders take stock.
+ */
+public enum SchedulingPolicy {
+    /**
+     * Orders run in the order of the products file, without planning
+     */
+    CSV_ORDER,
+    
+    /**
+     * The most valuable products (by unit cost) get their stock first
+     */
+    GREEDY_BY_VALUE,
+    
+    /**
+     * Products needing the fewest component units get their stock first,
+     * which maximizes the number of completed units
+     */
+    SHORTEST_BOM_FIRST,
+    
+    /**
+     * Greedy multi-dimensional knapsack: products are ranked by value per unit of
+     * scarce stock they use, where each component is weighted by how much of the
+     * available stock the whole order book asks for
+     */
+    KNAPSACK
+}
@@ -0,0 +1,191 @@
+package system;
+
+import component.BillOfMaterials;
+import component.Component;
+import metrics.ManufacturingMetrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Splits the stock of a home inventory into shards, one per plant or per group
+ * of worker threads, so each of them updates stock no other shard touches.
+ *
+ * Every shard is an {@link InventoryManager} of its own. {@link #distribute()}
+ * moves the home stock of every component into the shards in equal parts, and
+ * {@link #consolidate()} moves whatever the shards hold back home. In between, a
+ * shard that cannot cover a unit asks the others through
+ * {@link InventoryManager#requestTransfer(BillOfMaterials, int)}, which the
+ * waiting-for-stock state does before failing a unit for a stock shortage.
+ *
+ * A transfer takes stock from one shard before adding it to another, so stock is
+ * never created or lost, but a total read while a transfer runs may miss the
+ * stock on its way. The moves are not journaled: with an {@link InventoryStore},
+ * the store only sees the stock of a sharded run once it is consolidated and
+ * checkpointed, and a crash before that restores the stock from before the run.
+ * The shards share the metrics the home inventory has when the shards are created.
+ */
+public class ShardedInventory {
+    private final InventoryManager home;
+    private final InventoryManager[] shards;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final ThreadLocal<InventoryManager> localShard;
+    private final LongAdder transferCount = new LongAdder();
+    private final LongAdder failedTransferCount = new LongAdder();
+    
+    /**
+     * @param home The inventory the stock is distributed from and consolidated into
+     * @param shardCount The number of shards
+     */
+    public ShardedInventory(InventoryManager home, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.home = home;
+        this.shards = new InventoryManager[shardCount];
+        // The shards record into the home inventory's metrics, so the totals cover every shard
+        ManufacturingMetrics metrics = home.getMetrics();
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new InventoryManager();
+            shards[i].setShardGroup(this);
+            shards[i].setMetrics(metrics);
+        }
+        // Threads are handed the shards in turn the first time they ask for one
+        this.localShard = ThreadLocal.withInitial(
+            () -> shards[Math.floorMod(nextShard.getAndIncrement(), shards.length)]);
+    }
+    
+    public int getShardCount() {
+        return shards.length;
+    }
+    
+    public InventoryManager getShard(int index) {
+        return shards[index];
+    }
+    
+    /**
+     * Returns the shard the calling thread works on
+     */
+    public InventoryManager getLocalShard() {
+        return localShard.get();
+    }
+    
+    /**
+     * Moves the home stock into the shards, splitting every component evenly;
+     * the first shards get one milli-unit more when it does not divide
+     */
+    public void distribute() {
+        for (int id = 0; id < home.getComponentCount(); id++) {
+            long total = home.takeMilliUnits(id, Long.MAX_VALUE);
+            if (total <= 0) {
+                continue;
+            }
+            long share = total / shards.length;
+            long remainder = total % shards.length;
+            for (int s = 0; s < shards.length; s++) {
+                long milliUnits = share + (s < remainder ? 1 : 0);
+                if (milliUnits > 0) {
+                    shards[s].putMilliUnits(id, milliUnits);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Moves the stock of every shard back to the home inventory. Must not run
+     * while the shards are still in use.
+     */
+    public void consolidate() {
+        for (InventoryManager shard : shards) {
+            for (int id = 0; id < shard.getComponentCount(); id++) {
+                long milliUnits = shard.takeMilliUnits(id, Long.MAX_VALUE);
+                if (milliUnits > 0) {
+                    home.putMilliUnits(id, milliUnits);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Moves the stock the target shard lacks for the given units from the other
+     * shards, starting with the one after it so the load spreads over all of them.
+     * Nothing moves unless the other shards hold enough of every leaf between them,
+     * so a shortage of the whole inventory does not pass stock back and forth.
+     *
+     * @return true if the target now holds enough of every leaf component
+     */
+    boolean rebalance(InventoryManager target, BillOfMaterials bom, int units) {
+        int targetIndex = indexOf(target);
+        for (int i = 0; i < bom.size(); i++) {
+            Component component = bom.getComponent(i);
+            long missing = bom.getMilliQuantity(i) * units - target.getStockMilliUnits(component);
+            if (missing > 0 && getStockOfOtherShards(target, component) < missing) {
+                failedTransferCount.increment();
+                return false;
+            }
+        }
+        
+        boolean covered = true;
+        for (int i = 0; i < bom.size(); i++) {
+            int id = bom.getComponentId(i);
+            long missing = bom.getMilliQuantity(i) * units - target.getStockMilliUnits(bom.getComponent(i));
+            for (int s = 1; s < shards.length && missing > 0; s++) {
+                long taken = shards[(targetIndex + s) % shards.length].takeMilliUnits(id, missing);
+                if (taken > 0) {
+                    target.putMilliUnits(id, taken);
+                    transferCount.increment();
+                    missing -= taken;
+                }
+            }
+            covered &= missing <= 0;
+        }
+        if (!covered) {
+            failedTransferCount.increment();
+        }
+        return covered;
+    }
+    
+    /**
+     * Returns the stock of a component over the home inventory and every shard
+     */
+    public long getTotalStockMilliUnits(Component component) {
+        long total = home.getStockMilliUnits(component);
+        for (InventoryManager shard : shards) {
+            total += shard.getStockMilliUnits(component);
+        }
+        return total;
+    }
+    
+    /**
+     * Returns the number of component moves between shards
+     */
+    public long getTransferCount() {
+        return transferCount.sum();
+    }
+    
+    /**
+     * Returns how often the other shards could not cover a shortage between them
+     */
+    public long getFailedTransferCount() {
+        return failedTransferCount.sum();
+    }
+    
+    private long getStockOfOtherShards(InventoryManager target, Component component) {
+        long total = 0;
+        for (InventoryManager shard : shards) {
+            if (shard != target) {
+                total += shard.getStockMilliUnits(component);
+            }
+        }
+        return total;
+    }
+    
+    private int indexOf(InventoryManager shard) {
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i] == shard) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a shard of this inventory");
+    }
+}
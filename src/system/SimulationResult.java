@@ -0,0 +1,218 @@
+package system;
+
+import process.ManufacturingOutcome;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * What the replications of one {@link SimulationScenario} produced: how the units
+ * ended within the horizon, how many events the calendar processed and how the
+ * stations coped. Results of separate replications are added up, so the figures
+ * are totals; the getters turn them into means per replication.
+ */
+public class SimulationResult {
+    private final String scenarioName;
+    private int replications;
+    private final long[] outcomeCounts = new long[ManufacturingOutcome.values().length];
+    private long minCompleted = Long.MAX_VALUE;
+    private long maxCompleted;
+    private long unitsReleased;
+    private long unitsInProgress;
+    private long eventCount;
+    private long simulatedNanos;
+    
+    private final String[] stationNames;
+    private final int[] capacities;
+    private final long[] servedCounts;
+    private final long[] busyNanos;
+    private final long[] waitNanos;
+    private final long[] maxWaitNanos;
+    private final int[] peakQueueLengths;
+    
+    SimulationResult(String scenarioName, List<Station> stations) {
+        this.scenarioName = scenarioName;
+        int count = stations.size();
+        this.stationNames = new String[count];
+        this.capacities = new int[count];
+        for (int i = 0; i < count; i++) {
+            stationNames[i] = stations.get(i).getStateName();
+            capacities[i] = stations.get(i).getCapacity();
+        }
+        this.servedCounts = new long[count];
+        this.busyNanos = new long[count];
+        this.waitNanos = new long[count];
+        this.maxWaitNanos = new long[count];
+        this.peakQueueLengths = new int[count];
+    }
+    
+    /**
+     * Records the end of one replication
+     */
+    void recordReplication(long[] outcomes, long released, long inProgress, long events, long elapsedNanos) {
+        replications++;
+        for (int i = 0; i < outcomeCounts.length; i++) {
+            outcomeCounts[i] += outcomes[i];
+        }
+        long completed = outcomes[ManufacturingOutcome.COMPLETED.ordinal()];
+        minCompleted = Math.min(minCompleted, completed);
+        maxCompleted = Math.max(maxCompleted, completed);
+        unitsReleased += released;
+        unitsInProgress += inProgress;
+        eventCount += events;
+        simulatedNanos += elapsedNanos;
+    }
+    
+    void recordStation(int station, long served, long busy, long wait, long maxWait, int peakQueue) {
+        servedCounts[station] += served;
+        busyNanos[station] += busy;
+        waitNanos[station] += wait;
+        maxWaitNanos[station] = Math.max(maxWaitNanos[station], maxWait);
+        peakQueueLengths[station] = Math.max(peakQueueLengths[station], peakQueue);
+    }
+    
+    /**
+     * Adds the replications of another result of the same scenario
+     */
+    void add(SimulationResult other) {
+        replications += other.replications;
+        for (int i = 0; i < outcomeCounts.length; i++) {
+            outcomeCounts[i] += other.outcomeCounts[i];
+        }
+        minCompleted = Math.min(minCompleted, other.minCompleted);
+        maxCompleted = Math.max(maxCompleted, other.maxCompleted);
+        unitsReleased += other.unitsReleased;
+        unitsInProgress += other.unitsInProgress;
+        eventCount += other.eventCount;
+        simulatedNanos += other.simulatedNanos;
+        for (int i = 0; i < stationNames.length; i++) {
+            recordStation(i, other.servedCounts[i], other.busyNanos[i], other.waitNanos[i], other.maxWaitNanos[i],
+                other.peakQueueLengths[i]);
+        }
+    }
+    
+    public String getScenarioName() {
+        return scenarioName;
+    }
+    
+    public int getReplications() {
+        return replications;
+    }
+    
+    /**
+     * Returns the units that ended in the outcome within the horizon, over all replications
+     */
+    public long getOutcomeCount(ManufacturingOutcome outcome) {
+        return outcomeCounts[outcome.ordinal()];
+    }
+    
+    public double getMeanCompleted() {
+        return perReplication(outcomeCounts[ManufacturingOutcome.COMPLETED.ordinal()]);
+    }
+    
+    public long getMinCompleted() {
+        return replications > 0 ? minCompleted : 0;
+    }
+    
+    public long getMaxCompleted() {
+        return maxCompleted;
+    }
+    
+    public double getMeanUnitsReleased() {
+        return perReplication(unitsReleased);
+    }
+    
+    /**
+     * Returns the mean number of units still in the plant when the horizon ended
+     */
+    public double getMeanUnitsInProgress() {
+        return perReplication(unitsInProgress);
+    }
+    
+    public long getEventCount() {
+        return eventCount;
+    }
+    
+    /**
+     * Returns the mean simulated time per replication, shorter than the horizon
+     * when the order book ran out before it
+     */
+    public double getMeanSimulatedMinutes() {
+        return perReplication(simulatedNanos) / 6e10;
+    }
+    
+    public int getStationCount() {
+        return stationNames.length;
+    }
+    
+    public String getStationName(int station) {
+        return stationNames[station];
+    }
+    
+    public double getMeanServed(int station) {
+        return perReplication(servedCounts[station]);
+    }
+    
+    public double getMeanWaitMillis(int station) {
+        return servedCounts[station] > 0 ? waitNanos[station] / 1e6 / servedCounts[station] : 0;
+    }
+    
+    public double getMaxWaitMillis(int station) {
+        return maxWaitNanos[station] / 1e6;
+    }
+    
+    public int getPeakQueueLength(int station) {
+        return peakQueueLengths[station];
+    }
+    
+    /**
+     * Returns the share of the station's machine time spent on units
+     */
+    public double getUtilization(int station) {
+        return simulatedNanos > 0 ? busyNanos[station] / ((double) simulatedNanos * capacities[station]) : 0;
+    }
+    
+    /**
+     * Prints the means per replication and the simulation speed
+     *
+     * @param wallNanos The real time the replications took
+     */
+    public void printReport(PrintStream out, long wallNanos) {
+        double seconds = wallNanos / 1e9;
+        out.printf("Scenario '%s': %d replications of %s simulated in %.2f s (%.0f events/s)%n",
+            scenarioName, replications, formatDuration(perReplication(simulatedNanos)), seconds,
+            seconds > 0 ? eventCount / seconds : 0);
+        out.printf("  Units per replication: %.1f released, %.1f completed (min %d, max %d), %.1f still in progress%n",
+            getMeanUnitsReleased(), getMeanCompleted(), getMinCompleted(), getMaxCompleted(),
+            getMeanUnitsInProgress());
+        out.printf("  Failed per replication: %.1f stock shortage, %.1f system error, %.1f damaged component%n",
+            perReplication(getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE)),
+            perReplication(getOutcomeCount(ManufacturingOutcome.FAILED_SYSTEM_ERROR)),
+            perReplication(getOutcomeCount(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT)));
+        for (int i = 0; i < stationNames.length; i++) {
+            out.printf("  %-16s %2d machines %11.1f units  wait mean %10.2f ms, max %10.2f ms  "
+                    + "peak queue %7d  utilization %5.1f%%%n",
+                stationNames[i], capacities[i], getMeanServed(i), getMeanWaitMillis(i), getMaxWaitMillis(i),
+                peakQueueLengths[i], 100 * getUtilization(i));
+        }
+    }
+    
+    /**
+     * Formats a duration in the largest unit it fills, from milliseconds to hours
+     */
+    static String formatDuration(double nanos) {
+        if (nanos >= 3.6e12) {
+            return String.format("%.2f hours", nanos / 3.6e12);
+        }
+        if (nanos >= 6e10) {
+            return String.format("%.2f minutes", nanos / 6e10);
+        }
+        if (nanos >= 1e9) {
+            return String.format("%.2f seconds", nanos / 1e9);
+        }
+        return String.format("%.2f ms", nanos / 1e6);
+    }
+    
+    private double perReplication(long total) {
+        return replications > 0 ? (double) total / replications : 0;
+    }
+}
@@ -0,0 +1,122 @@
+package system;
+
+import process.OutcomeModel;
+import process.UniformOutcomeModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One "what if" setting for the {@link DiscreteEventSimulator}: the stations the
+ * units pass through, how long the simulated shift lasts, how many units the
+ * plant works on at once and which components have more or less stock than the
+ * inventory holds.
+ */
+public class SimulationScenario {
+    public static final long DEFAULT_HORIZON_HOURS = 8;
+    public static final int DEFAULT_WIP_LIMIT = 100_000;
+    
+    private final String name;
+    private List<Station> stations = Station.defaultStations();
+    private long horizonNanos = TimeUnit.HOURS.toNanos(DEFAULT_HORIZON_HOURS);
+    private int wipLimit = DEFAULT_WIP_LIMIT;
+    private OutcomeModel outcomeModel = UniformOutcomeModel.INSTANCE;
+    private final Map<String, Double> stockFactors = new LinkedHashMap<>();
+    
+    public SimulationScenario(String name) {
+        this.name = name;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Sets the stations by the state they serve; states without a station take
+     * no simulated time
+     */
+    public void setStations(List<Station> stations) {
+        Set<String> states = new HashSet<>();
+        for (Station station : stations) {
+            if (!states.add(station.getStateName())) {
+                throw new IllegalArgumentException("More than one station for state " + station.getStateName());
+            }
+        }
+        this.stations = new ArrayList<>(stations);
+    }
+    
+    public List<Station> getStations() {
+        return Collections.unmodifiableList(stations);
+    }
+    
+    /**
+     * Sets how much simulated time a replication covers, e.g. one shift
+     */
+    public void setHorizon(long horizon, TimeUnit unit) {
+        if (horizon <= 0) {
+            throw new IllegalArgumentException("Horizon must be positive: " + horizon);
+        }
+        this.horizonNanos = unit.toNanos(horizon);
+    }
+    
+    public long getHorizonNanos() {
+        return horizonNanos;
+    }
+    
+    /**
+     * Sets how many units may be in the plant at once; the next unit of the order
+     * book is released when one finishes
+     */
+    public void setWipLimit(int wipLimit) {
+        if (wipLimit <= 0) {
+            throw new IllegalArgumentException("WIP limit must be positive: " + wipLimit);
+        }
+        this.wipLimit = wipLimit;
+    }
+    
+    public int getWipLimit() {
+        return wipLimit;
+    }
+    
+    public void setOutcomeModel(OutcomeModel outcomeModel) {
+        this.outcomeModel = outcomeModel;
+    }
+    
+    public OutcomeModel getOutcomeModel() {
+        return outcomeModel;
+    }
+    
+    /**
+     * Scales the starting stock of a component, e.g. 0.5 to halve it
+     */
+    public void setStockFactor(String componentName, double factor) {
+        if (factor < 0 || Double.isNaN(factor)) {
+            throw new IllegalArgumentException("Stock factor must not be negative: " + factor);
+        }
+        stockFactors.put(componentName, factor);
+    }
+    
+    public Map<String, Double> getStockFactors() {
+        return Collections.unmodifiableMap(stockFactors);
+    }
+    
+    /**
+     * Parses "component name:factor", e.g. "Screw:0.5", into the stock factors
+     */
+    public void parseStockFactor(String spec) {
+        int colon = spec.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Expected 'component:factor': " + spec);
+        }
+        try {
+            setStockFactor(spec.substring(0, colon).trim(), Double.parseDouble(spec.substring(colon + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected 'component:factor': " + spec, e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package system;
+
+import process.ManufacturingProcess;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A work station of the {@link ExecutionMode#TIMED} mode: one manufacturing
+ * state, such as stock picking in WaitingForStock or machining in
+ * InManufacturing, that takes a fixed time per unit on one of a limited number
+ * of machines.
+ *
+ * A unit entering the state queues for a machine, holds it for the service
+ * time and only then lets the state decide what happens. The station counts how
+ * long units queued, how long the queue got and how busy its machines were.
+ */
+public class Station {
+    private final String stateName;
+    private final long serviceNanos;
+    private final int capacity;
+    private final Semaphore machines;
+    
+    private final LongAdder servedCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger queueLength = new AtomicInteger();
+    private final AtomicInteger peakQueueLength = new AtomicInteger();
+    
+    /**
+     * @param stateName The name of the state the station works in, as in {@code ProcessState.getName()}
+     * @param serviceTime How long a unit holds a machine
+     * @param capacity The number of machines
+     */
+    public Station(String stateName, long serviceTime, TimeUnit unit, int capacity) {
+        if (serviceTime < 0) {
+            throw new IllegalArgumentException("Service time must not be negative: " + serviceTime);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Station capacity must be positive: " + capacity);
+        }
+        this.stateName = stateName;
+        this.serviceNanos = unit.toNanos(serviceTime);
+        this.capacity = capacity;
+        this.machines = new Semaphore(capacity, true);
+    }
+    
+    /**
+     * Parses "state name:milliseconds:capacity", e.g. "InManufacturing:20:8"
+     */
+    public static Station parse(String spec) {
+        String[] parts = spec.split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Expected 'state:milliseconds:capacity': " + spec);
+        }
+        try {
+            return new Station(parts[0].trim(), Long.parseLong(parts[1].trim()), TimeUnit.MILLISECONDS,
+                Integer.parseInt(parts[2].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected 'state:milliseconds:capacity': " + spec, e);
+        }
+    }
+    
+    /**
+     * The stations the timed mode uses unless others are set: a quick stock
+     * picking station and a slower manufacturing one
+     */
+    public static List<Station> defaultStations() {
+        List<Station> stations = new ArrayList<>();
+        stations.add(new Station("WaitingForStock", 1, TimeUnit.MILLISECONDS, 8));
+        stations.add(new Station("InManufacturing", 10, TimeUnit.MILLISECONDS, 32));
+        return stations;
+    }
+    
+    /**
+     * Queues the process for a machine, holds it for the service time and then
+     * lets the process take its step
+     */
+    public void serve(ManufacturingProcess process) throws InterruptedException {
+        long arrived = System.nanoTime();
+        peakQueueLength.accumulateAndGet(queueLength.incrementAndGet(), Math::max);
+        try {
+            machines.acquire();
+        } finally {
+            queueLength.decrementAndGet();
+        }
+        try {
+            long started = System.nanoTime();
+            long waited = started - arrived;
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            if (serviceNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(serviceNanos);
+            }
+            process.process();
+            busyNanos.add(System.nanoTime() - started);
+            servedCount.increment();
+        } finally {
+            machines.release();
+        }
+    }
+    
+    /**
+     * Clears the counts, between runs only
+     */
+    public void reset() {
+        servedCount.reset();
+        waitNanos.reset();
+        busyNanos.reset();
+        maxWaitNanos.set(0);
+        peakQueueLength.set(queueLength.get());
+    }
+    
+    public String getStateName() {
+        return stateName;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public long getServiceNanos() {
+        return serviceNanos;
+    }
+    
+    public long getServedCount() {
+        return servedCount.sum();
+    }
+    
+    public double getMeanWaitMillis() {
+        long served = getServedCount();
+        return served > 0 ? waitNanos.sum() / 1e6 / served : 0;
+    }
+    
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+    
+    /**
+     * Returns the number of units waiting for a machine right now
+     */
+    public int getQueueLength() {
+        return queueLength.get();
+    }
+    
+    public int getPeakQueueLength() {
+        return peakQueueLength.get();
+    }
+    
+    /**
+     * Returns the share of the machines' time spent on units over the given period
+     */
+    public double getUtilization(long elapsedNanos) {
+        return elapsedNanos > 0 ? busyNanos.sum() / ((double) elapsedNanos * capacity) : 0;
+    }
+    
+    /**
+     * Prints one line per station with its throughput and queueing figures
+     */
+    public static void printReport(List<Station> stations, long elapsedNanos, PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("Stations after %.2f s:%n", seconds);
+        for (Station station : stations) {
+            out.printf("  %-16s %2d machines %9d units %9.0f/s  wait mean %8.2f ms, max %8.2f ms  "
+                    + "peak queue %7d  utilization %5.1f%%%n",
+                station.getStateName(), station.getCapacity(), station.getServedCount(),
+                seconds > 0 ? station.getServedCount() / seconds : 0, station.getMeanWaitMillis(),
+                station.getMaxWaitMillis(), station.getPeakQueueLength(),
+                100 * station.getUtilization(elapsedNanos));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package system;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The kind of threads used by the parallel execution modes.
+ */
+public enum WorkerThreadType {
+    PLATFORM,
+    
+    /**
+     * Virtual threads, available from Java 21. On older runtimes the
+     * controller falls back to platform threads.
+     */
+    VIRTUAL;
+    
+    /**
+     * Creates an executor for the given number of workers
+     * 
+     * @param workerCount The size of the pool (ignored for virtual threads,
+     *                    which are created per task)
+     * @return A new executor that the caller must shut down
+     */
+    public ExecutorService createExecutor(int workerCount) {
+        if (this == VIRTUAL) {
+            ExecutorService virtualExecutor = createVirtualExecutor();
+            if (virtualExecutor != null) {
+                return virtualExecutor;
+            }
+            System.err.println("Warning: Virtual threads are not supported by this runtime, using platform threads");
+        }
+        return Executors.newFixedThreadPool(workerCount, new WorkerThreadFactory());
+    }
+    
+    /**
+     * Returns true if the runtime has virtual threads (Java 21 or later)
+     */
+    public static boolean isVirtualSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Creates an executor that starts a virtual thread per task, with no fallback
+     *
+     * @throws IllegalStateException if the runtime has no virtual threads
+     */
+    public static ExecutorService createVirtualThreadPerTaskExecutor() {
+        ExecutorService virtualExecutor = createVirtualExecutor();
+        if (virtualExecutor == null) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, this runtime is Java "
+                + Runtime.version().feature());
+        }
+        return virtualExecutor;
+    }
+    
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Names the platform workers and marks them as daemons so an abandoned
+     * pool never keeps the JVM alive
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private static final AtomicInteger poolNumber = new AtomicInteger(1);
+        private final int pool = poolNumber.getAndIncrement();
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "manufacturing-" + pool + "-worker-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package system;
+
+import component.Component;
+import metrics.RunningStatistics;
+import process.ManufacturingOutcome;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The distribution of results over the replications of a {@link YieldForecaster}:
+ * units per outcome, cost and weight of the completed units, and for every
+ * component how often and by how much it ran out. Confidence intervals for the
+ * means use the normal approximation, which holds for the thousands of
+ * replications a forecast runs.
+ */
+public class YieldForecast {
+    private final List<Component> components;
+    private final RunningStatistics[] outcomeStatistics = new RunningStatistics[ManufacturingOutcome.values().length];
+    private final RunningStatistics cost = new RunningStatistics();
+    private final RunningStatistics weight = new RunningStatistics();
+    private final RunningStatistics copiedPages = new RunningStatistics();
+    
+    // Per component: the units short in a replication, and 1 or 0 for whether it ran out at all
+    private final RunningStatistics[] shortUnits;
+    private final RunningStatistics[] stockOuts;
+    
+    YieldForecast(List<Component> components) {
+        this.components = components;
+        for (int i = 0; i < outcomeStatistics.length; i++) {
+            outcomeStatistics[i] = new RunningStatistics();
+        }
+        this.shortUnits = new RunningStatistics[components.size()];
+        this.stockOuts = new RunningStatistics[components.size()];
+        for (int i = 0; i < shortUnits.length; i++) {
+            shortUnits[i] = new RunningStatistics();
+            stockOuts[i] = new RunningStatistics();
+        }
+    }
+    
+    void recordReplication(long[] outcomes, double replicationCost, double replicationWeight, long[] componentShortUnits,
+                           int replicationCopiedPages) {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomeStatistics[i].add(outcomes[i]);
+        }
+        cost.add(replicationCost);
+        weight.add(replicationWeight);
+        copiedPages.add(replicationCopiedPages);
+        for (int i = 0; i < shortUnits.length; i++) {
+            shortUnits[i].add(componentShortUnits[i]);
+            stockOuts[i].add(componentShortUnits[i] > 0 ? 1 : 0);
+        }
+    }
+    
+    /**
+     * Adds the replications of another forecast of the same order book
+     */
+    void add(YieldForecast other) {
+        for (int i = 0; i < outcomeStatistics.length; i++) {
+            outcomeStatistics[i].add(other.outcomeStatistics[i]);
+        }
+        cost.add(other.cost);
+        weight.add(other.weight);
+        copiedPages.add(other.copiedPages);
+        for (int i = 0; i < shortUnits.length; i++) {
+            shortUnits[i].add(other.shortUnits[i]);
+            stockOuts[i].add(other.stockOuts[i]);
+        }
+    }
+    
+    public long getReplications() {
+        return cost.getCount();
+    }
+    
+    /**
+     * Returns the units per replication that ended in the outcome
+     */
+    public RunningStatistics getOutcomeStatistics(ManufacturingOutcome outcome) {
+        return outcomeStatistics[outcome.ordinal()];
+    }
+    
+    public RunningStatistics getCostStatistics() {
+        return cost;
+    }
+    
+    public RunningStatistics getWeightStatistics() {
+        return weight;
+    }
+    
+    /**
+     * Returns the components in the order the order book first uses them
+     */
+    public List<Component> getComponents() {
+        return components;
+    }
+    
+    /**
+     * Returns the units per replication that failed because the component ran out
+     */
+    public RunningStatistics getShortUnitStatistics(int componentIndex) {
+        return shortUnits[componentIndex];
+    }
+    
+    /**
+     * Returns the statistics of whether the component ran out, whose mean is the
+     * share of replications in which it did
+     */
+    public RunningStatistics getStockOutStatistics(int componentIndex) {
+        return stockOuts[componentIndex];
+    }
+    
+    /**
+     * Returns the mean number of stock pages a replication had to copy
+     */
+    public double getMeanCopiedPages() {
+        return copiedPages.getMean();
+    }
+    
+    /**
+     * Prints the 95% confidence intervals of the forecast, the components that ran
+     * out in any replication first by how often they did
+     *
+     * @param wallNanos The real time the replications took
+     */
+    public void printReport(PrintStream out, long wallNanos) {
+        double seconds = wallNanos / 1e9;
+        out.printf("Forecast of %d replications in %.2f s (%.0f replications/s, %.1f stock pages copied each)%n",
+            getReplications(), seconds, seconds > 0 ? getReplications() / seconds : 0, getMeanCopiedPages());
+        out.println("  Per replication, mean with 95% confidence interval [min .. max]:");
+        printLine(out, "Completed units", getOutcomeStatistics(ManufacturingOutcome.COMPLETED), "");
+        printLine(out, "Total cost", cost, " TL");
+        printLine(out, "Total weight", weight, " kg");
+        printLine(out, "Stock shortage", getOutcomeStatistics(ManufacturingOutcome.FAILED_STOCK_SHORTAGE), "");
+        printLine(out, "System error", getOutcomeStatistics(ManufacturingOutcome.FAILED_SYSTEM_ERROR), "");
+        printLine(out, "Damaged component", getOutcomeStatistics(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT), "");
+        
+        List<Integer> shortComponents = new ArrayList<>();
+        for (int i = 0; i < stockOuts.length; i++) {
+            if (stockOuts[i].getMax() > 0) {
+                shortComponents.add(i);
+            }
+        }
+        if (shortComponents.isEmpty()) {
+            out.println("  No component ran out in any replication");
+            return;
+        }
+        shortComponents.sort(Comparator.comparingDouble((Integer i) -> -stockOuts[i].getMean()));
+        out.println("  Stock-outs per component, share of replications and units short per replication:");
+        for (int i : shortComponents) {
+            RunningStatistics share = stockOuts[i];
+            RunningStatistics units = shortUnits[i];
+            double shareHalfWidth = share.getConfidenceHalfWidth(RunningStatistics.Z_95);
+            double unitsHalfWidth = units.getConfidenceHalfWidth(RunningStatistics.Z_95);
+            out.printf("    %-24s %6.2f%% [%6.2f%%, %6.2f%%]  %12.2f units [%.2f, %.2f]%n",
+                components.get(i).getName(), 100 * share.getMean(),
+                100 * Math.max(0, share.getMean() - shareHalfWidth), 100 * Math.min(1, share.getMean() + shareHalfWidth),
+                units.getMean(), Math.max(0, units.getMean() - unitsHalfWidth), units.getMean() + unitsHalfWidth);
+        }
+    }
+    
+    private static void printLine(PrintStream out, String label, RunningStatistics statistics, String unit) {
+        double halfWidth = statistics.getConfidenceHalfWidth(RunningStatistics.Z_95);
+        out.printf("    %-18s %14.2f%s [%.2f, %.2f]  [%.2f .. %.2f]%n", label, statistics.getMean(), unit,
+            statistics.getMean() - halfWidth, statistics.getMean() + halfWidth, statistics.getMin(),
+            statistics.getMax());
+    }
+}
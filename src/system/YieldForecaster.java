@@ -0,0 +1,234 @@
+package system;
+
+import component.BillOfMaterials;
+import component.Component;
+import component.Product;
+import component.Reservation;
+import process.ManufacturingOutcome;
+import process.OutcomeModel;
+import process.UniformOutcomeModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Forecasts how much of an order book will finish by running it many times over
+ * with independent outcome draws, since a single run only shows one of the
+ * possible results.
+ *
+ * Each replication runs the orders one unit at a time in order, the way the
+ * sequential mode does: a unit fails for a stock shortage when the stock does
+ * not cover it, otherwise the outcome model decides it and only a completed
+ * unit takes its components. Finished sub-assemblies in stock are used before
+ * the components they are built from, planned one unit at a time as in a real
+ * run; once none are left the rest of the order takes the flattened bill of
+ * materials. Every replication works on its own {@link InventorySnapshot} copy
+ * of the starting stock and its own random stream split from the seed up front.
+ * The replications run as fork/join tasks, and their results depend only on the
+ * seed.
+ */
+public class YieldForecaster {
+    // Replications one fork/join task runs instead of splitting further
+    private static final int REPLICATIONS_PER_TASK = 16;
+    
+    private final Product[] products;
+    private final BillOfMaterials[] boms;
+    private final int[] quantities;
+    private final double[] costs;
+    private final double[] weights;
+    private final InventorySnapshot stock;
+    
+    // The leaves of the order book in order of first use, and each leaf's index by component ID
+    private final List<Component> components = new ArrayList<>();
+    private final int[] componentIndexes;
+    
+    private volatile OutcomeModel outcomeModel = UniformOutcomeModel.INSTANCE;
+    
+    /**
+     * @param orders The order book, in the order it runs
+     * @param inventory The stock every replication starts from; it is copied, never changed
+     */
+    public YieldForecaster(List<ManufacturingOrder> orders, InventoryManager inventory) {
+        int count = orders.size();
+        this.products = new Product[count];
+        this.boms = new BillOfMaterials[count];
+        this.quantities = new int[count];
+        this.costs = new double[count];
+        this.weights = new double[count];
+        long[] levels = inventory.snapshotStockLevels();
+        this.stock = new InventorySnapshot(levels);
+        
+        int[] indexes = new int[levels.length];
+        Arrays.fill(indexes, -1);
+        for (int o = 0; o < count; o++) {
+            ManufacturingOrder order = orders.get(o);
+            products[o] = order.getProduct();
+            boms[o] = order.getProduct().getBillOfMaterials();
+            quantities[o] = order.getQuantity();
+            costs[o] = order.getProduct().getCost();
+            weights[o] = order.getProduct().getWeight();
+            for (int i = 0; i < boms[o].size(); i++) {
+                int id = boms[o].getComponentId(i);
+                if (id >= indexes.length) {
+                    int oldLength = indexes.length;
+                    indexes = Arrays.copyOf(indexes, Math.max(id + 1, oldLength * 2));
+                    Arrays.fill(indexes, oldLength, indexes.length, -1);
+                }
+                if (indexes[id] < 0) {
+                    indexes[id] = components.size();
+                    components.add(boms[o].getComponent(i));
+                }
+            }
+        }
+        this.componentIndexes = indexes;
+    }
+    
+    public void setOutcomeModel(OutcomeModel outcomeModel) {
+        this.outcomeModel = outcomeModel;
+    }
+    
+    /**
+     * Runs the replications on the common fork/join pool
+     */
+    public YieldForecast forecast(int replications, long seed) {
+        return forecast(replications, seed, ForkJoinPool.commonPool());
+    }
+    
+    public YieldForecast forecast(int replications, long seed, ForkJoinPool pool) {
+        if (replications <= 0) {
+            throw new IllegalArgumentException("Replication count must be positive: " + replications);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[replications];
+        for (int i = 0; i < replications; i++) {
+            randoms[i] = root.split();
+        }
+        // Copy once here, so the tasks only ever copy a snapshot that owns no pages
+        InventorySnapshot start = stock.copy();
+        return pool.invoke(new ForecastTask(start, outcomeModel, randoms, 0, replications));
+    }
+    
+    /**
+     * Splits a range of replications in halves until a task is small enough to run them
+     */
+    private final class ForecastTask extends RecursiveTask<YieldForecast> {
+        private static final long serialVersionUID = 1L;
+        
+        private final InventorySnapshot start;
+        private final OutcomeModel outcomeModel;
+        private final SplittableRandom[] randoms;
+        private final int from;
+        private final int to;
+        
+        ForecastTask(InventorySnapshot start, OutcomeModel outcomeModel, SplittableRandom[] randoms,
+                     int from, int to) {
+            this.start = start;
+            this.outcomeModel = outcomeModel;
+            this.randoms = randoms;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected YieldForecast compute() {
+            if (to - from <= REPLICATIONS_PER_TASK) {
+                YieldForecast forecast = new YieldForecast(components);
+                long[] shortUnits = new long[components.size()];
+                for (int r = from; r < to; r++) {
+                    runReplication(start.copy(), outcomeModel, randoms[r], shortUnits, forecast);
+                }
+                return forecast;
+            }
+            int middle = (from + to) >>> 1;
+            ForecastTask left = new ForecastTask(start, outcomeModel, randoms, from, middle);
+            left.fork();
+            YieldForecast right = new ForecastTask(start, outcomeModel, randoms, middle, to).compute();
+            YieldForecast result = left.join();
+            result.add(right);
+            return result;
+        }
+    }
+    
+    /**
+     * Runs the order book once and records the replication
+     *
+     * @param shortUnits Scratch space for the units short per component, all zero on entry and exit
+     */
+    private void runReplication(InventorySnapshot stock, OutcomeModel outcomeModel, SplittableRandom random,
+                                long[] shortUnits, YieldForecast forecast) {
+        long[] outcomes = new long[ManufacturingOutcome.values().length];
+        double cost = 0;
+        double weight = 0;
+        for (int o = 0; o < products.length; o++) {
+            BillOfMaterials bom = boms[o];
+            int quantity = quantities[o];
+            long completed = 0;
+            int unit = 0;
+            int shortIndex = -1;
+            
+            // Finished sub-assemblies in stock are used first, one unit at a time as in a real run
+            Reservation netted = null;
+            if (bom.hasSubAssemblies()) {
+                for (; unit < quantity; unit++) {
+                    netted = products[o].planNetted(stock::getStockMilliUnits, 1);
+                    if (netted == null) {
+                        break;
+                    }
+                    shortIndex = stock.findShortComponent(netted);
+                    if (shortIndex >= 0) {
+                        break;
+                    }
+                    ManufacturingOutcome outcome = outcomeModel.draw(products[o], random);
+                    if (outcome == ManufacturingOutcome.COMPLETED) {
+                        stock.deduct(netted);
+                        completed++;
+                    } else {
+                        outcomes[outcome.ordinal()]++;
+                    }
+                }
+            }
+            
+            // The rest take the flattened bill; stock only drops, so once a unit is short every later unit is too
+            long built = 0;
+            if (shortIndex < 0) {
+                long coverable = stock.coverableUnits(bom);
+                for (; unit < quantity && built < coverable; unit++) {
+                    ManufacturingOutcome outcome = outcomeModel.draw(products[o], random);
+                    if (outcome == ManufacturingOutcome.COMPLETED) {
+                        built++;
+                    } else {
+                        outcomes[outcome.ordinal()]++;
+                    }
+                }
+                if (built > 0) {
+                    stock.deduct(bom, built);
+                    completed += built;
+                }
+            }
+            if (completed > 0) {
+                outcomes[ManufacturingOutcome.COMPLETED.ordinal()] += completed;
+                cost += costs[o] * completed;
+                weight += weights[o] * completed;
+            }
+            int shortfall = quantity - unit;
+            if (shortfall > 0) {
+                outcomes[ManufacturingOutcome.FAILED_STOCK_SHORTAGE.ordinal()] += shortfall;
+                // Only leaves run short: a plan never takes more of a sub-assembly than is in stock
+                int id = shortIndex >= 0 ? netted.getComponent(shortIndex).getId() : shortLeafId(stock, bom);
+                if (id >= 0) {
+                    shortUnits[componentIndexes[id]] += shortfall;
+                }
+            }
+        }
+        forecast.recordReplication(outcomes, cost, weight, shortUnits, stock.getCopiedPageCount());
+        Arrays.fill(shortUnits, 0);
+    }
+    
+    private static int shortLeafId(InventorySnapshot stock, BillOfMaterials bom) {
+        int leaf = stock.findShortLeaf(bom);
+        return leaf >= 0 ? bom.getComponentId(leaf) : -1;
+    }
+}
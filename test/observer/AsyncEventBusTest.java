@@ -0,0 +1,111 @@
+package observer;
+
+import org.junit.jupiter.api.Test;
+import process.ManufacturingProcess;
+import process.ProcessState;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every published event is either delivered or counted as dropped
+ */
+class AsyncEventBusTest {
+    private static final int CAPACITY = 4;
+    
+    @Test
+    void dropCountsEveryEventThatFindsTheBufferFull() throws InterruptedException {
+        StalledObserver observer = new StalledObserver();
+        AsyncEventBus bus = new AsyncEventBus(BackpressurePolicy.DROP, CAPACITY, 1, observer);
+        stallWithFullBuffer(bus, observer);
+        
+        for (int i = 0; i < 6; i++) {
+            bus.onProcessCompleted(null);
+        }
+        assertEquals(6, bus.getDroppedEventCount());
+        
+        observer.release.countDown();
+        bus.close();
+        assertEquals(1 + CAPACITY, observer.delivered.get());
+    }
+    
+    @Test
+    void sampleKeepsOneInEveryFewEventsThatFindTheBufferFull() throws InterruptedException {
+        StalledObserver observer = new StalledObserver();
+        AsyncEventBus bus = new AsyncEventBus(BackpressurePolicy.SAMPLE, CAPACITY, 3, observer);
+        stallWithFullBuffer(bus, observer);
+        
+        // The first event to find the buffer full waits for space, the next two are dropped
+        Thread sampled = new Thread(() -> bus.onProcessCompleted(null));
+        sampled.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sampled.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, sampled.getState());
+        bus.onProcessCompleted(null);
+        bus.onProcessCompleted(null);
+        assertEquals(2, bus.getDroppedEventCount());
+        
+        observer.release.countDown();
+        sampled.join(TimeUnit.SECONDS.toMillis(10));
+        bus.close();
+        assertEquals(1 + CAPACITY + 1, observer.delivered.get());
+        assertEquals(2, bus.getDroppedEventCount());
+    }
+    
+    @Test
+    void closedBusCountsLateEventsAsDropped() {
+        StalledObserver observer = new StalledObserver();
+        observer.release.countDown();
+        AsyncEventBus bus = new AsyncEventBus(BackpressurePolicy.BLOCK, CAPACITY, 1, observer);
+        bus.onStateChange(null, null, null);
+        bus.close();
+        bus.onProcessCompleted(null);
+        
+        assertEquals(1, observer.delivered.get());
+        assertEquals(1, bus.getDroppedEventCount());
+    }
+    
+    /**
+     * Publishes one event the dispatcher then blocks on, and fills the buffer behind it
+     */
+    private static void stallWithFullBuffer(AsyncEventBus bus, StalledObserver observer)
+            throws InterruptedException {
+        bus.onProcessCompleted(null);
+        assertTrue(observer.entered.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < CAPACITY; i++) {
+            bus.onProcessCompleted(null);
+        }
+        assertEquals(0, bus.getDroppedEventCount());
+    }
+    
+    /**
+     * Holds up the dispatcher on the first event until released
+     */
+    private static class StalledObserver implements ProcessObserver {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger delivered = new AtomicInteger();
+        
+        @Override
+        public void onStateChange(ManufacturingProcess process, ProcessState oldState, ProcessState newState) {
+            onProcessCompleted(process);
+        }
+        
+        @Override
+        public void onProcessCompleted(ManufacturingProcess process) {
+            delivered.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
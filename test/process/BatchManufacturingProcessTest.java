@@ -0,0 +1,64 @@
+package process;
+
+import component.Component;
+import component.Product;
+import component.factory.ComponentFactory;
+import org.junit.jupiter.api.Test;
+import system.InventoryManager;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class BatchManufacturingProcessTest {
+    private final Component plentiful = ComponentFactory.createComponent(1, "Wood", 1, 1, "Raw Material");
+    private final Component scarce = ComponentFactory.createComponent(2, "Screw", 1, 1, "Raw Material");
+    private final Product product = new Product(3, "Shelf");
+    
+    BatchManufacturingProcessTest() {
+        product.addComponent(plentiful, 1);
+        product.addComponent(scarce, 1);
+    }
+    
+    @Test
+    void blamesTheLeafThatRanOutLikeThePerUnitPath() {
+        OutcomeModel alwaysCompletes = new FailureRateOutcomeModel(0, 0);
+        BatchManufacturingProcess batch = new BatchManufacturingProcess(product, 20, stock(),
+            alwaysCompletes, new SplittableRandom(1));
+        batch.process();
+        
+        InventoryManager inventory = stock();
+        ManufacturingProcess unit = null;
+        for (int i = 0; i < 20; i++) {
+            unit = new ManufacturingProcess(product, inventory, null, alwaysCompletes, new SplittableRandom(1));
+            while (!unit.isCompleted()) {
+                unit.process();
+            }
+        }
+        
+        assertEquals(10, batch.getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE));
+        assertSame(scarce, unit.getShortComponent());
+        assertSame(scarce, batch.getShortComponent());
+    }
+    
+    @Test
+    void noShortComponentWithoutStockShortages() {
+        // Every unit fails before the reserved stock of ten units is used up
+        BatchManufacturingProcess batch = new BatchManufacturingProcess(product, 12, stock(),
+            new FailureRateOutcomeModel(1, 0), new SplittableRandom(1));
+        batch.process();
+        
+        assertEquals(12, batch.getOutcomeCount(ManufacturingOutcome.FAILED_SYSTEM_ERROR));
+        assertEquals(0, batch.getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE));
+        assertNull(batch.getShortComponent());
+    }
+    
+    private InventoryManager stock() {
+        InventoryManager inventory = new InventoryManager();
+        inventory.setInitialStock(plentiful, 15);
+        inventory.setInitialStock(scarce, 10);
+        return inventory;
+    }
+}
@@ -0,0 +1,55 @@
+package process;
+
+import component.Product;
+import component.factory.ComponentFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FailureRateOutcomeModelTest {
+    
+    @Test
+    void productRateOverridesSystemErrorRate() {
+        Product product = new Product(1, "Shelf");
+        FailureRateOutcomeModel model = new FailureRateOutcomeModel(0, 0)
+            .setProductSystemErrorRate("Shelf", 1);
+        
+        assertEquals(ManufacturingOutcome.FAILED_SYSTEM_ERROR, model.draw(product, new SplittableRandom(1)));
+        assertEquals(ManufacturingOutcome.COMPLETED, model.draw(new Product(2, "Table"), new SplittableRandom(1)));
+    }
+    
+    @Test
+    void productRateSetAfterADrawApplies() {
+        Product product = new Product(1, "Shelf");
+        FailureRateOutcomeModel model = new FailureRateOutcomeModel(0, 0);
+        SplittableRandom random = new SplittableRandom(1);
+        
+        assertEquals(ManufacturingOutcome.COMPLETED, model.draw(product, random));
+        model.setProductSystemErrorRate("Shelf", 1);
+        assertEquals(ManufacturingOutcome.FAILED_SYSTEM_ERROR, model.draw(product, random));
+    }
+    
+    @Test
+    void damageRateFollowsBillOfMaterialsChanges() {
+        Product product = new Product(1, "Shelf");
+        FailureRateOutcomeModel model = new FailureRateOutcomeModel(0, 0)
+            .parseComponentDamageRate("Glass:1");
+        SplittableRandom random = new SplittableRandom(1);
+        
+        assertEquals(ManufacturingOutcome.COMPLETED, model.draw(product, random));
+        product.addComponent(ComponentFactory.createComponent(2, "Glass", 1, 1, "Raw Material"), 1);
+        assertEquals(ManufacturingOutcome.FAILED_DAMAGED_COMPONENT, model.draw(product, random));
+    }
+    
+    @Test
+    void rejectsMalformedRates() {
+        FailureRateOutcomeModel model = new FailureRateOutcomeModel();
+        
+        assertThrows(IllegalArgumentException.class, () -> model.parseComponentDamageRate("Glass"));
+        assertThrows(IllegalArgumentException.class, () -> model.parseComponentDamageRate("Glass:x"));
+        assertThrows(IllegalArgumentException.class, () -> model.parseProductSystemErrorRate("Shelf:1.5"));
+    }
+}
@@ -0,0 +1,58 @@
+package process;
+
+import component.Product;
+import observer.ProcessObserver;
+import org.junit.jupiter.api.Test;
+import system.InventoryManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ManufacturingProcessTest {
+    private final Product product = new Product(0, "Shelf");
+    
+    @Test
+    void untimedWithoutAnObserverThatNeedsTimings() throws InterruptedException {
+        ManufacturingProcess process = new ManufacturingProcess(product, new InventoryManager(),
+            List.of(new TimingObserver(false)));
+        Thread.sleep(2);
+        process.setState(FailedState.INSTANCE);
+        
+        assertEquals(0, process.getLastStateDurationNanos());
+        assertEquals(0, process.getElapsedNanos());
+    }
+    
+    @Test
+    void timedWithAnObserverThatNeedsTimings() throws InterruptedException {
+        ManufacturingProcess process = new ManufacturingProcess(product, new InventoryManager());
+        process.addObserver(new TimingObserver(true));
+        Thread.sleep(2);
+        process.setState(FailedState.INSTANCE);
+        
+        assertTrue(process.getLastStateDurationNanos() >= 2_000_000, "state duration");
+        assertEquals(process.getLastStateDurationNanos(), process.getElapsedNanos());
+    }
+    
+    private static class TimingObserver implements ProcessObserver {
+        private final boolean needsTimings;
+        
+        TimingObserver(boolean needsTimings) {
+            this.needsTimings = needsTimings;
+        }
+        
+        @Override
+        public void onStateChange(ManufacturingProcess process, ProcessState oldState, ProcessState newState) {
+        }
+        
+        @Override
+        public void onProcessCompleted(ManufacturingProcess process) {
+        }
+        
+        @Override
+        public boolean needsTimings() {
+            return needsTimings;
+        }
+    }
+}
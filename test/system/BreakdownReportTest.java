@@ -0,0 +1,80 @@
+package system;
+
+import component.Component;
+import component.Product;
+import component.factory.ComponentFactory;
+import org.junit.jupiter.api.Test;
+import process.BatchManufacturingProcess;
+import process.FailureRateOutcomeModel;
+import process.ManufacturingOutcome;
+import process.ManufacturingProcess;
+import process.OutcomeModel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A Table takes a finished Frame from stock before building one from Wood and Screws
+ */
+class BreakdownReportTest {
+    private static final OutcomeModel ALWAYS_COMPLETES = new FailureRateOutcomeModel(0, 0);
+    
+    private final Component wood = ComponentFactory.createComponent(1, "Wood", 5, 2, "Raw Material");
+    private final Component screw = ComponentFactory.createComponent(2, "Screw", 0.5, 0.05, "Hardware");
+    private final Product frame = new Product(3, "Frame");
+    private final Product table = new Product(4, "Table");
+    
+    BreakdownReportTest() {
+        frame.addComponent(wood, 2);
+        frame.addComponent(screw, 4);
+        table.addComponent(wood, 1);
+        table.addComponent(screw, 2);
+        table.addComponent(frame, 1);
+    }
+    
+    @Test
+    void unitConsumesTheFinishedSubAssemblyItTook() {
+        ManufacturingProcess process = new ManufacturingProcess(table, stock(), null, ALWAYS_COMPLETES,
+            new SplittableRandom(1));
+        while (!process.isCompleted()) {
+            process.process();
+        }
+        BreakdownReport report = new BreakdownReport();
+        report.record(process);
+        
+        assertEquals(ManufacturingOutcome.COMPLETED, process.getFinalOutcome());
+        assertEquals(Map.of("Frame", 1.0, "Wood", 1.0, "Screw", 2.0), consumed(report));
+    }
+    
+    @Test
+    void batchConsumesWhatEachUnitTook() {
+        BatchManufacturingProcess batch = new BatchManufacturingProcess(table, 2, stock(), ALWAYS_COMPLETES,
+            new SplittableRandom(1));
+        batch.process();
+        BreakdownReport report = new BreakdownReport();
+        report.record(batch);
+        
+        // The first unit uses the Frame in stock, the second builds its own
+        assertEquals(2, batch.getOutcomeCount(ManufacturingOutcome.COMPLETED));
+        assertEquals(Map.of("Frame", 1.0, "Wood", 4.0, "Screw", 8.0), consumed(report));
+    }
+    
+    private InventoryManager stock() {
+        InventoryManager inventory = new InventoryManager();
+        inventory.setInitialStock(wood, 10);
+        inventory.setInitialStock(screw, 100);
+        inventory.setInitialStock(frame, 1);
+        return inventory;
+    }
+    
+    private static Map<String, Double> consumed(BreakdownReport report) {
+        Map<String, Double> consumed = new HashMap<>();
+        for (Breakdown.ComponentRow row : report.getBreakdown().getComponents()) {
+            consumed.put(row.getName(), row.getConsumedQuantity());
+        }
+        return consumed;
+    }
+}
@@ -0,0 +1,127 @@
+package system;
+
+import component.BillOfMaterials;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogCompilerTest {
+    // Header offsets after the magic number and version
+    private static final int ID_SPAN = 8;
+    private static final int NAME_COUNT = 12;
+    private static final int COMPONENT_COUNT = 16;
+    private static final int ENTRY_COUNT = 24;
+    private static final int NAME_ENDS = 28;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void sampleCatalogLoadsLikeItsCsvFiles() throws IOException {
+        assertRoundTrip("components.csv", "products.csv");
+    }
+    
+    @Test
+    void subAssembliesLoadLikeTheirCsvFiles() throws IOException {
+        Path components = directory.resolve("components.csv");
+        Path products = directory.resolve("products.csv");
+        Files.writeString(components,
+            "Component;Unit Cost (TL);Unit Weight (kg);Type;Stock Quantity\n"
+            + "Wood;5.00;2;Raw Material;10 m²\n"
+            + "Screw;0.50;0.05;Hardware;100 pieces\n"
+            + "Varnish;12.00;1;Paint;3 liters\n");
+        Files.writeString(products,
+            "Product Name;Wood;Screw;Varnish;Frame;Quantity\n"
+            + "Frame;2;4;0.5;0;6\n"
+            + "Table;1;2;0;1;10\n");
+        assertRoundTrip(components.toString(), products.toString());
+    }
+    
+    @Test
+    void rejectsDuplicateComponentNames() throws IOException {
+        Path components = directory.resolve("components.csv");
+        Path products = directory.resolve("products.csv");
+        Files.writeString(components,
+            "Component;Unit Cost (TL);Unit Weight (kg);Type;Stock Quantity\n"
+            + "Wood;5.00;2;Raw Material;10 m²\n"
+            + "Wood;6.00;2;Raw Material;4 m²\n");
+        Files.writeString(products, "Product Name;Wood;Quantity\nShelf;2;3\n");
+        
+        IOException e = assertThrows(IOException.class,
+            () -> CatalogCompiler.compile(components.toString(), products.toString(), directory.resolve("c.bin")));
+        assertTrue(e.getMessage().startsWith("Duplicate component names"), e.getMessage());
+    }
+    
+    @Test
+    void rejectsCorruptCatalogs() throws IOException {
+        Path catalog = directory.resolve("catalog.bin");
+        CatalogCompiler.compile("components.csv", "products.csv", catalog);
+        byte[] valid = Files.readAllBytes(catalog);
+        ByteBuffer header = ByteBuffer.wrap(valid);
+        int nameCount = header.getInt(NAME_COUNT);
+        int componentCount = header.getInt(COMPONENT_COUNT);
+        int nameBytes = header.getInt(NAME_ENDS + (nameCount - 1) * Integer.BYTES);
+        int componentIds = NAME_ENDS + nameCount * Integer.BYTES + nameBytes;
+        int types = componentIds + 2 * componentCount * Integer.BYTES;
+        
+        assertCorrupt(valid, buffer -> buffer.putInt(COMPONENT_COUNT, -1));
+        assertCorrupt(valid, buffer -> buffer.putInt(ENTRY_COUNT, Integer.MAX_VALUE));
+        assertCorrupt(valid, buffer -> buffer.putInt(ID_SPAN, 1));
+        assertCorrupt(valid, buffer -> buffer.putInt(ID_SPAN, Integer.MAX_VALUE));
+        assertCorrupt(valid, buffer -> buffer.putInt(componentIds, -3));
+        assertCorrupt(valid, buffer -> buffer.put(types, (byte) 7));
+    }
+    
+    private void assertCorrupt(byte[] valid, Consumer<ByteBuffer> damage) throws IOException {
+        byte[] bytes = valid.clone();
+        damage.accept(ByteBuffer.wrap(bytes));
+        Path catalog = directory.resolve("corrupt.bin");
+        Files.write(catalog, bytes);
+        
+        IOException e = assertThrows(IOException.class,
+            () -> new DataLoader().loadCatalogAndInitialize(catalog.toString(), new InventoryManager()));
+        assertTrue(e.getMessage().startsWith("Corrupt catalog"), e.getMessage());
+    }
+    
+    private void assertRoundTrip(String components, String products) throws IOException {
+        InventoryManager csvStock = new InventoryManager();
+        List<ManufacturingOrder> csvOrders = new DataLoader().loadDataAndInitialize(components, products, csvStock);
+        Path catalog = directory.resolve("catalog.bin");
+        CatalogCompiler.compile(components, products, catalog);
+        InventoryManager catalogStock = new InventoryManager();
+        List<ManufacturingOrder> catalogOrders = new DataLoader().loadCatalogAndInitialize(catalog.toString(),
+            catalogStock);
+        
+        assertArrayEquals(csvStock.snapshotStockLevels(), catalogStock.snapshotStockLevels());
+        assertEquals(csvOrders.size(), catalogOrders.size());
+        for (int i = 0; i < csvOrders.size(); i++) {
+            ManufacturingOrder expected = csvOrders.get(i);
+            ManufacturingOrder actual = catalogOrders.get(i);
+            assertEquals(expected.getProduct().getId(), actual.getProduct().getId());
+            assertEquals(expected.getProduct().getName(), actual.getProduct().getName());
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+            
+            BillOfMaterials expectedBom = expected.getProduct().getBillOfMaterials();
+            BillOfMaterials actualBom = actual.getProduct().getBillOfMaterials();
+            assertEquals(expectedBom.size(), actualBom.size(), expected.getProduct().getName());
+            for (int c = 0; c < expectedBom.size(); c++) {
+                assertEquals(expectedBom.getComponentId(c), actualBom.getComponentId(c));
+                assertEquals(expectedBom.getComponent(c).getName(), actualBom.getComponent(c).getName());
+                assertEquals(expectedBom.getMilliQuantity(c), actualBom.getMilliQuantity(c));
+            }
+            assertEquals(expectedBom.getCost(), actualBom.getCost(), 1e-9);
+            assertEquals(expectedBom.getWeight(), actualBom.getWeight(), 1e-9);
+        }
+    }
+}
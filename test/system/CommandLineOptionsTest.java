@@ -0,0 +1,101 @@
+package system;
+
+import observer.BackpressurePolicy;
+import org.junit.jupiter.api.Test;
+import process.FailureRateOutcomeModel;
+import process.UniformOutcomeModel;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandLineOptionsTest {
+    
+    @Test
+    void defaultsWithoutArguments() {
+        CommandLineOptions options = CommandLineOptions.parse();
+        
+        assertEquals(ExecutionMode.SEQUENTIAL, options.getMode());
+        assertEquals(WorkerThreadType.PLATFORM, options.getThreadType());
+        assertFalse(options.isHelp());
+        assertNull(options.getLogPolicy());
+        assertNull(options.getSeed());
+        assertEquals(SchedulingPolicy.CSV_ORDER, options.getSchedulingPolicy());
+        assertFalse(options.isCollectMetrics());
+        assertNull(options.getServePort());
+        assertSame(UniformOutcomeModel.INSTANCE, options.getOutcomeModel());
+    }
+    
+    @Test
+    void parsesValues() {
+        CommandLineOptions options = CommandLineOptions.parse("--mode=parallel-ordered", "--workers=3",
+            "--threads=virtual", "--log", "--seed=-5", "--schedule=greedy-by-value", "--metrics=10",
+            "--store=inventory", "--live-report=2", "--catalog=catalog.bin", "--shards=4", "--breakdown=out",
+            "--station=InManufacturing:10:4", "--component-damage-rate=Screw:0.1");
+        
+        assertEquals(ExecutionMode.PARALLEL_ORDERED, options.getMode());
+        assertEquals(3, options.getWorkers());
+        assertEquals(WorkerThreadType.VIRTUAL, options.getThreadType());
+        assertEquals(BackpressurePolicy.BLOCK, options.getLogPolicy());
+        assertEquals(-5L, options.getSeed());
+        assertEquals(SchedulingPolicy.GREEDY_BY_VALUE, options.getSchedulingPolicy());
+        assertTrue(options.isCollectMetrics());
+        assertEquals(10, options.getMetricsDumpSeconds());
+        assertEquals("inventory", options.getStoreDirectory());
+        assertEquals(2, options.getLiveReportSeconds());
+        assertEquals("catalog.bin", options.getCatalogPath());
+        assertEquals(4, options.getShardCount());
+        assertEquals("out", options.getBreakdownDirectory());
+        assertEquals(1, options.getStations().size());
+        assertInstanceOf(FailureRateOutcomeModel.class, options.getOutcomeModel());
+    }
+    
+    @Test
+    void parsesSimulationScenario() {
+        CommandLineOptions options = CommandLineOptions.parse("--simulate=2", "--horizon=60",
+            "--station=InManufacturing:10:4", "--error-rate=0.1");
+        
+        assertEquals(2, options.getReplications());
+        assertEquals(TimeUnit.MINUTES.toNanos(60), options.getScenario().getHorizonNanos());
+        assertEquals(1, options.getScenario().getStations().size());
+        assertSame(options.getOutcomeModel(), options.getScenario().getOutcomeModel());
+    }
+    
+    @Test
+    void rejectsBadInput() {
+        String[][] invalid = {
+            {"--mode=NOPE"}, {"--workers=x"}, {"--workers=0"}, {"--foo"}, {"products.csv"}, {"--mode"},
+            {"--log=never"}, {"--metrics=-1"}, {"--serve=70000"}, {"--station=a:b"},
+            {"--station=A:1:1", "--station=A:2:2"}, {"--error-rate=2"}, {"--product-error-rate=Shelf"},
+            {"--stock=Screw"}
+        };
+        for (String[] args : invalid) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> CommandLineOptions.parse(args), String.join(" ", args));
+            assertTrue(e.getMessage().contains("--") || e.getMessage().contains(args[0]), e.getMessage());
+        }
+    }
+    
+    @Test
+    void rejectsOptionsTheRunWouldIgnore() {
+        String[][] ignored = {
+            {"--serve", "--metrics"}, {"--serve", "--mode=batch"}, {"--batch-window=10"},
+            {"--serve", "--station=InManufacturing:10:4"}, {"--simulate=2", "--log"},
+            {"--simulate=2", "--serve"}, {"--horizon=60"}, {"--forecast=5", "--breakdown=out"},
+            {"--forecast=5", "--simulate=2"}
+        };
+        for (String[] args : ignored) {
+            assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(args), String.join(" ", args));
+        }
+        
+        CommandLineOptions options = CommandLineOptions.parse("--serve=9000", "--batch-window=10", "--seed=1");
+        assertEquals(9000, options.getServePort());
+        assertEquals(10, options.getBatchWindowMillis());
+    }
+}
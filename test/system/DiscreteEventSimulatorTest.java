@@ -0,0 +1,64 @@
+package system;
+
+import component.Component;
+import component.Product;
+import component.factory.ComponentFactory;
+import org.junit.jupiter.api.Test;
+import process.FailureRateOutcomeModel;
+import process.ManufacturingOutcome;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A Dining Set holds a Table, which takes a finished Frame from stock before
+ * building one from Wood and Screws
+ */
+class DiscreteEventSimulatorTest {
+    private final Component wood = ComponentFactory.createComponent(1, "Wood", 5, 2, "Raw Material");
+    private final Component screw = ComponentFactory.createComponent(2, "Screw", 0.5, 0.05, "Hardware");
+    private final Product frame = new Product(3, "Frame");
+    private final Product table = new Product(4, "Table");
+    private final Product diningSet = new Product(5, "Dining Set");
+    
+    DiscreteEventSimulatorTest() {
+        frame.addComponent(wood, 2);
+        frame.addComponent(screw, 4);
+        table.addComponent(wood, 1);
+        table.addComponent(screw, 2);
+        table.addComponent(frame, 1);
+        diningSet.addComponent(table, 1);
+    }
+    
+    @Test
+    void unitsUseTheFinishedSubAssembliesInStock() {
+        // Two Sets use the Frames in stock, the third builds its own and takes the last Wood
+        SimulationResult result = simulate(new SimulationScenario("Frames in stock"), 4, 5);
+        
+        assertEquals(3, result.getMeanCompleted());
+        assertEquals(2, result.getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE));
+    }
+    
+    @Test
+    void stockFactorScalesANestedSubAssembly() {
+        SimulationScenario scenario = new SimulationScenario("Half the Frames");
+        scenario.setStockFactor("Frame", 0.5);
+        SimulationResult result = simulate(scenario, 2, 3);
+        
+        // The second Set has no Frame left and too little Wood to build one
+        assertEquals(1, result.getMeanCompleted());
+        assertEquals(2, result.getOutcomeCount(ManufacturingOutcome.FAILED_STOCK_SHORTAGE));
+    }
+    
+    private SimulationResult simulate(SimulationScenario scenario, int quantity, int woods) {
+        InventoryManager inventory = new InventoryManager();
+        inventory.setInitialStock(wood, woods);
+        inventory.setInitialStock(screw, 100);
+        inventory.setInitialStock(frame, 2);
+        scenario.setOutcomeModel(new FailureRateOutcomeModel(0, 0));
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(
+            List.of(new ManufacturingOrder(diningSet, quantity)), inventory);
+        return simulator.replicate(scenario, 2, 1);
+    }
+}
@@ -0,0 +1,115 @@
+package system;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import process.ManufacturingOutcome;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The execution modes that allocate stock in order must give the same per-outcome
+ * counts for a fixed seed, and every mode must account for every unit
+ */
+class ExecutionModeOutcomeTest {
+    // The modes that allocate stock in order book order; PARALLEL_THROUGHPUT lets units compete for it
+    private static final ExecutionMode[] ORDERED_MODES = {ExecutionMode.PARALLEL_ORDERED, ExecutionMode.BATCH};
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void everyModeMatchesSequentialOnTheSampleCatalog() {
+        String components = Path.of("components.csv").toString();
+        String products = Path.of("products.csv").toString();
+        for (long seed = 1; seed <= 5; seed++) {
+            long[] sequential = run(ExecutionMode.SEQUENTIAL, 0, seed, components, products);
+            for (ExecutionMode mode : ORDERED_MODES) {
+                assertArrayEquals(sequential, run(mode, 0, seed, components, products),
+                    mode + " outcome counts for seed " + seed);
+                assertArrayEquals(sequential, run(mode, 3, seed, components, products),
+                    mode + " outcome counts with shards for seed " + seed);
+            }
+            assertEquals(total(sequential), total(run(ExecutionMode.PARALLEL_THROUGHPUT, 3, seed, components,
+                products)), "PARALLEL_THROUGHPUT units for seed " + seed);
+        }
+    }
+    
+    @Test
+    void everyModeMatchesSequentialWithSubAssemblies() throws IOException {
+        writeSubAssemblyFixture();
+        String components = directory.resolve("components.csv").toString();
+        String products = directory.resolve("products.csv").toString();
+        for (long seed = 1; seed <= 5; seed++) {
+            long[] sequential = run(ExecutionMode.SEQUENTIAL, 0, seed, components, products);
+            for (ExecutionMode mode : ORDERED_MODES) {
+                assertArrayEquals(sequential, run(mode, 0, seed, components, products),
+                    mode + " outcome counts for seed " + seed);
+            }
+            assertEquals(total(sequential), total(run(ExecutionMode.PARALLEL_THROUGHPUT, 0, seed, components,
+                products)), "PARALLEL_THROUGHPUT units for seed " + seed);
+        }
+    }
+    
+    /**
+     * Frame is built first and then used as a finished sub-assembly of Table, so
+     * a Table unit takes a Frame from stock before building one
+     */
+    @Test
+    void batchNetsFinishedSubAssembliesLikeSequential() throws IOException {
+        writeSubAssemblyFixture();
+        String components = directory.resolve("components.csv").toString();
+        String products = directory.resolve("products.csv").toString();
+        for (long seed = 1; seed <= 20; seed++) {
+            assertArrayEquals(run(ExecutionMode.SEQUENTIAL, 0, seed, components, products),
+                run(ExecutionMode.BATCH, 0, seed, components, products),
+                "BATCH outcome counts for seed " + seed);
+        }
+    }
+    
+    private void writeSubAssemblyFixture() throws IOException {
+        Files.writeString(directory.resolve("components.csv"),
+            "Component;Unit Cost (TL);Unit Weight (kg);Type;Stock Quantity\n"
+            + "Wood;5.00;2;Raw Material;10 m²\n"
+            + "Screw;0.50;0.05;Hardware;100 pieces\n");
+        Files.writeString(directory.resolve("products.csv"),
+            "Product Name;Wood;Screw;Frame;Quantity\n"
+            + "Frame;2;4;0;6\n"
+            + "Table;1;2;1;10\n");
+    }
+    
+    /**
+     * Runs the order book and returns the unit count of every outcome
+     */
+    private static long[] run(ExecutionMode mode, int shards, long seed, String components, String products) {
+        ManufacturingController controller = new ManufacturingController(mode, 4, WorkerThreadType.PLATFORM);
+        controller.setSeed(seed);
+        controller.setShardCount(shards);
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            controller.processManufacturingOrders(components, products);
+        } finally {
+            System.setOut(console);
+        }
+        long[] counts = new long[ManufacturingOutcome.values().length];
+        for (ManufacturingOutcome outcome : ManufacturingOutcome.values()) {
+            counts[outcome.ordinal()] = controller.getReportGenerator().getOutcomeCount(outcome);
+        }
+        return counts;
+    }
+    
+    private static long total(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+}
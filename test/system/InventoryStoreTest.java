@@ -0,0 +1,84 @@
+package system;
+
+import component.Component;
+import component.factory.ComponentFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InventoryStoreTest {
+    private final Component wood = ComponentFactory.createComponent(0, "Wood", 5, 2, "Raw Material");
+    private final Component screw = ComponentFactory.createComponent(1, "Screw", 0.5, 0.05, "Hardware");
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void restoresStockAfterClose() throws IOException {
+        InventoryManager inventory = new InventoryManager();
+        try (InventoryStore store = InventoryStore.open(directory, inventory)) {
+            inventory.setInitialStock(wood, 10);
+            inventory.setInitialStock(screw, 100);
+            assertTrue(inventory.reserve(Map.of(wood, 2, screw, 8)));
+        }
+        
+        InventoryManager restored = new InventoryManager();
+        try (InventoryStore store = InventoryStore.open(directory, restored)) {
+            assertEquals(2, store.getRestoredComponents());
+            // Loading the CSV stock again must not undo the stored changes
+            restored.setInitialStock(wood, 10);
+            assertEquals(8, restored.getStockLevel(wood));
+            assertEquals(92, restored.getStockLevel(screw));
+        }
+    }
+    
+    /**
+     * The store is never closed, so the changes since its start are only in the
+     * journal, and the write of a later reservation stopped halfway
+     */
+    @Test
+    void replaysTheJournalAfterACrash() throws IOException {
+        InventoryManager inventory = new InventoryManager();
+        InventoryStore store = InventoryStore.open(directory, inventory);
+        inventory.setInitialStock(wood, 10);
+        inventory.setInitialStock(screw, 100);
+        assertTrue(inventory.reserve(Map.of(wood, 2, screw, 8)));
+        inventory.addStock(wood, 1);
+        store.sync();
+        
+        List<Path> journals = journals();
+        assertEquals(1, journals.size());
+        ByteBuffer torn = ByteBuffer.allocate(InventoryJournal.RECORD_SIZE + 6);
+        torn.put(InventoryJournal.MORE_FOLLOWS).putInt(0).putLong(-5 * InventoryManager.MILLI_UNITS_PER_UNIT);
+        torn.put((byte) 0).putInt(1).put((byte) 0);
+        Files.write(journals.get(0), torn.array(), StandardOpenOption.APPEND);
+        
+        InventoryManager restored = new InventoryManager();
+        try (InventoryStore reopened = InventoryStore.open(directory, restored)) {
+            assertEquals(2, reopened.getRestoredComponents());
+            assertEquals(9, restored.getStockLevel(wood));
+            assertEquals(92, restored.getStockLevel(screw));
+        }
+        // The checkpoint of the reopened store replaces the replayed journal
+        assertEquals(1, journals().size());
+    }
+    
+    private List<Path> journals() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal"))
+                .collect(Collectors.toList());
+        }
+    }
+}
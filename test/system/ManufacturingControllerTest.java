@@ -0,0 +1,42 @@
+package system;
+
+import org.junit.jupiter.api.Test;
+import process.ManufacturingOutcome;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ManufacturingControllerTest {
+    
+    @Test
+    void secondRunKeepsTheComponentIds() {
+        ManufacturingController controller = new ManufacturingController(ExecutionMode.SEQUENTIAL, 1,
+            WorkerThreadType.PLATFORM);
+        controller.setSeed(7);
+        long[] first = run(controller);
+        int componentCount = controller.getInventoryManager().getComponentCount();
+        long[] second = run(controller);
+        
+        // New IDs would leave the stock set by the first run behind and grow the inventory
+        assertEquals(componentCount, controller.getInventoryManager().getComponentCount());
+        assertArrayEquals(first, second);
+    }
+    
+    private static long[] run(ManufacturingController controller) {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            controller.processManufacturingOrders("components.csv", "products.csv");
+        } finally {
+            System.setOut(console);
+        }
+        long[] counts = new long[ManufacturingOutcome.values().length];
+        for (ManufacturingOutcome outcome : ManufacturingOutcome.values()) {
+            counts[outcome.ordinal()] = controller.getReportGenerator().getOutcomeCount(outcome);
+        }
+        return counts;
+    }
+}
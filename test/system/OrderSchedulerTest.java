@@ -0,0 +1,53 @@
+package system;
+
+import component.Component;
+import component.Product;
+import component.factory.ComponentFactory;
+import org.junit.jupiter.api.Test;
+import process.BatchManufacturingProcess;
+import process.FailureRateOutcomeModel;
+import process.ManufacturingOutcome;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderSchedulerTest {
+    
+    /**
+     * The plan gives all the Wood to the more valuable Cabinet, but every Cabinet
+     * fails and returns it, so the Shelf units the plan left out still complete
+     */
+    @Test
+    void unitsLeftOutOfThePlanTakeTheStockFailedUnitsReturn() {
+        Component wood = ComponentFactory.createComponent(0, "Wood", 5, 2, "Raw Material");
+        Component glass = ComponentFactory.createComponent(1, "Glass", 50, 1, "Raw Material");
+        Product cabinet = new Product(2, "Cabinet");
+        cabinet.addComponent(wood, 1);
+        cabinet.addComponent(glass, 1);
+        Product shelf = new Product(3, "Shelf");
+        shelf.addComponent(wood, 1);
+        InventoryManager inventory = new InventoryManager();
+        inventory.setInitialStock(wood, 10);
+        inventory.setInitialStock(glass, 10);
+        
+        List<ManufacturingOrder> scheduled = new OrderScheduler(SchedulingPolicy.GREEDY_BY_VALUE).schedule(
+            List.of(new ManufacturingOrder(shelf, 5), new ManufacturingOrder(cabinet, 10)), inventory);
+        
+        assertEquals(2, scheduled.size());
+        assertEquals(cabinet, scheduled.get(0).getProduct());
+        assertEquals(10, scheduled.get(0).getQuantity());
+        assertEquals(shelf, scheduled.get(1).getProduct());
+        assertEquals(5, scheduled.get(1).getQuantity());
+        
+        FailureRateOutcomeModel model = new FailureRateOutcomeModel(0, 0).setProductSystemErrorRate("Cabinet", 1);
+        int completed = 0;
+        for (ManufacturingOrder order : scheduled) {
+            BatchManufacturingProcess batch = order.createBatchProcess(inventory, model, new SplittableRandom(1));
+            batch.process();
+            completed += batch.getOutcomeCount(ManufacturingOutcome.COMPLETED);
+        }
+        assertEquals(5, completed);
+    }
+}
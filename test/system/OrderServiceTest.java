@@ -0,0 +1,144 @@
+package system;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import process.ManufacturingOutcome;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class OrderServiceTest {
+    @TempDir
+    Path directory;
+    
+    private OrderService service;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(directory.resolve("components.csv"),
+            "Component;Unit Cost (TL);Unit Weight (kg);Type;Stock Quantity\n"
+            + "Wood;5.00;2;Raw Material;1000 m²\n"
+            + "Screw;0.50;0.05;Hardware;10000 pieces\n");
+        Files.writeString(directory.resolve("products.csv"),
+            "Product Name;Wood;Screw;Quantity\n"
+            + "Shelf;2;8;1\n");
+        service = new OrderService(1, TimeUnit.MILLISECONDS);
+        service.setSeed(7);
+        service.loadCatalog(directory.resolve("components.csv").toString(),
+            directory.resolve("products.csv").toString());
+        service.start(0, WorkerThreadType.PLATFORM, 2);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+    
+    @Test
+    void answersOrdersOverHttp() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(URI.create("http://localhost:" + service.getPort() + "/orders"))
+                .POST(HttpRequest.BodyPublishers.ofString("Shelf;5\n")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        
+        assertEquals(200, response.statusCode());
+        String[] fields = response.body().trim().split(";");
+        long units = 0;
+        for (int i = 2; i < fields.length; i++) {
+            units += Long.parseLong(fields[i]);
+        }
+        assertEquals("Shelf", fields[0]);
+        assertEquals(5, units);
+        assertEquals(5, service.getReportGenerator().getUnitCount());
+    }
+    
+    @Test
+    void submitAfterCloseFails() {
+        service.close();
+        assertThrows(IllegalStateException.class, () -> service.submitAsync(shelves(1)));
+    }
+    
+    /**
+     * Requests placed while the service closes are either run or failed, never left waiting
+     */
+    @Test
+    void everyRequestCompletesWhenClosedDuringSubmits() throws Exception {
+        List<CompletableFuture<List<OrderResult>>> futures = new ArrayList<>();
+        CountDownLatch submitting = new CountDownLatch(4);
+        List<Thread> clients = new ArrayList<>();
+        for (int c = 0; c < 4; c++) {
+            Thread client = new Thread(() -> {
+                submitting.countDown();
+                while (true) {
+                    try {
+                        CompletableFuture<List<OrderResult>> future = service.submitAsync(shelves(1));
+                        synchronized (futures) {
+                            futures.add(future);
+                        }
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                }
+            });
+            client.start();
+            clients.add(client);
+        }
+        submitting.await();
+        Thread.sleep(20);
+        service.close();
+        for (Thread client : clients) {
+            client.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        
+        synchronized (futures) {
+            assertTrue(futures.size() > 0);
+            for (CompletableFuture<List<OrderResult>> future : futures) {
+                try {
+                    List<OrderResult> results = future.get(10, TimeUnit.SECONDS);
+                    assertEquals(1, results.size());
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalStateException.class, e.getCause());
+                } catch (TimeoutException e) {
+                    fail("A request placed during close() never completed");
+                }
+            }
+        }
+    }
+    
+    @Test
+    void resultsCountEveryUnit() throws Exception {
+        List<OrderResult> results = service.submit(shelves(7));
+        
+        assertEquals(1, results.size());
+        int units = 0;
+        for (ManufacturingOutcome outcome : ManufacturingOutcome.values()) {
+            units += results.get(0).getOutcomeCount(outcome);
+        }
+        assertEquals(7, units);
+    }
+    
+    private List<ManufacturingOrder> shelves(int quantity) {
+        return List.of(new ManufacturingOrder(service.getProduct("Shelf"), quantity));
+    }
+}
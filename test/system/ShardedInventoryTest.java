@@ -0,0 +1,44 @@
+package system;
+
+import component.Component;
+import component.factory.ComponentFactory;
+import metrics.ManufacturingMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedInventoryTest {
+    private final Component wood = ComponentFactory.createComponent(0, "Wood", 5, 2, "Raw Material");
+    
+    @Test
+    void shardsRecordIntoTheHomeMetrics() {
+        ManufacturingMetrics metrics = new ManufacturingMetrics();
+        InventoryManager home = new InventoryManager();
+        home.setMetrics(metrics);
+        home.setInitialStock(wood, 4);
+        ShardedInventory sharded = new ShardedInventory(home, 2);
+        sharded.distribute();
+        
+        assertTrue(sharded.getShard(0).reserve(Map.of(wood, 2)));
+        assertFalse(sharded.getShard(1).reserve(Map.of(wood, 3)));
+        assertEquals(2, metrics.getInventoryReserveCount());
+        assertEquals(1, metrics.getInventoryReserveFailures());
+    }
+    
+    @Test
+    void consolidateReturnsTheShardStock() {
+        InventoryManager home = new InventoryManager();
+        home.setInitialStock(wood, 5);
+        ShardedInventory sharded = new ShardedInventory(home, 2);
+        sharded.distribute();
+        assertEquals(0, home.getStockLevel(wood));
+        
+        assertTrue(sharded.getShard(1).reserve(Map.of(wood, 1)));
+        sharded.consolidate();
+        assertEquals(4, home.getStockLevel(wood));
+    }
+}
@@ -0,0 +1,25 @@
+package system;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SimulationResultTest {
+    
+    @Test
+    void durationUsesTheLargestUnitItFills() {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.ROOT);
+        try {
+            assertEquals("0.05 ms", SimulationResult.formatDuration(50_000));
+            assertEquals("12.00 ms", SimulationResult.formatDuration(12e6));
+            assertEquals("1.50 seconds", SimulationResult.formatDuration(1.5e9));
+            assertEquals("2.00 minutes", SimulationResult.formatDuration(1.2e11));
+            assertEquals("8.00 hours", SimulationResult.formatDuration(8 * 3.6e12));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+}
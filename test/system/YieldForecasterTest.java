@@ -0,0 +1,91 @@
+package system;
+
+import component.Component;
+import component.Product;
+import component.factory.ComponentFactory;
+import org.junit.jupiter.api.Test;
+import process.FailureRateOutcomeModel;
+import process.ManufacturingOutcome;
+import process.ManufacturingProcess;
+import process.OutcomeModel;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A Table takes a finished Frame from stock before building one from Wood and Screws
+ */
+class YieldForecasterTest {
+    private static final OutcomeModel ALWAYS_COMPLETES = new FailureRateOutcomeModel(0, 0);
+    
+    private final Component wood = ComponentFactory.createComponent(1, "Wood", 5, 2, "Raw Material");
+    private final Component screw = ComponentFactory.createComponent(2, "Screw", 0.5, 0.05, "Hardware");
+    private final Product frame = new Product(3, "Frame");
+    private final Product table = new Product(4, "Table");
+    
+    YieldForecasterTest() {
+        frame.addComponent(wood, 2);
+        frame.addComponent(screw, 4);
+        table.addComponent(wood, 1);
+        table.addComponent(screw, 2);
+        table.addComponent(frame, 1);
+    }
+    
+    @Test
+    void finishedSubAssembliesAreUsedFirstLikeTheSequentialRun() {
+        // Two Tables use the Frames in stock, the third builds its own and takes the last Wood
+        YieldForecast forecast = forecast(stock(2, 5), 4);
+        
+        InventoryManager inventory = stock(2, 5);
+        long completed = 0;
+        for (int i = 0; i < 4; i++) {
+            ManufacturingProcess unit = new ManufacturingProcess(table, inventory, null, ALWAYS_COMPLETES,
+                new SplittableRandom(1));
+            while (!unit.isCompleted()) {
+                unit.process();
+            }
+            if (unit.getFinalOutcome() == ManufacturingOutcome.COMPLETED) {
+                completed++;
+            }
+        }
+        
+        assertEquals(3, completed);
+        assertEquals(3, mean(forecast, ManufacturingOutcome.COMPLETED));
+        assertEquals(1, mean(forecast, ManufacturingOutcome.FAILED_STOCK_SHORTAGE));
+        assertEquals(1, shortUnits(forecast, wood));
+    }
+    
+    @Test
+    void shortLeafOfANettedUnitIsBlamed() {
+        // The second Table has a Frame but no Wood for itself
+        YieldForecast forecast = forecast(stock(2, 1), 3);
+        
+        assertEquals(1, mean(forecast, ManufacturingOutcome.COMPLETED));
+        assertEquals(2, mean(forecast, ManufacturingOutcome.FAILED_STOCK_SHORTAGE));
+        assertEquals(2, shortUnits(forecast, wood));
+    }
+    
+    private YieldForecast forecast(InventoryManager inventory, int quantity) {
+        YieldForecaster forecaster = new YieldForecaster(List.of(new ManufacturingOrder(table, quantity)), inventory);
+        forecaster.setOutcomeModel(ALWAYS_COMPLETES);
+        return forecaster.forecast(3, 1);
+    }
+    
+    private InventoryManager stock(int frames, int woods) {
+        InventoryManager inventory = new InventoryManager();
+        inventory.setInitialStock(wood, woods);
+        inventory.setInitialStock(screw, 100);
+        inventory.setInitialStock(frame, frames);
+        return inventory;
+    }
+    
+    private static double mean(YieldForecast forecast, ManufacturingOutcome outcome) {
+        return forecast.getOutcomeStatistics(outcome).getMean();
+    }
+    
+    private static double shortUnits(YieldForecast forecast, Component component) {
+        return forecast.getShortUnitStatistics(forecast.getComponents().indexOf(component)).getMean();
+    }
+}